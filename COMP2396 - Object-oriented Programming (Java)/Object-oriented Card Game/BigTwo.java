@@ -3,7 +3,7 @@ import java.util.ArrayList;
 /**
  * The BigTwo class implements the CardGame interface and is used to model a Big Two card game.
  */
-public class BigTwo {
+public class BigTwo implements CardGame {
 	// Instance variables
 	/** an int specifying the number of players.*/
 	private int numOfPlayers;
@@ -18,11 +18,13 @@ public class BigTwo {
 	/** a BigTwoGUI object for providing the user interface.*/
 	private BigTwoGUI ui;
 	/** a BigTwoCard object containing diamond of three*/
-	private static Card diamondThree = new BigTwoCard(0,2);
+	private static Card diamondThree = BigTwoCard.valueOf(0,2);
 	/** an int specifying the index of the last player*/
 	private CardGamePlayer lastPlayer;
 	/** a BigTwoClient object communicating with the Big Two game server.*/
 	private BigTwoClient client;
+	/** an integer specifying the index of the winner of the last game, or -1 if the game has not ended*/
+	private int winnerIdx = -1;
 	// Constructors
 	/**
 	 * a constructor for creating a Big Two card game. 
@@ -49,6 +51,23 @@ public class BigTwo {
 		this.client = new BigTwoClient(this,ui);
 		ui.setClient(client);
 		}
+	/**
+	 * a constructor for creating a headless Big Two card game, which has no GUI and no client.
+	 * @param headless a dummy parameter distinguishing this constructor
+	 */
+	private BigTwo(boolean headless) {
+		setNumOfPlayers(0);
+		setPlayerList(new String[4]);
+		reset();
+	}
+	/**
+	 * a method for creating a headless Big Two card game, e.g. for simulations or for the game server.
+	 * The game is driven by start() and tryMove() only, and keeps its final state when it ends.
+	 * @return a Big Two card game without GUI and client
+	 */
+	public static BigTwo createHeadless() {
+		return new BigTwo(true);
+	}
 	
 	// Methods
 	/**
@@ -117,6 +136,22 @@ public class BigTwo {
 	public ArrayList<Hand> getHandsOnTable(){
 		return this.handsOnTable;
 	}
+	/**
+	 * a method for retrieving the last hand played on the table.
+	 * @return the last hand on the table, or null if no hand has been played
+	 */
+	public Hand getLastHandOnTable() {
+		return (handsOnTable.isEmpty()) ? null : handsOnTable.get(handsOnTable.size() - 1);
+	}
+	/**
+	 * a method for generating the legal moves of the specified player (see MoveGenerator).
+	 * @param playerIdx player's ID in the playerList
+	 * @param moves a buffer of at least MoveGenerator.MAX_MOVES elements for the moves
+	 * @return the number of moves written into the buffer
+	 */
+	public int generateMoves(int playerIdx, long[] moves) {
+		return MoveGenerator.generate(this, playerIdx, moves);
+	}
 	/**
 	 * a method for retrieving the index of the current player.
 	 * @return current player's index in the playerList
@@ -133,6 +168,7 @@ public class BigTwo {
 			this.playerList.get(i).removeAllCards();
 		}
 		this.handsOnTable = new ArrayList<Hand>();
+		this.lastPlayer = null;
 	}
 	/**
 	 * a method for starting/restarting the game with a given shuffled deck of cards.
@@ -140,16 +176,15 @@ public class BigTwo {
 	 */
 	public void start(Deck deck) {
 		reset();
-		ui.reset();
+		if (ui != null) ui.reset();
 		this.handsOnTable = new ArrayList<Hand>();
+		this.winnerIdx = -1;
 		// (ii) distribute cards
 		Card card;
 		int diamondThreePlayerIdx = 0;
-		Card diamondThree = new BigTwoCard(0,2);
 		for (int j=0;j<13;j++) {
 			for (int i=0;i<4;i++) {
-				card = deck.getCard(0);
-				deck.removeCard(0);
+				card = deck.getCard(j*4+i);
 				this.playerList.get(i).addCard(card);
 
 				// (iii) identify the player who holds diamond 3
@@ -157,11 +192,13 @@ public class BigTwo {
 					diamondThreePlayerIdx = i;
 			}
 		}
+		deck.removeAllCards();
 		for (int i=0;i<4;i++) {
 			this.playerList.get(i).sortCardsInHand();
 		}
 		// (iv) set currentPlayerIdx and activePlayer
 		this.currentPlayerIdx = diamondThreePlayerIdx;
+		if (ui == null) return;
 		this.ui.setActivePlayer(currentPlayerIdx);
 		
 		// (v) call repaint
@@ -169,12 +206,70 @@ public class BigTwo {
 		// (vi) call promptActivePlayer
 		//this.ui.promptActivePlayer();
 	}
+	/**
+	 * a method for starting/restarting the game with the cards dealt to the local player only.
+	 * The cards of the other players are not known, so they are given the remaining cards as
+	 * stand-ins, which are swapped for the cards they actually play (see checkMove(int, CardList)).
+	 * @param deal the cards dealt to the local player by the server
+	 */
+	public void start(CardGameDeal deal) {
+		reset();
+		if (ui != null) ui.reset();
+		this.handsOnTable = new ArrayList<Hand>();
+		this.winnerIdx = -1;
+		// distribute the cards of the local player, and the stand-ins to the other players
+		int localIdx = deal.getPlayerIdx();
+		long standIns = CardSet.ALL_CARDS & ~CardSet.bitsOf(deal.getCards());
+		int[] numOfCards = deal.getNumOfCards();
+		for (int i=0;i<numOfCards.length;i++) {
+			CardGamePlayer player = this.playerList.get(i);
+			if (i==localIdx) {
+				for (int j=0;j<deal.getCards().size();j++)
+					player.addCard(deal.getCards().getCard(j));
+			}
+			else {
+				for (int j=0;j<numOfCards[i] && standIns!=0;j++) {
+					player.addCard(CardSet.card(Long.numberOfTrailingZeros(standIns)));
+					standIns &= standIns-1;
+				}
+			}
+			player.sortCardsInHand();
+		}
+		this.currentPlayerIdx = deal.getCurrentPlayerIdx();
+		if (ui == null) return;
+		this.ui.setActivePlayer(currentPlayerIdx);
+		this.ui.repaint();
+	}
+	/**
+	 * a method for restoring the game from a snapshot sent by the server, in place of the
+	 * messages the local player has missed. The game is started with the deal in the snapshot,
+	 * and the last hand on the table is put back.
+	 * @param snapshot the state of the table sent by the server, with a game being played
+	 */
+	public void resync(CardGameSnapshot snapshot) {
+		start(snapshot.getDeal());
+		int lastPlayerIdx = snapshot.getLastPlayerIdx();
+		if (snapshot.getLastHand()!=null && lastPlayerIdx>=0 && lastPlayerIdx<playerList.size()) {
+			CardGamePlayer player = this.playerList.get(lastPlayerIdx);
+			Hand hand = composeHand(player,snapshot.getLastHand());
+			if (hand!=null) {
+				this.handsOnTable.add(hand);
+				this.lastPlayer = player;
+			}
+		}
+		if (ui != null) this.ui.repaint();
+	}
 	/**
 	 * a method for the local player making his move
 	 * @param playerIdx player's ID in the playerList
 	 * @param cardIdx an array of indices of the cards selected, or null if pass
 	 */
 	public synchronized void makeMove(int playerIdx, int[] cardIdx) {
+		// a headless game has no server to check the move
+		if (client == null) {
+			tryMove(playerIdx, cardIdx);
+			return;
+		}
 		// send MOVE message to server
 		client.sendMove(cardIdx);
 	}
@@ -184,12 +279,108 @@ public class BigTwo {
 	 * @param cardIdx an array of indices of the cards selected, or null if pass
 	 */
 	public synchronized void checkMove(int playerIdx,int[] cardIdx) {
+		tryMove(playerIdx,cardIdx);
+	}
+	/**
+	 * a method for checking the player's move given by the cards played, which may be held by
+	 * another player as stand-ins if the game was started with a deal (see start(CardGameDeal)).
+	 * The stand-ins are swapped first, so that the player holds the cards played.
+	 * @param playerIdx player's ID in the playerList
+	 * @param cards the cards played, or null if pass
+	 */
+	public synchronized void checkMove(int playerIdx,CardList cards) {
+		if (cards==null) {
+			tryMove(playerIdx,null);
+			return;
+		}
+		CardGamePlayer player = this.playerList.get(playerIdx);
+		swapStandIns(player,cards);
+		// the indices of the cards played in the hand of the player
+		CardList hand = player.getCardsInHand();
+		int[] cardIdx = new int[cards.size()];
+		for (int i=0;i<cards.size();i++) {
+			cardIdx[i] = -1;
+			for (int j=0;j<hand.size();j++) {
+				if (hand.getCard(j).equals(cards.getCard(i))) cardIdx[i] = j;
+			}
+		}
+		tryMove(playerIdx,cardIdx);
+	}
+	/**
+	 * a method for making a move which has been checked and accepted by the server, without
+	 * checking it again: the cards played are removed from the player, the hand is put on the
+	 * table, and the turn passes to the next player. The stand-ins are swapped first, as in
+	 * checkMove(int, CardList).
+	 * @param playerIdx player's ID in the playerList
+	 * @param cards the cards played, or null if pass
+	 */
+	public synchronized void applyMove(int playerIdx,CardList cards) {
+		CardGamePlayer player = this.playerList.get(playerIdx);
+		Hand hand = null;
+		if (cards!=null) {
+			swapStandIns(player,cards);
+			hand = composeHand(player,cards);
+		}
+		// the server decides whose turn it is
+		this.currentPlayerIdx = playerIdx;
+		playMove(player,cards,hand);
+		if (ui != null) this.ui.repaint();
+	}
+	/**
+	 * a method for swapping the stand-ins held by the specified player for the cards played,
+	 * so that the player holds the cards played.
+	 * @param player the player who plays the cards
+	 * @param cards the cards played
+	 */
+	private void swapStandIns(CardGamePlayer player,CardList cards) {
+		long played = CardSet.bitsOf(cards);
+		for (int i=0;i<cards.size();i++) {
+			Card card = cards.getCard(i);
+			if (player.getCardsInHand().contains(card)) continue;
+			// swap the card with a card of the player not being played, or replace the card
+			// if no other player holds it (e.g. after a resync, see resync(CardGameSnapshot))
+			CardGamePlayer holder = null;
+			for (CardGamePlayer other : this.playerList) {
+				if (other!=player && other.getCardsInHand().contains(card)) {
+					holder = other;
+					break;
+				}
+			}
+			CardList hand = player.getCardsInHand();
+			for (int j=0;j<hand.size();j++) {
+				Card standIn = hand.getCard(j);
+				if ((played & CardSet.bit(standIn))!=0) continue;
+				swapCard(player,standIn,card);
+				if (holder!=null) swapCard(holder,card,standIn);
+				break;
+			}
+		}
+	}
+	/**
+	 * a method for replacing a card of the specified player, keeping the cards in hand sorted.
+	 * @param player the player holding the card
+	 * @param oldCard the card to be removed
+	 * @param newCard the card to be added
+	 */
+	private void swapCard(CardGamePlayer player,Card oldCard,Card newCard) {
+		CardList oldCards = new CardList();
+		oldCards.addCard(oldCard);
+		player.removeCards(oldCards);
+		player.addCard(newCard);
+		player.sortCardsInHand();
+	}
+	/**
+	 * a method for checking the player's move and making it if it is legal
+	 * @param playerIdx player's ID in the playerList
+	 * @param cardIdx an array of indices of the cards selected, or null if pass
+	 * @return true if the move is legal and has been made, false otherwise
+	 */
+	public synchronized boolean tryMove(int playerIdx,int[] cardIdx) {
 		
 		Hand hand = null;
 		
 		CardGamePlayer player = this.playerList.get(playerIdx);
 		CardList cards = player.play(cardIdx);
-		String playerName = player.getName();
 		
 		//System.out.print(player);
 		//System.out.print(" plays ");
@@ -197,8 +388,12 @@ public class BigTwo {
 		
 		boolean legal = true;
 		
-		Hand lastHandOnTable = (handsOnTable.isEmpty()) ? null : handsOnTable.get(handsOnTable.size() - 1);
-		if (lastHandOnTable==null) {
+		Hand lastHandOnTable = getLastHandOnTable();
+		if (winnerIdx>=0 || playerIdx!=currentPlayerIdx) {
+			// no more moves after the game has ended, and no moves out of turn
+			legal = false;
+		}
+		else if (lastHandOnTable==null) {
 			if (cards==null) {
 				//System.out.println("Cannot pass on the first round");
 				//this.ui.printMsg("Not a legal move!!!\n");
@@ -257,18 +452,33 @@ public class BigTwo {
 		//System.out.println(legal);
 		
 		if (legal==true) {
-			if (cards==null) {
-				this.ui.printMsg(playerName+": "+"{Pass} \n");
-				//this.ui.printMsg("\n");
-			}
-			else {
-				player.removeCards(cards);
-				this.handsOnTable.add(hand);
-				this.lastPlayer = player;
-				this.ui.printMsg(String.format("%s: {%s} %s \n",playerName,hand.getType(),hand.toString()));
-				
-				// checking whether the game has ended
-				if (endOfGame()) {
+			playMove(player,cards,hand);
+		}
+		if (ui != null) this.ui.repaint();
+		return legal;
+	}
+	/**
+	 * a method for making the move of the current player, which is legal.
+	 * @param player the current player
+	 * @param cards the cards played, or null if pass
+	 * @param hand the hand composed of the cards played, or null if pass
+	 */
+	private void playMove(CardGamePlayer player,CardList cards,Hand hand) {
+		String playerName = player.getName();
+		if (cards==null) {
+			if (ui != null) this.ui.printMsg(playerName+": "+"{Pass} \n");
+			//this.ui.printMsg("\n");
+		}
+		else {
+			player.removeCards(cards);
+			this.handsOnTable.add(hand);
+			this.lastPlayer = player;
+			if (ui != null) this.ui.printMsg(String.format("%s: {%s} %s \n",playerName,hand.getType(),hand.toString()));
+			
+			// checking whether the game has ended
+			if (endOfGame()) {
+				winnerIdx = currentPlayerIdx;
+				if (ui != null) {
 					// disable gui, prompt end message, and reset the game
 					ui.repaint();
 					ui.promptEnd(currentPlayerIdx);
@@ -277,10 +487,9 @@ public class BigTwo {
 					ui.reset();
 				}
 			}
-			this.currentPlayerIdx = (this.currentPlayerIdx+1)%4;
-			this.ui.setActivePlayer(this.currentPlayerIdx);
 		}
-		this.ui.repaint();
+		this.currentPlayerIdx = (this.currentPlayerIdx+1)%4;
+		if (ui != null) this.ui.setActivePlayer(this.currentPlayerIdx);
 	}
 	/**
 	 * a method for checking if the game ends.
@@ -291,6 +500,13 @@ public class BigTwo {
 		Boolean isEnd = currentPlayer.getCardsInHand().isEmpty();
 		return isEnd;
 	}
+	/**
+	 * a method for retrieving the index of the winner of the game.
+	 * @return the winner's index in the playerList, or -1 if the game has not ended
+	 */
+	public int getWinnerIdx() {
+		return winnerIdx;
+	}
 	/**
 	 * a method for starting a Big Two card game.
 	 */
@@ -304,46 +520,35 @@ public class BigTwo {
 	}
 	/**
 	 * a method for returning a valid hand from the specified list of cards of the player. 
+	 * The cards are classified by a single lookup in HandClassifier, and only the matching Hand is built.
 	 * @param player the player of the hand
 	 * @param cards cards to compose the Hand
 	 * @return the Hand played by the specified player
 	 */
 	public static Hand composeHand(CardGamePlayer player, CardList cards) {
-		Hand hand;
-		if (cards.size() == 1) {
-			hand = new Single(player,cards);
-			if (hand.isValid()) {
-				return hand;
-			}
-		}
-		else if (cards.size() == 2) {
-			hand = new Pair(player,cards);
-			if (hand.isValid()) {
-				return hand;
-			}
-		}
-		else if (cards.size() == 3) {
-			hand = new Triple(player,cards);
-			if (hand.isValid()) {
-				return hand;
-			}
-		}
-		else if (cards.size() == 5){
-			hand = new StraightFlush(player,cards);
-			if (hand.isValid()) return hand;
-			
-			hand = new Quad(player,cards);
-			if (hand.isValid()) return hand;
-
-			hand = new FullHouse(player,cards);
-			if (hand.isValid()) return hand;
-			
-			hand = new Flush(player,cards);
-			if (hand.isValid()) return hand;
-			
-			hand = new Straight(player,cards);
-			if (hand.isValid()) return hand;
+		long bits = CardSet.bitsOf(cards);
+		// the same card selected twice does not make a hand
+		if (Long.bitCount(bits) != cards.size()) return null;
+		
+		switch (HandClassifier.getType(HandClassifier.classify(bits))) {
+		case HandClassifier.SINGLE:
+			return new Single(player,cards);
+		case HandClassifier.PAIR:
+			return new Pair(player,cards);
+		case HandClassifier.TRIPLE:
+			return new Triple(player,cards);
+		case HandClassifier.STRAIGHT:
+			return new Straight(player,cards);
+		case HandClassifier.FLUSH:
+			return new Flush(player,cards);
+		case HandClassifier.FULL_HOUSE:
+			return new FullHouse(player,cards);
+		case HandClassifier.QUAD:
+			return new Quad(player,cards);
+		case HandClassifier.STRAIGHT_FLUSH:
+			return new StraightFlush(player,cards);
+		default:
+			return null;
 		}
-		return null;
 	}
 }
@@ -1,13 +1,45 @@
 /**
  * The BigTwoCard class is a subclass of the Card class and is used to model a card used in a Big Two card game. 
+ * The 52 cards are interned in a canonical table, so that valueOf() and deserialization always return the same
+ * immutable instance for the same card.
  */
 public class BigTwoCard extends Card {
-	public BigTwoCard(int suit, int rank) {
+	private static final long serialVersionUID = 4908111644264913598L;
+	/** the canonical instances of the 52 cards, indexed by ordinal.*/
+	private static final BigTwoCard[] CARDS = new BigTwoCard[52];
+	static {
+		for (int i=0;i<CARDS.length;i++) {
+			// convert the Big Two rank back to the rank stored in the card
+			CARDS[i] = new BigTwoCard(i%4, (i/4+2)%13);
+		}
+	}
+	
+	private BigTwoCard(int suit, int rank) {
 		/**
-		 * a constructor for building a card with the specified suit and rank. 
+		 * a constructor for building the canonical card with the specified suit and rank. 
+		 * The cards are retrieved with valueOf() or fromOrdinal() instead.
 		 */
 		super(suit,rank);
 	}
+	public static BigTwoCard valueOf(int suit, int rank) {
+		/**
+		 * a method for retrieving the canonical card with the specified suit and rank.
+		 */
+		return CARDS[((rank+11)%13)*4+suit];
+	}
+	public static BigTwoCard fromOrdinal(int ordinal) {
+		/**
+		 * a method for retrieving the canonical card with the specified ordinal (0-51).
+		 */
+		return CARDS[ordinal];
+	}
+	public int ordinal() {
+		/**
+		 * a method for retrieving the dense index (0-51) of this card in the Big Two order,
+		 * i.e. the adjusted rank * 4 + suit, with diamond 3 being 0 and spade 2 being 51.
+		 */
+		return this.getRank()*4+this.suit;
+	}
 	public int getRank() {
 		/**
 		 * a to get the rank adjusted by the Big Two rule
@@ -32,6 +64,22 @@ public class BigTwoCard extends Card {
 		}
 	}
 	public boolean equals(Object card) {
-		return (this.getRank() == ((BigTwoCard) card).getRank() && this.getSuit() == ((BigTwoCard) card).getSuit());
+		/**
+		 * a method for checking if the specified card is equal to this card.
+		 * As every Big Two card is canonical, cards are equal only if they are identical.
+		 */
+		return this == card;
+	}
+	public int hashCode() {
+		/**
+		 * a method for returning a perfect hash code of this card.
+		 */
+		return this.ordinal();
+	}
+	private Object readResolve() {
+		/**
+		 * a method for replacing a deserialized card with its canonical instance.
+		 */
+		return CARDS[this.ordinal()];
 	}
 }
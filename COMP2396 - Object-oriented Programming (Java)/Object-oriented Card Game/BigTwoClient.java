@@ -15,8 +15,14 @@ public class BigTwoClient implements NetworkGame {
 	private BigTwoGUI gui;
 	/** a socket connection to the game server*/
 	private Socket sock;
-	/** an ObjectOutputStream for sending messages to the server.*/
-	private ObjectOutputStream oos;
+	/** an ObjectOutputStream for sending messages to the server with the legacy protocol, reset every few messages.*/
+	private ManagedObjectOutputStream oos;
+	/** a DataOutputStream for sending frames to the server with the framed protocol.*/
+	private DataOutputStream dos;
+	/** the codec of the framed protocol, or null for the legacy protocol (a Java object stream).*/
+	private MessageCodec codec;
+	/** the names of the protocols which can be chosen when connecting.*/
+	private static final String[] PROTOCOLS = { "Binary", "Serialized", "Legacy" };
 	/** an integer specifying the playerID (i.e., index) of the local player*/
 	private int playerID;
 	/** a string specifying the name of the local player.*/
@@ -27,6 +33,8 @@ public class BigTwoClient implements NetworkGame {
 	private int serverPort;
 	/** a boolean indicating the game state.*/
 	private Boolean gameStarted;
+	/** a boolean indicating whether the moves are checked by the game server.*/
+	private boolean serverChecked;
 	// Constructor
 	/**
 	 * a constructor for creating a Big Two client.
@@ -44,8 +52,10 @@ public class BigTwoClient implements NetworkGame {
 	 * an inner class that implements the Runnable interface to handle server socket input.
 	 */
 	public class ServerHandler implements Runnable {
-		/** ObjectInputStream of the server socket*/
+		/** ObjectInputStream of the server socket with the legacy protocol*/
 		private ObjectInputStream ois;
+		/** DataInputStream of the server socket with the framed protocol*/
+		private DataInputStream dis;
 		// constructor
 		/**
 		 * Creates and returns an instance of the ServerHandler class.
@@ -53,8 +63,11 @@ public class BigTwoClient implements NetworkGame {
 		 */
 		public ServerHandler(Socket serverSocket) {
 			try {
-				// creates an ObjectInputStream of the server socket
-				ois = new ObjectInputStream(sock.getInputStream());
+				// creates an ObjectInputStream or a DataInputStream of the server socket
+				if (codec == null)
+					ois = new ObjectInputStream(sock.getInputStream());
+				else
+					dis = new DataInputStream(new BufferedInputStream(sock.getInputStream()));
 			} catch (Exception ex) {
 				ex.printStackTrace();
 			}
@@ -67,7 +80,7 @@ public class BigTwoClient implements NetworkGame {
 			CardGameMessage message;
 			try {
 				// waits for messages from the client
-				while ((message = (CardGameMessage) ois.readObject()) != null) {
+				while ((message = readMessage()) != null) {
 					parseMessage(message);
 					gui.repaint();
 				} // close while
@@ -75,6 +88,15 @@ public class BigTwoClient implements NetworkGame {
 				ex.printStackTrace();
 			}
 		}
+		/**
+		 * a method for reading the next message from the server.
+		 * @return the message read
+		 */
+		private CardGameMessage readMessage() throws Exception {
+			if (codec == null)
+				return (CardGameMessage) ois.readObject();
+			return MessageFrame.read(dis, codec);
+		}
 	}
 	// Methods
 	/**
@@ -100,6 +122,21 @@ public class BigTwoClient implements NetworkGame {
 		int port = Integer.parseInt(JOptionPane.showInputDialog("Please enter server port","2396"));
 		setServerPort(port);
 	}
+	/**
+	 * a method to prompt player to choose the protocol spoken with the server.
+	 * The binary codec is the most compact; the legacy protocol is for servers
+	 * which only accept a Java object stream.
+	 */
+	public void promptProtocol() {
+		Object protocol = JOptionPane.showInputDialog(null, "Please choose protocol", "Protocol",
+				JOptionPane.QUESTION_MESSAGE, null, PROTOCOLS, PROTOCOLS[0]);
+		if (PROTOCOLS[2].equals(protocol))
+			codec = null;
+		else if (PROTOCOLS[1].equals(protocol))
+			codec = new SerializedCodec();
+		else
+			codec = new BinaryCodec(BigTwoDeck::new);
+	}
 	/**
 	 * a method for getting the playerID (i.e., index) of the local player.
 	 */
@@ -160,19 +197,27 @@ public class BigTwoClient implements NetworkGame {
 	/**
 	 * a method for making a socket connection with the game server. 
 	 * Upon successful connection, 
-	 * (i) create an ObjectOutputStream for sending messages to the game server; 
+	 * (i) create an ObjectOutputStream (or send the preamble of the framed protocol) for sending
+	 * messages to the game server; 
 	 * (ii) create a new thread for receiving messages from the game server.
 	 */
 	@Override
 	public void connect() {
 		promptServerIP();
 		promptServerPort();
+		promptProtocol();
 		try {
 			sock = new Socket(serverIP,serverPort);
 			//(i) create an ObjectOutputStream for sending messages to the game server; 
-			oos = new ObjectOutputStream(sock.getOutputStream());
-			//(ii) create a new thread for receiving messages from the game server.
-			Thread t = new Thread(new ServerHandler(sock));
+			if (codec == null) {
+				oos = new ManagedObjectOutputStream(sock.getOutputStream());
+			} else {
+				dos = new DataOutputStream(new BufferedOutputStream(sock.getOutputStream()));
+				dos.writeInt(MessageFrame.getPreamble(codec));
+				dos.flush();
+			}
+			//(ii) create a new thread for receiving messages from the game server, which is a virtual thread if chosen (see ThreadFactories).
+			Thread t = ThreadFactories.forConnections().newThread(new ServerHandler(sock));
 			t.start();
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -189,6 +234,11 @@ public class BigTwoClient implements NetworkGame {
 		// parses the message based on its type
 		switch (message.getType()) {
 		case CardGameMessage.PLAYER_LIST:
+			// a new table is joined, so the game (if any) cannot go on
+			if (Boolean.TRUE.equals(gameStarted)) {
+				gameStarted = false;
+				game.reset();
+			}
 			// set playerID as assigned by server
 			setPlayerID(playerID);
 			// set playerList received from server
@@ -210,7 +260,7 @@ public class BigTwoClient implements NetworkGame {
 			break;
 		case CardGameMessage.FULL:
 			// print full on GUI
-			printFull();
+			printFull(data);
 			break;
 		case CardGameMessage.QUIT:
 			// remove player from playerList 
@@ -224,17 +274,44 @@ public class BigTwoClient implements NetworkGame {
 			}
 			break;
 		case CardGameMessage.START:
-			// start game with the shuffled deck from server
-			startGame((Deck) data);
+			// start game with the cards dealt by server,
+			// or with the shuffled deck from server
+			if (data instanceof CardGameDeal)
+				startGame((CardGameDeal) data);
+			else
+				startGame((Deck) data);
 			break;
 		case CardGameMessage.MOVE:
-			// check player's move received from server
-			checkMove(playerID, (int[]) data);
+			// make player's move accepted by server,
+			// or check player's move received from server
+			if (serverChecked)
+				applyMove(playerID, (CardList) data);
+			else
+				checkMove(playerID, (int[]) data);
+			break;
+		case CardGameMessage.REJECT:
+			// the server rejected the local player's move
+			gui.printMsg("Not a legal move!!!\n");
 			break;
 		case CardGameMessage.MSG:
 			// print player's message on chat room
 			printChat(playerID, (String) data);
 			break;
+		case CardGameMessage.TABLE_LIST:
+			// print the tables of the server
+			printTableList(playerID, (int[]) data);
+			break;
+		case CardGameMessage.SNAPSHOT:
+			// the local player fell behind, so the state of the table
+			// is replaced with the snapshot from server
+			resync(playerID, (CardGameSnapshot) data);
+			break;
+		case CardGameMessage.PING:
+			// reply to the heartbeat of server, so that the connection is kept
+			sendMessage(new CardGameMessage(CardGameMessage.PONG, -1, null));
+			break;
+		case CardGameMessage.PONG:
+			break;
 		default:
 			System.out.println("Wrong message type: " + message.getType());
 			// invalid message
@@ -242,13 +319,18 @@ public class BigTwoClient implements NetworkGame {
 		}
 	}
 	/**
-	 * a method for sending the specified message to the game server. 
+	 * a method for sending the specified message to the game server. It is
+	 * synchronized, as the thread receiving messages replies to a PING while
+	 * the GUI may be sending a move or a chat message on the same stream.
 	 */
 	@Override
-	public void sendMessage(GameMessage message) {
+	public synchronized void sendMessage(GameMessage message) {
 		// TODO Auto-generated method stub
 		try {
-			oos.writeObject(message);
+			if (codec == null)
+				oos.writeMessage(message);
+			else
+				MessageFrame.write(dos, message, codec);
 		} catch (Exception e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -271,7 +353,25 @@ public class BigTwoClient implements NetworkGame {
 	 * @param text a String storing the chat message
 	 */
 	public synchronized void sendChat(String text) {
-		sendMessage(new CardGameMessage(CardGameMessage.MSG, -1, text));
+		// lobby commands are sent as lobby messages instead of chat
+		String[] command = text.trim().split("\\s+");
+		if (command[0].equals("/tables")) {
+			sendMessage(new CardGameMessage(CardGameMessage.TABLE_LIST, -1, null));
+		} else if (command[0].equals("/create")) {
+			sendMessage(new CardGameMessage(CardGameMessage.CREATE_TABLE, -1, null));
+		} else if (command[0].equals("/join") && command.length == 2 && command[1].matches("\\d+")) {
+			int tableID;
+			try {
+				tableID = Integer.parseInt(command[1]);
+			} catch (NumberFormatException ex) {
+				// a table ID too large for an int cannot be a table of the server
+				gui.printMsg(String.format("Table %s does not exist.\n", command[1]));
+				return;
+			}
+			sendMessage(new CardGameMessage(CardGameMessage.JOIN_TABLE, -1, tableID));
+		} else {
+			sendMessage(new CardGameMessage(CardGameMessage.MSG, -1, text));
+		}
 	}
 	/**
 	 * a method for sending MOVE message to the server
@@ -294,6 +394,12 @@ public class BigTwoClient implements NetworkGame {
 	private synchronized void checkMove(int playerID, int[] cardIdx) {
 		game.checkMove(playerID,cardIdx);
 	}
+	/**
+	 * a method for making player's move accepted by server on client
+	 */
+	private synchronized void applyMove(int playerID, CardList cards) {
+		game.applyMove(playerID,cards);
+	}
 	/**
 	 * a method for removing player from player list on client
 	 */
@@ -308,13 +414,63 @@ public class BigTwoClient implements NetworkGame {
 	private synchronized void startGame(Deck deck) {
 		gui.printMsg("Game start!!!\n");
 		gameStarted = true;
+		serverChecked = false;
 		game.start(deck);
 	}
+	/**
+	 * a method for starting game on client with the cards dealt to the local player
+	 */
+	private synchronized void startGame(CardGameDeal deal) {
+		gui.printMsg("Game start!!!\n");
+		gameStarted = true;
+		serverChecked = true;
+		game.start(deal);
+	}
+	/**
+	 * a method for replacing the state of the table on client with a snapshot from server
+	 * @param playerID the playerID of the local player
+	 * @param snapshot the state of the table
+	 */
+	private synchronized void resync(int playerID, CardGameSnapshot snapshot) {
+		gui.printMsg("Resynchronized with the server.\n");
+		setPlayerID(playerID);
+		game.setPlayerList(snapshot.getPlayerNames());
+		if (snapshot.getDeal()!=null) {
+			gameStarted = true;
+			serverChecked = true;
+			game.resync(snapshot);
+		}
+		else if (Boolean.TRUE.equals(gameStarted)) {
+			// the game ended or was abandoned while the local player fell behind,
+			// so the local player is asked to get ready for the next game
+			gameStarted = false;
+			game.reset();
+			gui.promptReady("The game has ended while you were behind.\n");
+		}
+	}
 	/**
 	 * a method for printing "server is full" message on client
+	 * @param data the ID of the table which cannot be joined, or null if the server is full
 	 */
-	private synchronized void printFull() {
-		gui.printMsg("Server is full. Cannot join the game.\n");
+	private synchronized void printFull(Object data) {
+		if (data instanceof Integer)
+			gui.printMsg(String.format("Table %d is full or does not exist.\n", (Integer) data));
+		else
+			gui.printMsg("Server is full. Cannot join the game.\n");
+	}
+	/**
+	 * a method for printing the tables of the server on client
+	 * @param tableID the ID of the table of the local player
+	 * @param tables the ID and the number of players of each table in turn
+	 */
+	private synchronized void printTableList(int tableID, int[] tables) {
+		StringBuilder sb = new StringBuilder();
+		for (int i=0;i+1<tables.length;i+=2) {
+			sb.append(String.format("Table %d: %d/4 players%s\n", tables[i], tables[i+1],
+					(tables[i] == tableID) ? " (your table)" : ""));
+		}
+		sb.append("Type /join <table> to join a table, or /create to create one.\n");
+		gui.printMsg(sb.toString());
 	}
 	/**
 	 * a method for printing ready players on client
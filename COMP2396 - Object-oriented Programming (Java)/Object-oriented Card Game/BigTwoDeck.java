@@ -10,7 +10,8 @@ public class BigTwoDeck extends Deck {
 		for (int i = 0; i < 4; i++) {
 			for (int j = 0; j < 13; j++) {
 				// add card from 3-2 according to the Big Two order
-				Card card = new BigTwoCard(i, (j+2)%13);
+				// using the canonical cards, so no card is allocated per deck
+				Card card = BigTwoCard.valueOf(i, (j+2)%13);
 				addCard(card);
 			}
 		}
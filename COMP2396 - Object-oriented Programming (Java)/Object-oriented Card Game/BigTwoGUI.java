@@ -146,6 +146,14 @@ public class BigTwoGUI implements CardGameUI {
 		JOptionPane.showMessageDialog(frame,endMsg,"Game ends",JOptionPane.PLAIN_MESSAGE);
 		client.sendReady();
 	}
+	/** a method for prompting the player to get ready for the next game.
+	 * 
+	 * @param msg the message shown to the player
+	 */
+	public void promptReady(String msg) {
+		JOptionPane.showMessageDialog(frame,msg,"Game ends",JOptionPane.PLAIN_MESSAGE);
+		client.sendReady();
+	}
 	/**  method for prompting the active player to select cards and make his/her move.*/
 	public void promptActivePlayer() {
 		printMsg(game.getPlayerList().get(activePlayer).getName() + "'s turn: \n");
@@ -19,19 +19,41 @@ public class BigTwoServer extends CardGameServer {
 		return new BigTwoDeck(); 
 	}
 	
+	/**
+	 * Creates and returns a headless BigTwo game, which holds the authoritative
+	 * state of the game played by the clients.
+	 * @return a headless instance of the BigTwo class
+	 */
+	public CardGame createGame() {
+		return BigTwo.createHeadless();
+	}
+	
+	/**
+	 * Checks the move made by the specified player with the Big Two rules, and
+	 * makes the move if it is legal.
+	 * @param game the BigTwo game created by createGame()
+	 * @param playerID the playerID of the player who makes the move
+	 * @param cardIdx the indices of the cards selected, or null if pass
+	 * @return true if the move is legal; false otherwise
+	 */
+	public boolean checkMove(CardGame game, int playerID, int[] cardIdx) {
+		return ((BigTwo) game).tryMove(playerID, cardIdx);
+	}
+	
 	/**
 	 * main() method for starting the server.
 	 * 
 	 * @param args
-	 *            the port to be used by the server. The default port 5000 will
-	 *            be used if no arguments has been supplied
+	 *            the port to be used by the server, and the number of event
+	 *            loops handling the connections. The default port 2396 will
+	 *            be used if no arguments has been supplied, and each
+	 *            connection will be handled by a thread of its own if the
+	 *            number of event loops is not supplied
 	 */
 	public static void main(String[] args) {
 		BigTwoServer server = new BigTwoServer();
-		if (args.length > 0) {
-			server.start(Integer.parseInt(args[0]));
-		} else {
-			server.start(2396);
-		}
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : 2396;
+		int numOfEventLoops = (args.length > 1) ? Integer.parseInt(args[1]) : 0;
+		server.start(port, numOfEventLoops);
 	} // main
 }
@@ -0,0 +1,189 @@
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.LongStream;
+
+/**
+ * The BigTwoSimulator class is used to play Big Two games between strategies without any GUI or server.
+ * The games run on headless BigTwo objects, so the rules of checkMove(), composeHand() and endOfGame() apply,
+ * and they are spread over all the cores with a parallel stream.
+ */
+public class BigTwoSimulator {
+	// Instance variables
+	/** the strategies of the four players.*/
+	private final BigTwoStrategy[] strategies;
+	/** the maximum number of moves in a game before it is abandoned.*/
+	private static final int MAX_TURNS = 1000;
+
+	// Constructors
+	/**
+	 * a constructor for creating a simulator.
+	 * @param strategies the strategies of the four players
+	 */
+	public BigTwoSimulator(BigTwoStrategy[] strategies) {
+		this.strategies = strategies.clone();
+	}
+
+	// Methods
+	/**
+	 * a method for playing the specified number of games in parallel.
+	 * @param numOfGames the number of games to be played
+	 * @return the aggregate statistics of the games
+	 */
+	public Stats run(long numOfGames) {
+		return LongStream.range(0, numOfGames).parallel()
+				.collect(Stats::new, (stats, i) -> playGame(stats), Stats::merge);
+	}
+	/**
+	 * a method for playing one game and recording it in the specified statistics.
+	 * @param stats the statistics of the calling thread
+	 */
+	public void playGame(Stats stats) {
+		BigTwo game = BigTwo.createHeadless();
+		game.setPlayerList(new String[] { "Player 0", "Player 1", "Player 2", "Player 3" });
+		BigTwoDeck deck = new BigTwoDeck();
+		deck.shuffle(ThreadLocalRandom.current());
+		game.start(deck);
+
+		long[] moves = stats.moves;
+		int turns = 0;
+		while (game.getWinnerIdx() < 0 && turns < MAX_TURNS) {
+			int playerIdx = game.getCurrentPlayerIdx();
+			int numOfMoves = game.generateMoves(playerIdx, moves);
+			long move = strategies[playerIdx].chooseMove(game, playerIdx, moves, numOfMoves);
+
+			CardList cardsInHand = game.getPlayerList().get(playerIdx).getCardsInHand();
+			int[] cardIdx = (move == MoveGenerator.PASS) ? null : CardSet.indicesOf(cardsInHand, move);
+			if (!game.tryMove(playerIdx, cardIdx)) {
+				// the strategy has chosen a move which is not legal
+				stats.illegalMoves++;
+				break;
+			}
+			turns++;
+			if (move == MoveGenerator.PASS) stats.passes++;
+			else stats.handTypes[HandClassifier.getType(HandClassifier.classify(move))]++;
+		}
+		stats.record(game.getWinnerIdx(), turns);
+	}
+	/**
+	 * a method for running the simulator from the command line.
+	 * @param args the number of games (default 100000), followed by up to four strategy names
+	 *             ("random" or "lowest", default "lowest")
+	 */
+	public static void main(String[] args) {
+		long numOfGames = (args.length > 0) ? Long.parseLong(args[0]) : 100000;
+		BigTwoStrategy[] strategies = new BigTwoStrategy[4];
+		for (int i=0;i<4;i++) {
+			String name = (i+1 < args.length) ? args[i+1] : "lowest";
+			strategies[i] = name.equalsIgnoreCase("random") ? new BigTwoStrategy.RandomStrategy()
+					: new BigTwoStrategy.LowestStrategy();
+		}
+
+		long start = System.nanoTime();
+		Stats stats = new BigTwoSimulator(strategies).run(numOfGames);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("%d games in %.2f s (%.0f games/s) on %d cores%n", stats.games, seconds,
+				stats.games / seconds, Runtime.getRuntime().availableProcessors());
+		System.out.print(stats.toString(strategies));
+	}
+
+	// Inner class
+	/**
+	 * an inner class that accumulates the statistics of the games played by one thread.
+	 * Instances are merged at the end of a run.
+	 */
+	public static class Stats {
+		/** the number of games played.*/
+		long games;
+		/** the number of games abandoned without a winner.*/
+		long unfinished;
+		/** the number of games won by each player.*/
+		long[] wins = new long[4];
+		/** the total, minimum and maximum number of moves in the finished games.*/
+		long totalTurns, minTurns = Long.MAX_VALUE, maxTurns;
+		/** the number of hands played of each type (see HandClassifier).*/
+		long[] handTypes = new long[9];
+		/** the number of passes.*/
+		long passes;
+		/** the number of illegal moves chosen by the strategies.*/
+		long illegalMoves;
+		/** a move buffer reused by all the games of this thread.*/
+		final long[] moves = new long[MoveGenerator.MAX_MOVES];
+
+		/**
+		 * a method for recording the result of a game.
+		 * @param winnerIdx the index of the winner, or -1 if the game was abandoned
+		 * @param turns the number of moves made in the game
+		 */
+		void record(int winnerIdx, int turns) {
+			games++;
+			if (winnerIdx < 0) {
+				unfinished++;
+				return;
+			}
+			wins[winnerIdx]++;
+			totalTurns += turns;
+			minTurns = Math.min(minTurns, turns);
+			maxTurns = Math.max(maxTurns, turns);
+		}
+		/**
+		 * a method for merging the specified statistics into these statistics.
+		 * @param other the statistics of another thread
+		 */
+		void merge(Stats other) {
+			games += other.games;
+			unfinished += other.unfinished;
+			for (int i=0;i<wins.length;i++) wins[i] += other.wins[i];
+			totalTurns += other.totalTurns;
+			minTurns = Math.min(minTurns, other.minTurns);
+			maxTurns = Math.max(maxTurns, other.maxTurns);
+			for (int i=0;i<handTypes.length;i++) handTypes[i] += other.handTypes[i];
+			passes += other.passes;
+			illegalMoves += other.illegalMoves;
+		}
+		/**
+		 * a method for returning the number of games played.
+		 * @return the number of games played
+		 */
+		public long getGames() {
+			return games;
+		}
+		/**
+		 * a method for returning the win rate of the specified player.
+		 * @param playerIdx the index of the player
+		 * @return the fraction of the games won by the player
+		 */
+		public double getWinRate(int playerIdx) {
+			return (games == 0) ? 0 : (double) wins[playerIdx] / games;
+		}
+		/**
+		 * a method for returning the average number of moves in the finished games.
+		 * @return the average game length
+		 */
+		public double getAverageTurns() {
+			long finished = games - unfinished;
+			return (finished == 0) ? 0 : (double) totalTurns / finished;
+		}
+		/**
+		 * a method for returning a report of these statistics.
+		 * @param strategies the strategies of the players
+		 * @return a string representation of the statistics
+		 */
+		public String toString(BigTwoStrategy[] strategies) {
+			StringBuilder sb = new StringBuilder();
+			for (int i=0;i<4;i++) {
+				sb.append(String.format("Player %d (%s): win rate %.4f%n", i, strategies[i], getWinRate(i)));
+			}
+			sb.append(String.format("Game length: avg %.2f, min %d, max %d moves%n", getAverageTurns(),
+					(minTurns == Long.MAX_VALUE) ? 0 : minTurns, maxTurns));
+			long played = passes;
+			for (long n : handTypes) played += n;
+			for (int type=HandClassifier.SINGLE;type<handTypes.length;type++) {
+				sb.append(String.format("%-13s %10d (%.4f)%n", HandClassifier.getTypeName(type), handTypes[type],
+						(played == 0) ? 0 : (double) handTypes[type] / played));
+			}
+			sb.append(String.format("%-13s %10d (%.4f)%n", "Pass", passes, (played == 0) ? 0 : (double) passes / played));
+			sb.append(String.format("Unfinished games: %d, illegal moves: %d%n", unfinished, illegalMoves));
+			return sb.toString();
+		}
+	}
+}
@@ -0,0 +1,59 @@
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The BigTwoStrategy interface is used to model a strategy choosing the moves of a player in a Big Two card game,
+ * e.g. for the bots in BigTwoSimulator.
+ */
+public interface BigTwoStrategy {
+	/**
+	 * a method for choosing a move among the legal moves of the player.
+	 * Implementations may be shared by many games running in parallel, so they should not keep any state.
+	 * @param game the Big Two card game
+	 * @param playerIdx the index of the player to move
+	 * @param moves the legal moves of the player, as generated by MoveGenerator
+	 * @param numOfMoves the number of legal moves
+	 * @return the chosen move, which is one of the legal moves
+	 */
+	public long chooseMove(BigTwo game, int playerIdx, long[] moves, int numOfMoves);
+
+	/**
+	 * The RandomStrategy class plays a random legal move.
+	 */
+	public static class RandomStrategy implements BigTwoStrategy {
+		@Override
+		public long chooseMove(BigTwo game, int playerIdx, long[] moves, int numOfMoves) {
+			return moves[ThreadLocalRandom.current().nextInt(numOfMoves)];
+		}
+		@Override
+		public String toString() {
+			return "Random";
+		}
+	}
+
+	/**
+	 * The LowestStrategy class plays the weakest legal hand, preferring five-card combos, then triples,
+	 * pairs and singles when leading, and passes only if it cannot play.
+	 */
+	public static class LowestStrategy implements BigTwoStrategy {
+		@Override
+		public long chooseMove(BigTwo game, int playerIdx, long[] moves, int numOfMoves) {
+			long best = MoveGenerator.PASS;
+			int bestKey = Integer.MAX_VALUE;
+			for (int i=0;i<numOfMoves;i++) {
+				if (moves[i] == MoveGenerator.PASS) continue;
+				int strength = HandClassifier.getStrength(HandClassifier.classify(moves[i]));
+				// more cards first, then the lowest strength
+				int key = ((8 - Long.bitCount(moves[i])) << 16) | strength;
+				if (key < bestKey) {
+					bestKey = key;
+					best = moves[i];
+				}
+			}
+			return best;
+		}
+		@Override
+		public String toString() {
+			return "Lowest";
+		}
+	}
+}
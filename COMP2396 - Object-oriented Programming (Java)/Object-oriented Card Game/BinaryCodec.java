@@ -0,0 +1,345 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.function.Supplier;
+
+/**
+ * This class is used to encode the messages of the card game in a compact
+ * binary form: one byte for the type, one byte for the playerID, and then a
+ * payload depending on the type.
+ * <ul>
+ * <li>A string is a boolean telling if it is not null, followed by the string
+ * in modified UTF-8 (see DataOutputStream.writeUTF()).</li>
+ * <li>The indices of the cards of a move are a 64-bit mask, where bit i is set
+ * if the card at index i is selected; a pass is an empty mask. The cards of a
+ * move broadcast by a server dealing the cards are a mask with bit 63 set,
+ * where bit suit * 13 + rank is set for each card.</li>
+ * <li>A deck is the number of cards followed by one byte per card, which is
+ * suit * 13 + rank.</li>
+ * <li>A deal (a START message with a playerID) is the cards of the player as
+ * a deck, the number of players, one byte per player for the number of cards,
+ * and one byte for the index of the player who moves first.</li>
+ * <li>A snapshot is the names of the players, a boolean telling if a game is
+ * being played followed by the deal of the player if it is, the index of the
+ * player of the last hand on the table, and the cards of the hand as a deck
+ * (no cards if there is none).</li>
+ * </ul>
+ */
+public class BinaryCodec implements MessageCodec {
+	// the number of bytes in the header of a message
+	private static final int HEADER_LENGTH = 2;
+	// the bit telling that the mask of a move holds cards instead of indices
+	private static final long CARDS_BIT = 1L << 63;
+	// the factory of the decks decoded
+	private final Supplier<Deck> deckFactory;
+
+	/**
+	 * Creates and returns an instance of the BinaryCodec class.
+	 *
+	 * @param deckFactory
+	 *            the factory of the decks decoded, which tells the type of the
+	 *            cards in a START message
+	 */
+	public BinaryCodec(Supplier<Deck> deckFactory) {
+		this.deckFactory = deckFactory;
+	}
+
+	@Override
+	public int getId() {
+		return BINARY;
+	}
+
+	@Override
+	public void encode(GameMessage message, DataOutputStream out) throws IOException {
+		int type = message.getType();
+		int playerID = message.getPlayerID();
+		Object data = message.getData();
+		// the ID of a table may not fit in a byte, so it goes in the payload
+		boolean tableList = (type == CardGameMessage.TABLE_LIST && data != null);
+		if (!tableList && (playerID < Byte.MIN_VALUE || playerID > Byte.MAX_VALUE)) {
+			throw new IllegalArgumentException("playerID out of range: " + playerID);
+		}
+		out.writeByte(type);
+		out.writeByte(tableList ? -1 : playerID);
+
+		switch (type) {
+		case CardGameMessage.PLAYER_LIST:
+			String[] names = (String[]) data;
+			out.writeByte(names.length);
+			for (String name : names) {
+				writeString(out, name);
+			}
+			break;
+		case CardGameMessage.JOIN:
+		case CardGameMessage.QUIT:
+		case CardGameMessage.MSG:
+			writeString(out, (String) data);
+			break;
+		case CardGameMessage.FULL:
+			if (data != null) {
+				out.writeInt((Integer) data);
+			}
+			break;
+		case CardGameMessage.READY:
+		case CardGameMessage.CREATE_TABLE:
+		case CardGameMessage.PING:
+		case CardGameMessage.PONG:
+			break;
+		case CardGameMessage.START:
+			if (data instanceof CardGameDeal) {
+				writeDeal(out, (CardGameDeal) data);
+			} else {
+				writeCards(out, (Deck) data);
+			}
+			break;
+		case CardGameMessage.MOVE:
+		case CardGameMessage.REJECT:
+			long mask = 0L;
+			if (data instanceof CardList) {
+				CardList cards = (CardList) data;
+				mask = CARDS_BIT;
+				for (int i = 0; i < cards.size(); i++) {
+					mask |= 1L << (cards.getCard(i).getSuit() * 13 + cards.getCard(i).getRank());
+				}
+			} else if (data != null) {
+				for (int idx : (int[]) data) {
+					if (idx >= 0 && idx < Long.SIZE - 1) {
+						mask |= 1L << idx;
+					}
+				}
+			}
+			out.writeLong(mask);
+			break;
+		case CardGameMessage.TABLE_LIST:
+			if (tableList) {
+				int[] tables = (int[]) data;
+				out.writeInt(playerID);
+				out.writeInt(tables.length);
+				for (int value : tables) {
+					out.writeInt(value);
+				}
+			}
+			break;
+		case CardGameMessage.JOIN_TABLE:
+			out.writeInt((Integer) data);
+			break;
+		case CardGameMessage.SNAPSHOT:
+			writeSnapshot(out, (CardGameSnapshot) data);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown message type: " + type);
+		}
+	}
+
+	@Override
+	public CardGameMessage decode(DataInputStream in, int length) throws IOException {
+		if (length < HEADER_LENGTH) {
+			throw new StreamCorruptedException("Message too short: " + length);
+		}
+		int type = in.readUnsignedByte();
+		int playerID = in.readByte();
+		boolean hasPayload = (length > HEADER_LENGTH);
+		Object data = null;
+
+		switch (type) {
+		case CardGameMessage.PLAYER_LIST:
+			String[] names = new String[in.readUnsignedByte()];
+			for (int i = 0; i < names.length; i++) {
+				names[i] = readString(in);
+			}
+			data = names;
+			break;
+		case CardGameMessage.JOIN:
+		case CardGameMessage.QUIT:
+		case CardGameMessage.MSG:
+			data = readString(in);
+			break;
+		case CardGameMessage.FULL:
+			if (hasPayload) {
+				data = in.readInt();
+			}
+			break;
+		case CardGameMessage.READY:
+		case CardGameMessage.CREATE_TABLE:
+		case CardGameMessage.PING:
+		case CardGameMessage.PONG:
+			break;
+		case CardGameMessage.START:
+			if (playerID >= 0) {
+				data = readDeal(in, playerID);
+			} else {
+				Deck deck = deckFactory.get();
+				deck.removeAllCards();
+				readCards(in, deck);
+				data = deck;
+			}
+			break;
+		case CardGameMessage.MOVE:
+		case CardGameMessage.REJECT:
+			long mask = in.readLong();
+			if ((mask & CARDS_BIT) != 0L) {
+				Card[] table = cardTable();
+				CardList cards = new CardList();
+				for (long bits = mask & ~CARDS_BIT; bits != 0L; bits &= bits - 1) {
+					int index = Long.numberOfTrailingZeros(bits);
+					if (index >= table.length || table[index] == null) {
+						throw new StreamCorruptedException("Invalid card: " + index);
+					}
+					cards.addCard(table[index]);
+				}
+				data = cards;
+			} else if (mask != 0L) {
+				int[] cardIdx = new int[Long.bitCount(mask)];
+				for (int i = 0; i < cardIdx.length; i++) {
+					cardIdx[i] = Long.numberOfTrailingZeros(mask);
+					mask &= mask - 1;
+				}
+				data = cardIdx;
+			}
+			break;
+		case CardGameMessage.TABLE_LIST:
+			if (hasPayload) {
+				playerID = in.readInt();
+				int count = in.readInt();
+				if (count < 0 || count > (length - HEADER_LENGTH) / 4) {
+					throw new StreamCorruptedException("Invalid table list length: " + count);
+				}
+				int[] tables = new int[count];
+				for (int i = 0; i < count; i++) {
+					tables[i] = in.readInt();
+				}
+				data = tables;
+			}
+			break;
+		case CardGameMessage.JOIN_TABLE:
+			data = in.readInt();
+			break;
+		case CardGameMessage.SNAPSHOT:
+			data = readSnapshot(in, playerID);
+			break;
+		default:
+			throw new StreamCorruptedException("Unknown message type: " + type);
+		}
+		return new CardGameMessage(type, playerID, data);
+	}
+
+	/**
+	 * Returns the cards of a new deck indexed by suit * 13 + rank, so that the
+	 * cards decoded are of the type used by the game.
+	 */
+	private Card[] cardTable() {
+		Deck deck = deckFactory.get();
+		Card[] cards = new Card[52];
+		for (int i = 0; i < deck.size(); i++) {
+			Card card = deck.getCard(i);
+			cards[card.getSuit() * 13 + card.getRank()] = card;
+		}
+		return cards;
+	}
+
+	/**
+	 * Writes the number of the specified cards and the cards to the specified
+	 * stream.
+	 */
+	private static void writeCards(DataOutputStream out, CardList cards) throws IOException {
+		out.writeByte(cards.size());
+		for (int i = 0; i < cards.size(); i++) {
+			Card card = cards.getCard(i);
+			out.writeByte(card.getSuit() * 13 + card.getRank());
+		}
+	}
+
+	/**
+	 * Reads cards written by writeCards() from the specified stream, and adds
+	 * them to the specified list in the order they are read.
+	 */
+	private void readCards(DataInputStream in, CardList cards) throws IOException {
+		Card[] table = cardTable();
+		int size = in.readUnsignedByte();
+		for (int i = 0; i < size; i++) {
+			int index = in.readUnsignedByte();
+			if (index >= table.length || table[index] == null) {
+				throw new StreamCorruptedException("Invalid card: " + index);
+			}
+			cards.addCard(table[index]);
+		}
+	}
+
+	/**
+	 * Writes the specified deal to the specified stream.
+	 */
+	private static void writeDeal(DataOutputStream out, CardGameDeal deal) throws IOException {
+		writeCards(out, deal.getCards());
+		int[] numOfCards = deal.getNumOfCards();
+		out.writeByte(numOfCards.length);
+		for (int n : numOfCards) {
+			out.writeByte(n);
+		}
+		out.writeByte(deal.getCurrentPlayerIdx());
+	}
+
+	/**
+	 * Reads a deal of the specified player from the specified stream.
+	 */
+	private CardGameDeal readDeal(DataInputStream in, int playerIdx) throws IOException {
+		CardList cards = new CardList();
+		readCards(in, cards);
+		int[] numOfCards = new int[in.readUnsignedByte()];
+		for (int i = 0; i < numOfCards.length; i++) {
+			numOfCards[i] = in.readUnsignedByte();
+		}
+		return new CardGameDeal(playerIdx, cards, numOfCards, in.readByte());
+	}
+
+	/**
+	 * Writes the specified snapshot to the specified stream.
+	 */
+	private static void writeSnapshot(DataOutputStream out, CardGameSnapshot snapshot)
+			throws IOException {
+		String[] names = snapshot.getPlayerNames();
+		out.writeByte(names.length);
+		for (String name : names) {
+			writeString(out, name);
+		}
+		out.writeBoolean(snapshot.getDeal() != null);
+		if (snapshot.getDeal() != null) {
+			writeDeal(out, snapshot.getDeal());
+		}
+		out.writeByte(snapshot.getLastPlayerIdx());
+		writeCards(out, (snapshot.getLastHand() != null) ? snapshot.getLastHand() : new CardList());
+	}
+
+	/**
+	 * Reads a snapshot sent to the specified player from the specified stream.
+	 */
+	private CardGameSnapshot readSnapshot(DataInputStream in, int playerIdx) throws IOException {
+		String[] names = new String[in.readUnsignedByte()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = readString(in);
+		}
+		CardGameDeal deal = in.readBoolean() ? readDeal(in, playerIdx) : null;
+		int lastPlayerIdx = in.readByte();
+		CardList lastHand = new CardList();
+		readCards(in, lastHand);
+		return new CardGameSnapshot(names, deal, lastPlayerIdx,
+				lastHand.isEmpty() ? null : lastHand);
+	}
+
+	/**
+	 * Writes the specified string, which may be null, to the specified stream.
+	 */
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) {
+			out.writeUTF(s);
+		}
+	}
+
+	/**
+	 * Reads a string, which may be null, from the specified stream.
+	 */
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+}
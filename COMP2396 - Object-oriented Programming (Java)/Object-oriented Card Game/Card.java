@@ -99,11 +99,12 @@ public class Card implements Comparable<Card>, Serializable {
 	}
 
 	/**
-	 * Returns a hash code value for the card.
+	 * Returns a hash code value for the card. The hash code is distinct for each
+	 * of the 52 cards.
 	 * 
 	 * @return a hash code value for the card
 	 */
 	public int hashCode() {
-		return rank;
+		return suit * 13 + rank;
 	}
 }
@@ -0,0 +1,74 @@
+import java.io.Serializable;
+
+/**
+ * This class is used to model the cards dealt to one player of a network card
+ * game. The server keeps the full deal, and sends each player only the cards
+ * dealt to this player and the number of cards dealt to each player, so that
+ * a client cannot see the cards of the other players.
+ */
+public class CardGameDeal implements Serializable {
+	private static final long serialVersionUID = 3519780185529614081L;
+	private int playerIdx; // the index of the player receiving this deal
+	private CardList cards; // the cards dealt to the player
+	private int[] numOfCards; // the number of cards dealt to each player
+	private int currentPlayerIdx; // the index of the player who moves first
+
+	/**
+	 * Creates and returns an instance of the CardGameDeal class.
+	 *
+	 * @param playerIdx
+	 *            the index of the player receiving this deal
+	 * @param cards
+	 *            the cards dealt to the player, which are copied
+	 * @param numOfCards
+	 *            the number of cards dealt to each player
+	 * @param currentPlayerIdx
+	 *            the index of the player who moves first
+	 */
+	public CardGameDeal(int playerIdx, CardList cards, int[] numOfCards,
+			int currentPlayerIdx) {
+		this.playerIdx = playerIdx;
+		this.cards = new CardList();
+		for (int i = 0; i < cards.size(); i++) {
+			this.cards.addCard(cards.getCard(i));
+		}
+		this.numOfCards = numOfCards.clone();
+		this.currentPlayerIdx = currentPlayerIdx;
+	}
+
+	/**
+	 * Returns the index of the player receiving this deal.
+	 *
+	 * @return the index of the player receiving this deal
+	 */
+	public int getPlayerIdx() {
+		return playerIdx;
+	}
+
+	/**
+	 * Returns the cards dealt to the player receiving this deal.
+	 *
+	 * @return the cards dealt to the player
+	 */
+	public CardList getCards() {
+		return cards;
+	}
+
+	/**
+	 * Returns the number of cards dealt to each player.
+	 *
+	 * @return an array holding the number of cards dealt to each player
+	 */
+	public int[] getNumOfCards() {
+		return numOfCards;
+	}
+
+	/**
+	 * Returns the index of the player who moves first.
+	 *
+	 * @return the index of the player who moves first
+	 */
+	public int getCurrentPlayerIdx() {
+		return currentPlayerIdx;
+	}
+}
@@ -0,0 +1,800 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is used to model a gateway in front of a number of card game
+ * servers (the nodes), so that the tables are spread over several processes.
+ * The clients connect to the gateway as they would to a server. The gateway
+ * seats them at tables of its own, each client at the lowest table with a free
+ * seat, and routes each table to a node by consistent hashing of the table ID
+ * (see ConsistentHashRing), so that the clients of a table meet at the same
+ * node. The seat of a client is given back once its connection is closed, or
+ * if it cannot be routed, so that the next client takes it and the table of
+ * the node is not left waiting for a client which has gone.
+ * <p>
+ * A client is routed by opening a connection to its node, sending a header of
+ * the node protocol naming the table (see NodeProtocol), and relaying the
+ * bytes of the client and of the node as they are, in both directions. The
+ * gateway does not decode the messages, so it relays the framed protocol and
+ * the object streams of the legacy clients alike, at the cost of copying the
+ * bytes. The connections are non-blocking and relayed by a few event loops
+ * (see RelayLoop), so a client takes no thread of the gateway.
+ * <p>
+ * The health of each node is checked every HEALTH_INTERVAL milliseconds with
+ * the node protocol. A node which fails FAILURE_THRESHOLD checks in a row, or
+ * cannot be connected to, is taken off the ring, and the connections to it are
+ * closed. Their seats are given back, and the clients which connect again are
+ * seated as new clients, at tables routed to the nodes which are up. A node is
+ * put back on the ring once it passes a check. A table stays with its node for
+ * as long as it has clients.
+ * <p>
+ * The nodes may run as separate processes on the same machine, e.g.,
+ *
+ * <pre>
+ * java BigTwoServer 2401 1 &amp;
+ * java BigTwoServer 2402 1 &amp;
+ * java CardGameGateway 2396 localhost:2401 localhost:2402
+ * </pre>
+ */
+public class CardGameGateway {
+	// The number of points of each node on the ring
+	public static final int NUM_OF_VIRTUAL_NODES = 128;
+	// The time between the health checks of a node, in milliseconds
+	public static final long HEALTH_INTERVAL = 1000;
+	// The time given to a node to connect and reply, in milliseconds
+	public static final int HEALTH_TIMEOUT = 1000;
+	// The number of failed health checks in a row after which a node is
+	// taken off the ring
+	public static final int FAILURE_THRESHOLD = 2;
+	// The size of the buffer of each direction of a relay, in bytes
+	public static final int RELAY_BUFFER_SIZE = 8192;
+	// The default number of event loops relaying the connections
+	public static final int DEFAULT_NUM_OF_RELAY_LOOPS = Runtime.getRuntime()
+			.availableProcessors();
+	// The duration of a tick of the timer, in milliseconds
+	private static final long TIMER_TICK = 100;
+	// The number of ticks of a turn of the timer
+	private static final int TIMER_TICKS_PER_WHEEL = 64;
+	// Flag for silent mode (prevents printing the stack trace)
+	boolean silentMode = true;
+	// The maximum number of players in a card game
+	private final int maxNumOfPlayers;
+	// The nodes behind this gateway
+	private final List<Node> nodes = new ArrayList<Node>();
+	// The ring of the nodes which are up
+	private final ConsistentHashRing<Node> ring = new ConsistentHashRing<Node>(
+			NUM_OF_VIRTUAL_NODES);
+	// The tables with clients and a free seat by their IDs, guarded by this
+	// gateway
+	private final TreeMap<Integer, Table> openTables = new TreeMap<Integer, Table>();
+	// The ID of the next table created, guarded by this gateway
+	private int nextTableID = 0;
+	// The timer of the health checks and of the connections to the nodes
+	private final HashedWheelTimer timer = new HashedWheelTimer("Health",
+			TIMER_TICK, TIMER_TICKS_PER_WHEEL);
+	// The threads of the health checks, which may block on a node
+	private final ExecutorService healthPool = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "HealthCheck");
+		t.setDaemon(true);
+		return t;
+	});
+	// the metrics of this gateway
+	private final ServerMetrics metrics = new ServerMetrics();
+	// the number of clients routed to a node
+	private final LongAdder routed = metrics.counter("gateway.routed");
+	// the number of clients closed as no node is up
+	private final LongAdder unroutable = metrics.counter("gateway.unroutable");
+	// the number of bytes relayed in both directions
+	private final LongAdder bytesRelayed = metrics.counter("gateway.bytesRelayed");
+	// the number of times a node is taken off the ring
+	private final LongAdder nodeFailures = metrics.counter("gateway.nodeFailures");
+	// the number of times a node is put back on the ring
+	private final LongAdder nodeRecoveries = metrics.counter("gateway.nodeRecoveries");
+
+	/**
+	 * Creates and returns an instance of the CardGameGateway class, with all
+	 * the nodes on the ring until their health is checked.
+	 *
+	 * @param maxNumOfPlayers
+	 *            the maximum number of players in a card game
+	 * @param addresses
+	 *            the addresses of the nodes
+	 */
+	public CardGameGateway(int maxNumOfPlayers, List<InetSocketAddress> addresses) {
+		if (addresses.isEmpty()) {
+			throw new IllegalArgumentException("No nodes");
+		}
+		this.maxNumOfPlayers = maxNumOfPlayers;
+		for (InetSocketAddress address : addresses) {
+			Node node = new Node(nodes.size(), address);
+			nodes.add(node);
+			ring.add(node, node.name);
+			String prefix = "node." + node.nodeID + ".";
+			metrics.gauge(prefix + "up", () -> node.up ? 1 : 0);
+			metrics.gauge(prefix + "load", () -> node.load);
+			metrics.gauge(prefix + "connections", () -> node.relays.size());
+		}
+		metrics.gauge("gateway.connections", () -> {
+			long sum = 0;
+			for (Node node : nodes) {
+				sum += node.relays.size();
+			}
+			return sum;
+		});
+		metrics.gauge("gateway.nodesUp", ring::getNumOfNodes);
+		metrics.gauge("gateway.openTables", this::getNumOfOpenTables);
+		for (Node node : nodes) {
+			timer.schedule(node.healthTimer, 0);
+		}
+	}
+
+	/**
+	 * Returns the metrics of this gateway.
+	 *
+	 * @return the metrics of this gateway
+	 */
+	public ServerMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Starts the gateway at the specified port, with
+	 * DEFAULT_NUM_OF_RELAY_LOOPS event loops.
+	 *
+	 * @param port
+	 *            the specified port at which the gateway starts
+	 */
+	public void start(int port) {
+		start(port, DEFAULT_NUM_OF_RELAY_LOOPS);
+	}
+
+	/**
+	 * Starts the gateway at the specified port, with the specified number of
+	 * event loops relaying the connections. The connections are accepted in
+	 * blocking mode and passed to the event loops in turn.
+	 *
+	 * @param port
+	 *            the specified port at which the gateway starts
+	 * @param numOfRelayLoops
+	 *            the number of event loops
+	 */
+	public void start(int port, int numOfRelayLoops) {
+		try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+			serverChannel.bind(new InetSocketAddress(port), 1024);
+			RelayLoop[] relayLoops = new RelayLoop[Math.max(numOfRelayLoops, 1)];
+			for (int i = 0; i < relayLoops.length; i++) {
+				relayLoops[i] = new RelayLoop();
+				new Thread(relayLoops[i], "RelayLoop-" + i).start();
+			}
+			println("Starts up the gateway at localhost:"
+					+ serverChannel.socket().getLocalPort() + " with "
+					+ nodes.size() + " nodes and " + relayLoops.length
+					+ " event loops");
+			int next = 0;
+			while (true) {
+				// waits for clients to connect
+				SocketChannel clientChannel = serverChannel.accept();
+				relayLoops[next].route(clientChannel, takeSeat());
+				next = (next + 1) % relayLoops.length;
+			}
+		} catch (Exception ex) {
+			println("Error in starting up the gateway at localhost:" + port);
+			if (!silentMode) ex.printStackTrace();
+		}
+	}
+
+	/**
+	 * Seats a new client at the lowest table with a free seat, or at a new
+	 * table if there is none. A table whose node is down is passed over, as
+	 * its clients are being closed.
+	 *
+	 * @return the table of the client
+	 */
+	private synchronized Table takeSeat() {
+		Table table = null;
+		for (Table t : openTables.values()) {
+			if (t.node == null || t.node.up) {
+				table = t;
+				break;
+			}
+		}
+		if (table == null) {
+			table = new Table(nextTableID);
+			nextTableID = (nextTableID == Integer.MAX_VALUE) ? 0
+					: nextTableID + 1;
+			openTables.put(table.tableID, table);
+		}
+		if (++table.numOfClients == maxNumOfPlayers) {
+			openTables.remove(table.tableID);
+		}
+		return table;
+	}
+
+	/**
+	 * Gives back the seat of a client at the specified table, so that the
+	 * next client takes it. A table without clients is dropped.
+	 *
+	 * @param table
+	 *            the table of the client
+	 */
+	private synchronized void leaveSeat(Table table) {
+		if (--table.numOfClients == 0) {
+			openTables.remove(table.tableID);
+		} else {
+			openTables.put(table.tableID, table);
+		}
+	}
+
+	/**
+	 * Returns the node of the specified table, which is the node the table is
+	 * routed to while it is up, or else the node of the table on the ring.
+	 *
+	 * @param table
+	 *            the table
+	 * @return the node of the table, or null if no node is up
+	 */
+	private synchronized Node nodeOf(Table table) {
+		if (table.node == null || !table.node.up) {
+			table.node = ring.get(table.tableID);
+		}
+		return table.node;
+	}
+
+	/**
+	 * Returns the number of tables with clients and a free seat.
+	 *
+	 * @return the number of tables with clients and a free seat
+	 */
+	private synchronized int getNumOfOpenTables() {
+		return openTables.size();
+	}
+
+	/**
+	 * Closes the specified channel, ignoring any error.
+	 *
+	 * @param channel
+	 *            the channel to be closed, or null
+	 */
+	private static void closeQuietly(SocketChannel channel) {
+		if (channel == null) {
+			return;
+		}
+		try {
+			channel.close();
+		} catch (IOException ex) {
+		}
+	}
+
+	/**
+	 * Prints the specified message.
+	 *
+	 * @param message
+	 *            the message to be printed
+	 */
+	private void println(String message) {
+		System.out.println(message);
+	}
+
+	/**
+	 * This inner class is used to model a table of the gateway, whose clients
+	 * are routed to the same table of a node.
+	 */
+	private static class Table {
+		// the ID of this table, by which it is routed
+		private final int tableID;
+		// the number of clients at this table, guarded by the gateway
+		private int numOfClients = 0;
+		// the node this table is routed to, guarded by the gateway
+		private Node node = null;
+
+		/**
+		 * Creates and returns an instance of the Table class.
+		 *
+		 * @param tableID
+		 *            the ID of the table
+		 */
+		private Table(int tableID) {
+			this.tableID = tableID;
+		}
+	} // Table
+
+	/**
+	 * This inner class is used to model a node behind the gateway, and its
+	 * health.
+	 */
+	private class Node {
+		// the index of this node
+		private final int nodeID;
+		// the address of this node
+		private final InetSocketAddress address;
+		// the name of this node, from which its points on the ring are hashed
+		private final String name;
+		// the connections relayed to this node
+		private final Set<Relay> relays = ConcurrentHashMap.newKeySet();
+		// the timer of the health checks, which hands each check over to the
+		// pool of the health checks
+		private final HashedWheelTimer.Timeout healthTimer = new HashedWheelTimer.Timeout(
+				() -> healthPool.execute(this::checkHealth));
+		// a boolean indicating if this node is on the ring
+		private volatile boolean up = true;
+		// the number of failed health checks in a row, guarded by this node
+		private int failures = 0;
+		// the number of connections of this node at the last health check
+		private volatile int load = 0;
+
+		/**
+		 * Creates and returns an instance of the Node class.
+		 *
+		 * @param nodeID
+		 *            the index of the node
+		 * @param address
+		 *            the address of the node
+		 */
+		private Node(int nodeID, InetSocketAddress address) {
+			this.nodeID = nodeID;
+			this.address = address;
+			this.name = address.getHostString() + ":" + address.getPort();
+		}
+
+		/**
+		 * Checks the health of this node, and schedules the next check.
+		 */
+		private void checkHealth() {
+			try {
+				load = NodeProtocol.checkHealth(address, HEALTH_TIMEOUT);
+				markUp();
+			} catch (IOException ex) {
+				boolean down;
+				synchronized (this) {
+					down = ++failures >= FAILURE_THRESHOLD;
+				}
+				if (down) {
+					markDown();
+				}
+			} finally {
+				timer.schedule(healthTimer, HEALTH_INTERVAL);
+			}
+		}
+
+		/**
+		 * Puts this node back on the ring if it is off.
+		 */
+		private synchronized void markUp() {
+			failures = 0;
+			if (!up) {
+				up = true;
+				ring.add(this, name);
+				nodeRecoveries.increment();
+				println("Node " + name + " is up");
+			}
+		}
+
+		/**
+		 * Takes this node off the ring, so that no new table is routed to it,
+		 * and closes the connections relayed to it.
+		 */
+		private void markDown() {
+			synchronized (this) {
+				failures = Math.max(failures, FAILURE_THRESHOLD);
+				if (!up) {
+					return;
+				}
+				up = false;
+				ring.remove(this);
+			}
+			nodeFailures.increment();
+			println("Node " + name + " is down: its connections are closed");
+			for (Relay relay : relays) {
+				relay.close();
+			}
+		}
+	} // Node
+
+	/**
+	 * This inner class is used to model an event loop, which relays the
+	 * connections registered with it on a single thread. Like the event loops
+	 * of the server (see EventLoop), it is woken up to pick up the work handed
+	 * over by other threads.
+	 */
+	private class RelayLoop implements Runnable {
+		// the selector of the channels
+		private final Selector selector;
+		// the tasks handed over by other threads
+		private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+		/**
+		 * Creates and returns an instance of the RelayLoop class.
+		 *
+		 * @throws IOException
+		 *             if the selector cannot be opened
+		 */
+		private RelayLoop() throws IOException {
+			selector = Selector.open();
+		}
+
+		/**
+		 * Routes the specified client to the node of the specified table, and
+		 * relays its connection with this event loop.
+		 *
+		 * @param clientChannel
+		 *            a channel accepted by the gateway
+		 * @param table
+		 *            the table at which the client is seated
+		 */
+		private void route(SocketChannel clientChannel, Table table) {
+			execute(() -> new Relay(this, clientChannel, table).start());
+		}
+
+		/**
+		 * Runs the specified task on this event loop.
+		 *
+		 * @param task
+		 *            the task to be run
+		 */
+		private void execute(Runnable task) {
+			tasks.add(task);
+			selector.wakeup();
+		}
+
+		// implementation of method from the Runnable interface
+		public void run() {
+			while (true) {
+				try {
+					selector.select();
+				} catch (IOException ex) {
+					println("Error in selecting the channels of the relays");
+					if (!silentMode) ex.printStackTrace();
+					break;
+				}
+
+				// runs the tasks handed over by other threads
+				Runnable task;
+				while ((task = tasks.poll()) != null) {
+					task.run();
+				}
+
+				// handles the channels ready
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					Relay relay = (Relay) key.attachment();
+					try {
+						if (key.isValid() && key.isConnectable()) {
+							relay.finishConnect();
+						}
+						if (key.isValid() && key.isReadable()) {
+							relay.read((SocketChannel) key.channel());
+						}
+						if (key.isValid() && key.isWritable()) {
+							relay.write((SocketChannel) key.channel());
+						}
+					} catch (Exception ex) {
+						// the connection is lost or closed by another thread
+						relay.close();
+					}
+				}
+			} // while
+		} // run
+	} // RelayLoop
+
+	/**
+	 * This inner class is used to model a client relayed to a node. Each
+	 * direction has a buffer of its own, which is filled from one channel
+	 * while it has room and drained to the other while it has bytes, so a
+	 * slow end only holds up its own relay. The relay is closed once either
+	 * end closes its channel and the bytes read from it are written on. All
+	 * but close() are called by the event loop of the relay.
+	 */
+	private class Relay {
+		// the event loop of this relay
+		private final RelayLoop relayLoop;
+		// the channel of the client
+		private final SocketChannel clientChannel;
+		// the address of the client
+		private final SocketAddress clientAddress;
+		// the table at which the client is seated
+		private final Table table;
+		// the bytes from the client to the node, ready to be filled
+		private final ByteBuffer toNode = ByteBuffer.allocate(RELAY_BUFFER_SIZE);
+		// the bytes from the node to the client, ready to be filled
+		private final ByteBuffer toClient = ByteBuffer.allocate(RELAY_BUFFER_SIZE);
+		// the timer of the connection to the node
+		private final HashedWheelTimer.Timeout connectTimer = new HashedWheelTimer.Timeout(
+				this::connectTimedOut);
+		// a boolean indicating if this relay is closed
+		private final AtomicBoolean closed = new AtomicBoolean();
+		// the selection key of the channel of the client
+		private SelectionKey clientKey;
+		// the channel of the node, or null if the node is not connected to
+		private volatile SocketChannel nodeChannel = null;
+		// the selection key of the channel of the node
+		private SelectionKey nodeKey;
+		// the node being connected to or connected
+		private volatile Node node = null;
+		// a boolean indicating if the client has closed its channel
+		private boolean clientEnded = false;
+		// a boolean indicating if the node has closed its channel
+		private boolean nodeEnded = false;
+
+		/**
+		 * Creates and returns an instance of the Relay class.
+		 *
+		 * @param relayLoop
+		 *            the event loop of the relay
+		 * @param clientChannel
+		 *            the channel of the client
+		 * @param table
+		 *            the table at which the client is seated
+		 */
+		private Relay(RelayLoop relayLoop, SocketChannel clientChannel,
+				Table table) {
+			this.relayLoop = relayLoop;
+			this.clientChannel = clientChannel;
+			this.clientAddress = clientChannel.socket().getRemoteSocketAddress();
+			this.table = table;
+		}
+
+		/**
+		 * Registers the channel of the client, whose bytes are held until the
+		 * node is connected, and connects to the node of the table.
+		 */
+		private void start() {
+			try {
+				clientChannel.configureBlocking(false);
+				clientChannel.socket().setTcpNoDelay(true);
+				clientKey = clientChannel.register(relayLoop.selector,
+						SelectionKey.OP_READ, this);
+			} catch (IOException ex) {
+				close();
+				return;
+			}
+			// the header goes ahead of the bytes of the client
+			NodeProtocol.putRoute(toNode, table.tableID);
+			connect();
+		}
+
+		/**
+		 * Connects to the node of the table without blocking. The client is
+		 * closed if no node is up.
+		 */
+		private void connect() {
+			Node node = nodeOf(table);
+			if (node == null) {
+				println("No node is up: cannot route the client at "
+						+ clientAddress);
+				unroutable.increment();
+				close();
+				return;
+			}
+			this.node = node;
+			try {
+				nodeChannel = SocketChannel.open();
+				nodeChannel.configureBlocking(false);
+				nodeChannel.socket().setTcpNoDelay(true);
+				if (nodeChannel.connect(node.address)) {
+					nodeKey = nodeChannel.register(relayLoop.selector, 0, this);
+					connected();
+				} else {
+					nodeKey = nodeChannel.register(relayLoop.selector,
+							SelectionKey.OP_CONNECT, this);
+					timer.schedule(connectTimer, HEALTH_TIMEOUT);
+				}
+			} catch (IOException ex) {
+				connectFailed(ex);
+			}
+		}
+
+		/**
+		 * Finishes the connection to the node once its channel is ready.
+		 */
+		private void finishConnect() {
+			try {
+				if (nodeChannel.finishConnect()) {
+					timer.cancel(connectTimer);
+					connected();
+				}
+			} catch (IOException ex) {
+				timer.cancel(connectTimer);
+				connectFailed(ex);
+			}
+		}
+
+		/**
+		 * Fails the connection to the node if it is not made in time. Run by
+		 * the timer.
+		 */
+		private void connectTimedOut() {
+			relayLoop.execute(() -> {
+				if (!closed.get() && nodeChannel != null
+						&& nodeChannel.isConnectionPending()) {
+					connectFailed(new IOException("Connection timed out"));
+				}
+			});
+		}
+
+		/**
+		 * Starts relaying the bytes once the node is connected.
+		 */
+		private void connected() {
+			node.relays.add(this);
+			if (closed.get()) {
+				node.relays.remove(this);
+				return;
+			}
+			routed.increment();
+			// the node may have been taken off the ring meanwhile
+			if (!node.up) {
+				close();
+				return;
+			}
+			updateInterestOps();
+		}
+
+		/**
+		 * Takes the node off the ring as it cannot be connected to, and tries
+		 * the next node of the table.
+		 *
+		 * @param ex
+		 *            the error in connecting to the node
+		 */
+		private void connectFailed(IOException ex) {
+			Node node = this.node;
+			println("Error in connecting to node " + node.name);
+			if (!silentMode) ex.printStackTrace();
+			closeQuietly(nodeChannel);
+			nodeChannel = null;
+			nodeKey = null;
+			this.node = null;
+			node.markDown();
+			if (!closed.get()) {
+				connect();
+			}
+		}
+
+		/**
+		 * Reads the bytes available from the specified channel, and writes them
+		 * on to the other end once the node is connected.
+		 *
+		 * @param channel
+		 *            the channel ready to be read
+		 * @throws IOException
+		 *             if the connection is lost
+		 */
+		private void read(SocketChannel channel) throws IOException {
+			boolean fromClient = (channel == clientChannel);
+			if (channel.read(fromClient ? toNode : toClient) < 0) {
+				if (fromClient) {
+					clientEnded = true;
+				} else {
+					nodeEnded = true;
+				}
+			}
+			if (fromClient && !isConnected()) {
+				updateInterestOps();
+				return;
+			}
+			write(fromClient ? nodeChannel : clientChannel);
+		}
+
+		/**
+		 * Writes the bytes held for the specified channel as far as it takes
+		 * them, and closes this relay once an end has closed its channel and
+		 * the bytes read from it are written on.
+		 *
+		 * @param channel
+		 *            the channel ready to be written
+		 * @throws IOException
+		 *             if the connection is lost
+		 */
+		private void write(SocketChannel channel) throws IOException {
+			ByteBuffer buffer = (channel == clientChannel) ? toClient : toNode;
+			buffer.flip();
+			bytesRelayed.add(channel.write(buffer));
+			buffer.compact();
+			if ((clientEnded && toNode.position() == 0)
+					|| (nodeEnded && toClient.position() == 0)) {
+				close();
+				return;
+			}
+			updateInterestOps();
+		}
+
+		/**
+		 * Returns a boolean indicating if the node is connected.
+		 *
+		 * @return true if the node is connected; false otherwise
+		 */
+		private boolean isConnected() {
+			return nodeKey != null && nodeChannel.isConnected();
+		}
+
+		/**
+		 * Sets the operations waited for on the channels, so that a channel is
+		 * read while its buffer has room, and written while bytes are held for
+		 * it.
+		 */
+		private void updateInterestOps() {
+			clientKey.interestOps(interestOps(toNode, clientEnded, toClient));
+			if (isConnected()) {
+				nodeKey.interestOps(interestOps(toClient, nodeEnded, toNode));
+			}
+		}
+
+		/**
+		 * Returns the operations to be waited for on a channel.
+		 *
+		 * @param in
+		 *            the buffer of the bytes read from the channel
+		 * @param ended
+		 *            a boolean indicating if the channel is closed by its end
+		 * @param out
+		 *            the buffer of the bytes to be written to the channel
+		 * @return the operations to be waited for
+		 */
+		private int interestOps(ByteBuffer in, boolean ended, ByteBuffer out) {
+			return ((in.hasRemaining() && !ended) ? SelectionKey.OP_READ : 0)
+					| ((out.position() > 0) ? SelectionKey.OP_WRITE : 0);
+		}
+
+		/**
+		 * Closes the channels of the client and of the node, and gives back the
+		 * seat of the client. It may be called by any thread, and does nothing
+		 * once this relay is closed.
+		 */
+		private void close() {
+			if (!closed.compareAndSet(false, true)) {
+				return;
+			}
+			timer.cancel(connectTimer);
+			Node node = this.node;
+			if (node != null && node.relays.remove(this)) {
+				println("Closes the connection of the client at "
+						+ clientAddress + " to node " + node.name);
+			}
+			closeQuietly(clientChannel);
+			closeQuietly(nodeChannel);
+			leaveSeat(table);
+		}
+	} // Relay
+
+	/**
+	 * main() method for starting the gateway.
+	 *
+	 * @param args
+	 *            the port to be used by the gateway, followed by the
+	 *            addresses of the nodes as host:port
+	 */
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.out.println("Usage: java CardGameGateway port host:port [host:port ...]");
+			return;
+		}
+		List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+		for (int i = 1; i < args.length; i++) {
+			int colon = args[i].lastIndexOf(':');
+			addresses.add(new InetSocketAddress(args[i].substring(0, colon),
+					Integer.parseInt(args[i].substring(colon + 1))));
+		}
+		CardGameGateway gateway = new CardGameGateway(4, addresses);
+		gateway.start(Integer.parseInt(args[0]));
+	} // main
+}
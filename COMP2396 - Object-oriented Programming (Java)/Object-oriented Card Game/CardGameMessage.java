@@ -21,9 +21,10 @@ public class CardGameMessage extends GameMessage {
 	public static final int JOIN = 1;
 	/**
 	 * Sent by the server to a client after a connection is established but the
-	 * server is not able to serve this client because it is full. In this
+	 * server is not able to serve this client because it is full, or in reply
+	 * to a CREATE_TABLE or JOIN_TABLE message which cannot be served. In this
 	 * message, playerID is -1 (not being used) and data is simply null (not
-	 * being used).
+	 * being used), or the ID of the table in reply to a JOIN_TABLE message.
 	 */
 	public static final int FULL = 2;
 	/**
@@ -42,12 +43,17 @@ public class CardGameMessage extends GameMessage {
 	/**
 	 * Broadcast by the server when all clients are ready for a new game. In this message, playerID is 
 	 * -1 (no being used), and data is a reference to a Deck object (a shuffled deck for the new game).
+	 * If the server checks the moves, it deals the cards itself and sends each client its own
+	 * message instead. In this message, playerID specifies the playerID of the local player, and data
+	 * is a reference to a CardGameDeal object holding the cards dealt to the local player only.
 	 */
 	public static final int START = 5;
 	/**
 	 * Sent by a client when the local player makes a move. The server will broadcast this message upon
 	 * receiving it. In this message, playerID specifies the player who makes the move, and data is a
-	 * reference to an array of int specifying the indices of the cards being played.
+	 * reference to an array of int specifying the indices of the cards being played. If the server
+	 * deals the cards (see START), the message broadcast by the server has a reference to a CardList
+	 * holding the cards played instead, or null if the player passes.
 	 */
 	public static final int MOVE = 6;
 	/**
@@ -57,6 +63,52 @@ public class CardGameMessage extends GameMessage {
 	 * sent this chat message, and data is a reference to a string containing a formated chat message.
 	 */
 	public static final int MSG = 7;
+	/**
+	 * Sent by the server to a client only when the move made by the local player is not legal. The
+	 * move is not broadcast to the other clients. In this message, playerID specifies the player who
+	 * made the move, and data is the array of int sent in the rejected MOVE message.
+	 */
+	public static final int REJECT = 8;
+	/**
+	 * Sent by a client to the server to ask for the list of tables, and sent by the server to the
+	 * client in reply. In the message sent by a client, playerID is -1 (not being used) and data is
+	 * simply null (not being used). In the reply, playerID specifies the ID of the table of the
+	 * client, and data is a reference to an array of int holding the ID and the number of players
+	 * of each table in turn.
+	 */
+	public static final int TABLE_LIST = 9;
+	/**
+	 * Sent by a client to the server to leave its table and sit at a new table. The server replies
+	 * with a PLAYER_LIST message for the new table, or a FULL message if no more tables can be
+	 * created. In this message, playerID is -1 (not being used) and data is simply null (not being
+	 * used).
+	 */
+	public static final int CREATE_TABLE = 10;
+	/**
+	 * Sent by a client to the server to leave its table and sit at another table. The server replies
+	 * with a PLAYER_LIST message for the table, or a FULL message whose data is the ID of the table
+	 * if it does not exist or has no free seat. In this message, playerID is -1 (not being used) and
+	 * data is a reference to an Integer specifying the ID of the table.
+	 */
+	public static final int JOIN_TABLE = 11;
+	/**
+	 * Sent by the server to a client which has fallen too far behind, in place of the messages
+	 * about its table which have been dropped for it. The client replaces the state of its table
+	 * with the snapshot. In this message, playerID specifies the playerID of the local player, and
+	 * data is a reference to a CardGameSnapshot object.
+	 */
+	public static final int SNAPSHOT = 12;
+	/**
+	 * Sent by the server to a client which has sent nothing for a while, and by a client to the
+	 * server at will, to tell if the other end is alive. The receiver replies with a PONG message.
+	 * In this message, playerID is -1 (not being used) and data is simply null (not being used).
+	 */
+	public static final int PING = 13;
+	/**
+	 * Sent in reply to a PING message. In this message, playerID is -1 (not being used) and data
+	 * is simply null (not being used).
+	 */
+	public static final int PONG = 14;
 
 	/**
 	 * Creates and returns an instance of CardGameMessage.
@@ -1,125 +1,173 @@
-/**
- * This class is used to represent a player in general card games.
- * 
- * @author Kenneth Wong
- */
-public class CardGamePlayer {
-	private static int playerId = 0;
-	private String name = "";
-	private CardList cardsInHand = new CardList();
-
-	/**
-	 * Creates and returns an instance of the Player class.
-	 */
-	public CardGamePlayer() {
-		this.name = "Player " + playerId;
-		playerId++;
-	}
-
-	/**
-	 * Creates and returns an instance of the Player class.
-	 * 
-	 * @param name the name of the player
-	 */
-	public CardGamePlayer(String name) {
-		this.name = name;
-	}
-
-	/**
-	 * Returns the name of this player.
-	 * 
-	 * @return the name of this player
-	 */
-	public String getName() {
-		return this.name;
-	}
-
-	/**
-	 * Sets the name of this player.
-	 * 
-	 * @param name the name of this player
-	 */
-	public void setName(String name) {
-		this.name = name;
-	}
-
-	/**
-	 * Adds the specified card to this player.
-	 * 
-	 * @param card the specified card to be added to this player
-	 */
-	public void addCard(Card card) {
-		if (card != null) {
-			cardsInHand.addCard(card);
-		}
-	}
-
-	/**
-	 * Removes the list of cards from this player, if they are held by this player.
-	 * 
-	 * @param cards the list of cards to be removed from this player
-	 */
-	public void removeCards(CardList cards) {
-		for (int i = 0; i < cards.size(); i++) {
-			cardsInHand.removeCard(cards.getCard(i));
-		}
-	}
-
-	/**
-	 * Removes all cards from this player.
-	 */
-	public void removeAllCards() {
-		cardsInHand = new CardList();
-	}
-
-	/**
-	 * Returns the number of cards held by this player.
-	 * 
-	 * @return the number of cards held by this player
-	 */
-	public int getNumOfCards() {
-		return cardsInHand.size();
-	}
-
-	/**
-	 * Sorts the list of cards held by this player.
-	 */
-	public void sortCardsInHand() {
-		cardsInHand.sort();
-	}
-
-	/**
-	 * Returns the list of cards held by this player.
-	 * 
-	 * @return the list of cards held by this player
-	 */
-	public CardList getCardsInHand() {
-		return cardsInHand;
-	}
-
-	/**
-	 * Returns the list of cards played by this player.
-	 * 
-	 * @param cardIdx the list of the indices of the cards
-	 * @return the list of cards played by this player, or null if the list of cards
-	 *         is empty
-	 */
-	public CardList play(int[] cardIdx) {
-		if (cardIdx == null) {
-			return null;
-		}
-
-		CardList cards = new CardList();
-		for (int idx : cardIdx) {
-			if (idx >= 0 && idx < cardsInHand.size()) {
-				cards.addCard(cardsInHand.getCard(idx));
-			}
-		}
-
-		if (cards.isEmpty()) {
-			return null;
-		} else {
-			return cards;
-		}
-	}
-}
+/**
+ * This class is used to represent a player in general card games.
+ * 
+ * @author Kenneth Wong
+ */
+public class CardGamePlayer {
+	private static int playerId = 0;
+	private String name = "";
+	private CardList cardsInHand = new CardList();
+	private ComboIndex comboIndex = null;
+
+	/**
+	 * Creates and returns an instance of the Player class.
+	 */
+	public CardGamePlayer() {
+		this.name = "Player " + playerId;
+		playerId++;
+	}
+
+	/**
+	 * Creates and returns an instance of the Player class.
+	 * 
+	 * @param name the name of the player
+	 */
+	public CardGamePlayer(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the name of this player.
+	 * 
+	 * @return the name of this player
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * Sets the name of this player.
+	 * 
+	 * @param name the name of this player
+	 */
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Adds the specified card to this player.
+	 * 
+	 * @param card the specified card to be added to this player
+	 * @throws IllegalArgumentException if the combo index is enabled and this
+	 *                                  player would hold more than
+	 *                                  ComboIndex.MAX_CARDS cards
+	 */
+	public void addCard(Card card) {
+		if (card != null) {
+			if (comboIndex != null) {
+				comboIndex.addCards(CardSet.bit(card));
+			}
+			cardsInHand.addCard(card);
+		}
+	}
+
+	/**
+	 * Removes the list of cards from this player, if they are held by this player.
+	 * 
+	 * @param cards the list of cards to be removed from this player
+	 */
+	public void removeCards(CardList cards) {
+		// marks the cards to be removed in a bitboard so that the cards in hand
+		// are scanned once instead of once per card
+		long bits = CardSet.bitsOf(cards);
+		if (comboIndex != null) {
+			comboIndex.removeCards(bits);
+		}
+		for (int i = cardsInHand.size() - 1; i >= 0 && bits != 0; i--) {
+			long bit = CardSet.bit(cardsInHand.getCard(i));
+			if ((bits & bit) != 0) {
+				cardsInHand.removeCard(i);
+				bits &= ~bit;
+			}
+		}
+	}
+
+	/**
+	 * Removes all cards from this player.
+	 */
+	public void removeAllCards() {
+		cardsInHand = new CardList();
+		if (comboIndex != null) {
+			comboIndex.removeAllCards();
+		}
+	}
+
+	/**
+	 * Enables or disables the combo index of this player. When enabled, the
+	 * combos available in the cards held by this player are kept up to date as
+	 * cards are added and removed. The index is sized for a hand dealt, so a
+	 * player with the index enabled holds at most ComboIndex.MAX_CARDS cards.
+	 * 
+	 * @param enabled true to enable the combo index; false to disable it
+	 * @throws IllegalArgumentException if the index is enabled while this
+	 *                                  player holds more than
+	 *                                  ComboIndex.MAX_CARDS cards
+	 */
+	public void setComboIndexEnabled(boolean enabled) {
+		if (!enabled) {
+			comboIndex = null;
+		} else if (comboIndex == null) {
+			comboIndex = new ComboIndex(cardsInHand);
+		}
+	}
+
+	/**
+	 * Returns the combo index of this player.
+	 * 
+	 * @return the combo index of this player, or null if it is not enabled
+	 */
+	public ComboIndex getComboIndex() {
+		return comboIndex;
+	}
+
+	/**
+	 * Returns the number of cards held by this player.
+	 * 
+	 * @return the number of cards held by this player
+	 */
+	public int getNumOfCards() {
+		return cardsInHand.size();
+	}
+
+	/**
+	 * Sorts the list of cards held by this player.
+	 */
+	public void sortCardsInHand() {
+		cardsInHand.sort();
+	}
+
+	/**
+	 * Returns the list of cards held by this player.
+	 * 
+	 * @return the list of cards held by this player
+	 */
+	public CardList getCardsInHand() {
+		return cardsInHand;
+	}
+
+	/**
+	 * Returns the list of cards played by this player.
+	 * 
+	 * @param cardIdx the list of the indices of the cards
+	 * @return the list of cards played by this player, or null if the list of cards
+	 *         is empty
+	 */
+	public CardList play(int[] cardIdx) {
+		if (cardIdx == null) {
+			return null;
+		}
+
+		CardList cards = new CardList();
+		for (int idx : cardIdx) {
+			if (idx >= 0 && idx < cardsInHand.size()) {
+				cards.addCard(cardsInHand.getCard(idx));
+			}
+		}
+
+		if (cards.isEmpty()) {
+			return null;
+		} else {
+			return cards;
+		}
+	}
+}
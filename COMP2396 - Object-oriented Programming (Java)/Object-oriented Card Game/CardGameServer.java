@@ -1,9 +1,38 @@
+import java.awt.GraphicsEnvironment;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.ObjectInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectOutputStream;
+import java.io.PushbackInputStream;
+import java.io.StreamCorruptedException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
 
 import javax.swing.JFrame;
 import javax.swing.JMenu;
@@ -14,34 +43,297 @@ import javax.swing.JTextArea;
 import javax.swing.ScrollPaneConstants;
 
 /**
- * This class is used to model a card game server.
+ * This class is used to model a card game server. The server hosts a number of
+ * tables, each with its own seats, ready states, deck and game. A new
+ * connection is seated at the first table with a free seat, and a client can
+ * list, create and join tables with the TABLE_LIST, CREATE_TABLE and
+ * JOIN_TABLE messages.
+ * <p>
+ * Each table is driven by an actor: the messages about the table are queued
+ * in the lock-free mailbox of the table, and handled one at a time by a
+ * shared pool of threads, so the game runs without any lock and the messages
+ * of different tables are handled in parallel. The lobby (i.e., the set of
+ * tables and the seating of the clients) is guarded by the lock of the lobby,
+ * which is never held while waiting for a client. The connections are
+ * registered by connection ID, and each connection holds its table and seat,
+ * so a message never scans the tables or the seats. The lock of the lobby
+ * counts how often it is acquired and how often a thread has to wait for it,
+ * and the actors count the messages they handle (see getMetrics()).
+ * <p>
+ * The server either handles each connection with a thread of its own (see
+ * start(int)), or multiplexes the connections on a few event loops (see
+ * start(int, int)). Either way, a client sends a Java object stream (a legacy
+ * client) or the framed protocol of MessageFrame with the codec of its choice,
+ * which is told by the first bytes it sends. The event loops hand legacy
+ * clients over to a thread of their own. The threads of the connections may
+ * be virtual threads (see setVirtualThreads()), which lets the blocking
+ * transport hold many more connections. The transports are modelled by their
+ * own classes (see SocketConnection, ClientHandler and ClientWriter for the
+ * blocking transport, and ChannelConnection and EventLoop for the event
+ * loops), and this class keeps the lobby and the tables.
+ * <p>
+ * Sending a message never blocks on the socket of the client: the message is
+ * put in the bounded outbound queue of the connection, which is written by a
+ * writer thread of its own or by the event loop, with the messages queued in
+ * one burst written and flushed together. A client whose queue is full cannot
+ * keep up with the game, and is disconnected. A message broadcast to a table
+ * is encoded once for all the clients of the framed protocol (see
+ * OutboundMessage).
+ * <p>
+ * The bytes queued for each client are counted against a low and a high
+ * watermark (see setOutboundWatermarks()), so that a client on a slow link
+ * costs the server a bounded amount of memory and never holds up the others.
+ * Once the bytes queued reach the high watermark, the chat messages for the
+ * client are dropped until they fall below the low watermark. Once they reach
+ * twice the high watermark, all the messages about the table of the client
+ * are dropped, and the client is sent a SNAPSHOT of its table instead once
+ * they fall below the low watermark. A client which does not catch up within
+ * RESYNC_TIMEOUT milliseconds is disconnected, and so is a client of a server
+ * which does not check the moves (see createGame()) at once, as there is no
+ * state of the game to catch up with. The messages dropped and the
+ * bytes queued are counted by the metrics of the server (see getMetrics()).
+ * <p>
+ * The object stream of a legacy client is reset every few messages (see
+ * setStreamResetInterval()), so that neither end of a long session holds on to
+ * every message sent.
+ * <p>
+ * The connections accepted are admitted at a limited rate (see
+ * setAcceptRate()), and only so many of them may wait for their first bytes
+ * to be read (see setAcceptBacklog()); the others are closed at once. A
+ * client turned away because the server is full is sent a FULL message, and
+ * its connection is closed later by the timer of the server, without a thread
+ * of its own: the first bytes of a client accepted while the server is full
+ * are read by a single thread shared by all such clients, and the sockets
+ * rejected are closed in batches by a single timer. A client has
+ * HANDSHAKE_TIMEOUT milliseconds from its accept to send its first bytes,
+ * however long it waits for the shared thread, and only REJECT_QUEUE_CAPACITY
+ * clients may wait for it; the others are closed at once.
+ * <p>
+ * The timer of the server is a hashed timing wheel (see HashedWheelTimer),
+ * which runs the timers of all the tables and connections with a single
+ * thread. A player who does not move within the turn timeout passes, or plays
+ * the lowest card if it may not pass (see setTurnTimeout()); this needs the
+ * server to check the moves. A client which has sent nothing for a heartbeat
+ * interval is sent a PING message, to which it replies with a PONG message,
+ * and a client which has sent nothing for the idle timeout is disconnected
+ * (see setHeartbeat()).
+ * <p>
+ * In matchmaking mode (see setMatchmaking()), a client is not seated as it
+ * connects, but is put in a matchmaking queue (see Matchmaker) without any
+ * lock, in the rating bucket given by getRatingBucket(). Every MATCH_INTERVAL
+ * milliseconds, a round of matchmaking seats the clients waiting in groups of
+ * maxNumOfPlayers at new tables, taking the lock of the lobby once for all of
+ * them; a client which has waited for MATCH_MAX_WAIT milliseconds without a
+ * group is seated at the first open table instead. The time each client waits
+ * to be seated is kept in a histogram (see getMetrics()).
+ * <p>
+ * The server may run as one of the nodes behind a gateway (see
+ * CardGameGateway), which routes each of its tables to a node. A client
+ * routed by the gateway is preceded by a header of the node protocol naming
+ * the table of the gateway (see NodeProtocol), and the clients of the same
+ * table of the gateway are seated at the same table. The gateway checks the
+ * health of the node with the same protocol.
  * 
  * @author Kenneth Wong
  *
  */
 public class CardGameServer {
+	// The default maximum number of tables
+	public static final int DEFAULT_MAX_NUM_OF_TABLES = 4096;
+	// The default capacity of the outbound queue of a connection, in messages
+	public static final int DEFAULT_OUTBOUND_QUEUE_CAPACITY = 1024;
+	// The default number of messages written to a legacy client between
+	// resets of its object stream
+	public static final int DEFAULT_STREAM_RESET_MESSAGES = ManagedObjectOutputStream.DEFAULT_RESET_MESSAGES;
+	// The default number of bytes written to a legacy client between resets of
+	// its object stream
+	public static final long DEFAULT_STREAM_RESET_BYTES = ManagedObjectOutputStream.DEFAULT_RESET_BYTES;
+	// The default low watermark of the bytes queued for a connection
+	public static final int DEFAULT_LOW_WATERMARK = 16 * 1024;
+	// The default high watermark of the bytes queued for a connection
+	public static final int DEFAULT_HIGH_WATERMARK = 64 * 1024;
+	// The time given to a client to catch up once its messages are dropped,
+	// in milliseconds
+	public static final long RESYNC_TIMEOUT = 10000;
+	// The default number of connections admitted per second
+	public static final int DEFAULT_ACCEPT_RATE = 5000;
+	// The default number of connections admitted at once
+	public static final int DEFAULT_ACCEPT_BURST = 5000;
+	// The default number of connections waiting to be accepted or to have
+	// their first bytes read
+	public static final int DEFAULT_ACCEPT_BACKLOG = 1024;
+	// The time given to a client to send its first bytes from its accept, in
+	// milliseconds
+	public static final int HANDSHAKE_TIMEOUT = 10000;
+	// The number of clients accepted while the server is full which may wait
+	// for their first bytes to be read
+	public static final int REJECT_QUEUE_CAPACITY = 64;
+	// The time between the FULL message sent to a client and the closing of
+	// its connection, in milliseconds
+	public static final long REJECT_CLOSE_DELAY = 1000;
+	// The default time given to a player to move, in milliseconds
+	public static final long DEFAULT_TURN_TIMEOUT = 60000;
+	// The default time after which a client which has sent nothing is sent a
+	// PING message, in milliseconds
+	public static final long DEFAULT_HEARTBEAT_INTERVAL = 15000;
+	// The default time after which a client which has sent nothing is
+	// disconnected, in milliseconds
+	public static final long DEFAULT_IDLE_TIMEOUT = 45000;
+	// The duration of a tick of the timer, in milliseconds
+	public static final long TIMER_TICK = 100;
+	// The number of ticks of a turn of the timer
+	public static final int TIMER_TICKS_PER_WHEEL = 512;
+	// The header of a connection which is a health check (see readNodeHeader())
+	private static final int HEALTH_CHECKED = -2;
+	// The time between the rounds of matchmaking, in milliseconds
+	public static final long MATCH_INTERVAL = 100;
+	// The time a client waits for a group before it is seated at the first
+	// open table in matchmaking mode, in milliseconds
+	public static final long MATCH_MAX_WAIT = 5000;
+	// The default number of threads running the actors of the tables
+	public static final int DEFAULT_NUM_OF_TABLE_THREADS = Runtime.getRuntime().availableProcessors();
+	// The maximum number of messages handled by the actor of a table before
+	// the other tables get their turn
+	public static final int ACTOR_BATCH_SIZE = 64;
 	// Flag for silent mode (prevents printing the stack trace)
 	boolean silentMode = true;
+	// Flag for verbose mode (prints a line for every message handled)
+	volatile boolean verboseMode = false;
 	// The name of this card game server
 	private String serverName;
 	// The maximum number of players in a card game
 	private final int maxNumOfPlayers;
-	// Array for holding sockets of the clients
-	private Socket[] clientSockets;
-	// Array for holding ObjectOutputStreams of the clients
-	private ObjectOutputStream[] clientOutputStreams;
-	// Array for holding player names of the clients
-	private String[] clientNames;
-	// Array for holding ready states of the clients
-	private boolean[] clientReadyStates;
-	// number of current players
-	private int numOfPlayers = 0;
+	// The maximum number of tables
+	private final int maxNumOfTables;
+	// The tables, keyed by table ID
+	private final Map<Integer, Table> tables = new TreeMap<Integer, Table>();
+	// The tables with a free seat, keyed by table ID
+	private final TreeMap<Integer, Table> openTables = new TreeMap<Integer, Table>();
+	// The tables of the clients routed by a gateway, keyed by route ID
+	private final Map<Integer, Table> routedTables = new TreeMap<Integer, Table>();
+	// The ID of the next table to be created
+	private int nextTableID = 0;
+	// The connections established, keyed by connection ID
+	final Map<Integer, ClientConnection> connections = new ConcurrentHashMap<Integer, ClientConnection>();
+	// The ID of the next connection to be established
+	final AtomicInteger nextConnectionID = new AtomicInteger();
+	// The capacity of the outbound queue of a connection, in messages
+	volatile int outboundQueueCapacity = DEFAULT_OUTBOUND_QUEUE_CAPACITY;
+	// The number of messages written to a legacy client between resets
+	volatile int streamResetMessages = DEFAULT_STREAM_RESET_MESSAGES;
+	// The number of bytes written to a legacy client between resets
+	volatile long streamResetBytes = DEFAULT_STREAM_RESET_BYTES;
+	// The low watermark of the bytes queued for a connection
+	volatile int lowWatermark = DEFAULT_LOW_WATERMARK;
+	// The high watermark of the bytes queued for a connection
+	volatile int highWatermark = DEFAULT_HIGH_WATERMARK;
+	// The limiter of the rate at which the connections are admitted
+	private volatile TokenBucket acceptLimiter = new TokenBucket(
+			DEFAULT_ACCEPT_RATE, DEFAULT_ACCEPT_BURST);
+	// The number of connections waiting to be accepted or to have their
+	// first bytes read
+	private volatile int acceptBacklog = DEFAULT_ACCEPT_BACKLOG;
+	// The factory of the reader and writer threads of the connections
+	private volatile ThreadFactory connectionThreads = ThreadFactories.forConnections();
+	// The number of connections whose first bytes are being read
+	private final AtomicInteger numOfHandshakes = new AtomicInteger();
+	// The timer of the server, which runs the turn timeouts of the tables and
+	// the heartbeats of the connections, and closes the connections rejected
+	final HashedWheelTimer timer = new HashedWheelTimer("Timer",
+			TIMER_TICK, TIMER_TICKS_PER_WHEEL);
+	// The sockets rejected and not closed yet, in the order they were
+	// rejected
+	private final ConcurrentLinkedQueue<Socket> rejectedSockets = new ConcurrentLinkedQueue<Socket>();
+	// The number of sockets rejected and not closed yet
+	private final AtomicInteger numOfRejectedSockets = new AtomicInteger();
+	// The number of sockets which were rejected before the last run of the
+	// timer closing them, owned by the thread of the timer
+	private int numOfRejectedSocketsDue = 0;
+	// The timer closing the sockets rejected, scheduled while there are any
+	private final HashedWheelTimer.Timeout rejectTimer = new HashedWheelTimer.Timeout(
+			this::closeRejected);
+	// The thread reading the first bytes of the clients accepted while the
+	// server is full, which are turned away without a thread of their own;
+	// the clients beyond REJECT_QUEUE_CAPACITY waiting for it are refused
+	private final ExecutorService rejectPool = new ThreadPoolExecutor(1, 1,
+			0L, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<Runnable>(REJECT_QUEUE_CAPACITY), r -> {
+				Thread t = new Thread(r, "Reject");
+				t.setDaemon(true);
+				return t;
+			});
+	// The time given to a player to move, in milliseconds, or 0 if unlimited
+	private volatile long turnTimeout = DEFAULT_TURN_TIMEOUT;
+	// The time after which a client which has sent nothing is sent a PING
+	volatile long heartbeatInterval = DEFAULT_HEARTBEAT_INTERVAL;
+	// The time after which a client which has sent nothing is disconnected
+	volatile long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+	// The PING message, encoded once for all the clients
+	final OutboundMessage ping = new OutboundMessage(
+			new CardGameMessage(CardGameMessage.PING, -1, null));
+	// the metrics of this server
+	private final ServerMetrics metrics = new ServerMetrics();
+	// the number of chat messages dropped for the clients which cannot keep up
+	final LongAdder droppedChats = metrics.counter("outbound.droppedChats");
+	// the number of other messages dropped for the clients which cannot keep up
+	final LongAdder droppedEvents = metrics.counter("outbound.droppedEvents");
+	// the number of times a client has been put in resync mode
+	final LongAdder resyncs = metrics.counter("outbound.resyncs");
+	// the number of clients disconnected for not keeping up
+	final LongAdder evictions = metrics.counter("outbound.evictions");
+	// the number of connections seated or queued for matchmaking
+	private final LongAdder admitted = metrics.counter("accept.admitted");
+	// the number of connections sent a FULL message
+	private final LongAdder rejected = metrics.counter("accept.rejected");
+	// the number of connections closed at once by the admission control
+	private final LongAdder throttled = metrics.counter("accept.throttled");
+	// the number of turns timed out
+	private final LongAdder turnTimeouts = metrics.counter("timer.turnTimeouts");
+	// the number of PING messages sent
+	final LongAdder pings = metrics.counter("timer.pings");
+	// the number of clients disconnected for being idle
+	final LongAdder idleDisconnects = metrics.counter("timer.idleDisconnects");
+	// the largest number of bytes queued for a connection so far
+	final AtomicLong peakPendingBytes = new AtomicLong();
+	// the lock of the lobby, which guards the tables and the seating of the
+	// clients
+	private final InstrumentedLock lobbyLock = new InstrumentedLock(
+			metrics.counter("lock.lobby.acquisitions"),
+			metrics.counter("lock.lobby.contentions"));
+	// a boolean indicating if the clients are seated by matchmaking
+	private volatile boolean matchmaking = false;
+	// the matchmaking queue of the clients waiting to be seated
+	private final Matchmaker<ClientConnection> matchmaker;
+	// the number of groups seated at new tables by matchmaking
+	private final LongAdder matchGroups = metrics.counter("match.groups");
+	// the number of clients seated at open tables after waiting too long
+	private final LongAdder matchStragglers = metrics.counter("match.stragglers");
+	// the time the clients wait to be seated by matchmaking
+	private final LatencyHistogram matchWait = metrics.histogram("match.wait");
+	// the number of messages handled by the actors of the tables
+	private final LongAdder actorTasks = metrics.counter("table.tasks");
+	// the number of times the actor of a table is run by the pool
+	private final LongAdder actorRuns = metrics.counter("table.runs");
+	// the pool of threads running the actors of the tables
+	private final ExecutorService tablePool = Executors.newFixedThreadPool(
+			DEFAULT_NUM_OF_TABLE_THREADS, r -> {
+				Thread t = new Thread(r, "Table");
+				t.setDaemon(true);
+				return t;
+			});
+	// the timer of the rounds of matchmaking, which hands each round over to
+	// the pool of the tables
+	private final HashedWheelTimer.Timeout matchTimer = new HashedWheelTimer.Timeout(
+			() -> tablePool.execute(this::matchRound));
+	// the codecs of the framed protocol, indexed by codec ID
+	final MessageCodec[] codecs = { new SerializedCodec(),
+			new BinaryCodec(this::createDeck) };
 	// the main frame of the server
 	private JFrame frame = null;
 	// text area for displaying server states
 	private JTextArea textArea = null;
 	// a boolean indicating if the server is up
-	private boolean serverUp = false;
+	volatile boolean serverUp = false;
 
 	/**
 	 * Creates and returns an instance of the BigTwoServer class.
@@ -52,17 +344,51 @@ public class CardGameServer {
 	 *            the maximum number of players in a card game
 	 */
 	public CardGameServer(String serverName, int maxNumOfPlayers) {
+		this(serverName, maxNumOfPlayers, DEFAULT_MAX_NUM_OF_TABLES);
+	}
+
+	/**
+	 * Creates and returns an instance of the BigTwoServer class.
+	 * 
+	 * @param serverName
+	 *            the name of this card game server
+	 * @param maxNumOfPlayers
+	 *            the maximum number of players in a card game
+	 * @param maxNumOfTables
+	 *            the maximum number of tables hosted by this server
+	 */
+	public CardGameServer(String serverName, int maxNumOfPlayers,
+			int maxNumOfTables) {
 		this.serverName = serverName;
 		this.maxNumOfPlayers = maxNumOfPlayers;
+		this.maxNumOfTables = maxNumOfTables;
+		this.matchmaker = new Matchmaker<ClientConnection>(maxNumOfPlayers,
+				MATCH_MAX_WAIT);
 
-		// creates arrays for holding client sockets, output streams, player
-		// names, and ready states
-		clientSockets = new Socket[maxNumOfPlayers];
-		clientOutputStreams = new ObjectOutputStream[maxNumOfPlayers];
-		clientNames = new String[maxNumOfPlayers];
-		clientReadyStates = new boolean[maxNumOfPlayers];
+		// the gauges sum up the connections registered, without any lock
+		metrics.gauge("lobby.connections", () -> connections.size());
+		metrics.gauge("accept.handshakes", () -> numOfHandshakes.get());
+		metrics.gauge("match.waiting", () -> matchmaker.getNumOfWaiting());
+		metrics.gauge("timer.pending", () -> timer.getNumOfPending());
+		metrics.gauge("timer.expired", () -> timer.getNumOfExpired());
+		metrics.gauge("outbound.pendingBytes",
+				() -> sumOutbound(client -> client.pendingBytes.get()));
+		metrics.gauge("outbound.pendingMessages",
+				() -> sumOutbound(client -> client.getNumOfQueuedMessages()));
+		metrics.gauge("outbound.peakPendingBytes", peakPendingBytes::get);
+		// the gauges of the object streams of the legacy clients tell the
+		// memory held by the handles of the objects sent since the last reset
+		metrics.gauge("stream.retainedBytes",
+				() -> sumOutbound(ClientConnection::getRetainedStreamBytes));
+		metrics.gauge("stream.retainedMessages",
+				() -> sumOutbound(ClientConnection::getRetainedStreamMessages));
+		metrics.gauge("stream.resets",
+				() -> sumOutbound(ClientConnection::getNumOfStreamResets));
 
-		buildGUI();
+		// the server runs without a GUI on a machine without a display
+		if (!GraphicsEnvironment.isHeadless()) {
+			buildGUI();
+		}
 	}
 
 	/**
@@ -84,10 +410,13 @@ public class CardGameServer {
 		// build the menu bar
 		JMenuItem clearMenuItem = new JMenuItem("Clear console");
 		clearMenuItem.addActionListener(new ClearMenuItemListener());
+		JMenuItem metricsMenuItem = new JMenuItem("Print metrics");
+		metricsMenuItem.addActionListener(new MetricsMenuItemListener());
 		JMenuItem quitMenuItem = new JMenuItem("Quit");
 		quitMenuItem.addActionListener(new QuitMenuItemListener());
 		JMenu menu = new JMenu("Option");
 		menu.add(clearMenuItem);
+		menu.add(metricsMenuItem);
 		menu.add(quitMenuItem);
 		JMenuBar menuBar = new JMenuBar();
 		menuBar.add(menu);
@@ -97,6 +426,199 @@ public class CardGameServer {
 		frame.setVisible(true);
 	} // buildGUI
 
+	/**
+	 * Sets the capacity of the outbound queue of each connection made after
+	 * this call. A client with this many messages waiting to be written is
+	 * disconnected.
+	 * 
+	 * @param outboundQueueCapacity
+	 *            the capacity of the outbound queue, in messages
+	 */
+	public void setOutboundQueueCapacity(int outboundQueueCapacity) {
+		if (outboundQueueCapacity <= 0) {
+			throw new IllegalArgumentException("Invalid capacity: "
+					+ outboundQueueCapacity);
+		}
+		this.outboundQueueCapacity = outboundQueueCapacity;
+	}
+
+	/**
+	 * Sets the low and high watermarks of the bytes queued for each
+	 * connection. A client with as many bytes queued as the high watermark is
+	 * not sent chat messages, and one with twice as many is sent a snapshot of
+	 * its table in place of the messages about the table, until the bytes
+	 * queued fall below the low watermark.
+	 * 
+	 * @param lowWatermark
+	 *            the low watermark, in bytes
+	 * @param highWatermark
+	 *            the high watermark, in bytes
+	 */
+	public void setOutboundWatermarks(int lowWatermark, int highWatermark) {
+		if (lowWatermark <= 0 || lowWatermark > highWatermark) {
+			throw new IllegalArgumentException("Invalid watermarks: "
+					+ lowWatermark + ", " + highWatermark);
+		}
+		this.lowWatermark = lowWatermark;
+		this.highWatermark = highWatermark;
+	}
+
+	/**
+	 * Sets how often the object stream of each legacy client connected after
+	 * this call is reset. The stream is reset once either many messages or
+	 * many bytes have been written since the last reset.
+	 * 
+	 * @param resetMessages
+	 *            the number of messages written between resets
+	 * @param resetBytes
+	 *            the number of bytes written between resets
+	 */
+	public void setStreamResetInterval(int resetMessages, long resetBytes) {
+		if (resetMessages <= 0 || resetBytes <= 0) {
+			throw new IllegalArgumentException("Invalid reset interval: "
+					+ resetMessages + ", " + resetBytes);
+		}
+		this.streamResetMessages = resetMessages;
+		this.streamResetBytes = resetBytes;
+	}
+
+	/**
+	 * Sets the rate at which the connections are admitted. A connection
+	 * accepted beyond the rate is closed at once.
+	 * 
+	 * @param ratePerSecond
+	 *            the number of connections admitted per second
+	 * @param burst
+	 *            the number of connections admitted at once
+	 */
+	public void setAcceptRate(double ratePerSecond, int burst) {
+		this.acceptLimiter = new TokenBucket(ratePerSecond, burst);
+	}
+
+	/**
+	 * Sets the number of connections which may wait to be accepted by a
+	 * server started after this call, or to have their first bytes read by a
+	 * server started by start(int). A connection accepted beyond the backlog
+	 * is closed at once.
+	 * 
+	 * @param acceptBacklog
+	 *            the number of connections waiting
+	 */
+	public void setAcceptBacklog(int acceptBacklog) {
+		if (acceptBacklog <= 0) {
+			throw new IllegalArgumentException("Invalid backlog: "
+					+ acceptBacklog);
+		}
+		this.acceptBacklog = acceptBacklog;
+	}
+
+	/**
+	 * Sets whether the reader and writer of each connection made after this
+	 * call run on virtual threads rather than platform threads. Virtual
+	 * threads are only used if the Java runtime has them (see
+	 * ThreadFactories).
+	 * 
+	 * @param virtualThreads
+	 *            true to run the connections on virtual threads; false to run
+	 *            them on platform threads
+	 */
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.connectionThreads = virtualThreads ? ThreadFactories.virtual()
+				: ThreadFactories.platform();
+	}
+
+	/**
+	 * Sets whether a line is printed for every message received, broadcast
+	 * or rejected by the server. It is off by default, as printing a line
+	 * per message slows down the event loops and the actors of the tables.
+	 * 
+	 * @param verboseMode
+	 *            true to print a line for every message; false otherwise
+	 */
+	public void setVerboseMode(boolean verboseMode) {
+		this.verboseMode = verboseMode;
+	}
+
+	/**
+	 * Sets the time given to a player to move. A player who does not move in
+	 * time passes, or plays the lowest card if it may not pass. The turns are
+	 * only timed if the server checks the moves (see createGame()).
+	 * 
+	 * @param turnTimeout
+	 *            the time given to a player to move, in milliseconds, or 0 if
+	 *            unlimited
+	 */
+	public void setTurnTimeout(long turnTimeout) {
+		if (turnTimeout < 0) {
+			throw new IllegalArgumentException("Invalid timeout: "
+					+ turnTimeout);
+		}
+		this.turnTimeout = turnTimeout;
+	}
+
+	/**
+	 * Sets the heartbeat of each connection made after this call. A client
+	 * which has sent nothing for the heartbeat interval is sent a PING
+	 * message, and one which has sent nothing for the idle timeout is
+	 * disconnected.
+	 * 
+	 * @param heartbeatInterval
+	 *            the heartbeat interval, in milliseconds
+	 * @param idleTimeout
+	 *            the idle timeout, in milliseconds
+	 */
+	public void setHeartbeat(long heartbeatInterval, long idleTimeout) {
+		if (heartbeatInterval <= 0 || idleTimeout < heartbeatInterval) {
+			throw new IllegalArgumentException("Invalid heartbeat: "
+					+ heartbeatInterval + ", " + idleTimeout);
+		}
+		this.heartbeatInterval = heartbeatInterval;
+		this.idleTimeout = idleTimeout;
+	}
+
+	/**
+	 * Sets whether the clients connecting after this call are seated by
+	 * matchmaking, rather than at the first open table as they connect. The
+	 * clients waiting when matchmaking is turned off are still seated by
+	 * matchmaking.
+	 * 
+	 * @param matchmaking
+	 *            true to seat the clients by matchmaking; false otherwise
+	 */
+	public void setMatchmaking(boolean matchmaking) {
+		lobbyLock.lock();
+		try {
+			if (matchmaking && !this.matchmaking) {
+				timer.schedule(matchTimer, MATCH_INTERVAL);
+			}
+			this.matchmaking = matchmaking;
+		} finally {
+			lobbyLock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the rating bucket of the client at the specified address in
+	 * matchmaking mode. A client is only grouped with the clients of the same
+	 * bucket. Overrides this method to match the clients by rating.
+	 * 
+	 * @param address
+	 *            the address of the client
+	 * @return the rating bucket of the client, which is 0 by default
+	 */
+	public int getRatingBucket(SocketAddress address) {
+		return 0;
+	}
+
+	/**
+	 * Returns the metrics of this server.
+	 * 
+	 * @return the metrics of this server
+	 */
+	public ServerMetrics getMetrics() {
+		return metrics;
+	}
+
 	/**
 	 * Starts the server at the specified port
 	 * 
@@ -107,14 +629,47 @@ public class CardGameServer {
 		// start the server
 		try {
 			// creates a ServerScoket
-			ServerSocket serverSocket = new ServerSocket(port);
+			ServerSocket serverSocket = new ServerSocket(port, acceptBacklog);
 			println("Starts up the server at localhost:"
 					+ serverSocket.getLocalPort());
 			serverUp = true;
 			while (serverUp) {
 				// waits for clients to connect
 				Socket clientSocket = serverSocket.accept();
-				addConnection(clientSocket);
+				if (!admit(numOfHandshakes.get())) {
+					closeQuietly(clientSocket);
+					continue;
+				}
+				// the first bytes of the client are read by a thread of its
+				// own, so a client which sends nothing holds up no other,
+				// unless the client is to be turned away as the server is
+				// full; either way, the timer closes the socket if they are
+				// not read within HANDSHAKE_TIMEOUT milliseconds from now
+				InputStream istream = clientSocket.getInputStream();
+				HashedWheelTimer.Timeout handshakeTimer = new HashedWheelTimer.Timeout(
+						() -> closeQuietly(clientSocket));
+				timer.schedule(handshakeTimer, HANDSHAKE_TIMEOUT);
+				numOfHandshakes.incrementAndGet();
+				Runnable handshake = () -> {
+					try {
+						addConnection(clientSocket, istream, handshakeTimer);
+					} finally {
+						numOfHandshakes.decrementAndGet();
+					}
+				};
+				if (isFull()) {
+					try {
+						rejectPool.execute(handshake);
+					} catch (RejectedExecutionException ex) {
+						// too many clients are waiting to be turned away
+						numOfHandshakes.decrementAndGet();
+						timer.cancel(handshakeTimer);
+						throttled.increment();
+						closeQuietly(clientSocket);
+					}
+				} else {
+					connectionThreads.newThread(handshake).start();
+				}
 			} // while
 			serverSocket.close();
 		} catch (Exception ex) {
@@ -123,45 +678,172 @@ public class CardGameServer {
 		}
 	} // start
 
+	/**
+	 * Starts the server at the specified port, with the connections handled by
+	 * the specified number of event loops. Each event loop is a thread which
+	 * multiplexes its connections with a Selector, so the number of
+	 * connections is not limited by the number of threads.
+	 * 
+	 * @param port
+	 *            the specified port at which the server starts
+	 * @param numOfEventLoops
+	 *            the number of event loops, or 0 to handle each connection
+	 *            with a thread of its own
+	 */
+	public void start(int port, int numOfEventLoops) {
+		if (numOfEventLoops <= 0) {
+			start(port);
+			return;
+		}
+		// start the server
+		try {
+			// creates a ServerSocketChannel, which accepts the connections in
+			// blocking mode and passes them to the event loops in turn
+			ServerSocketChannel serverChannel = ServerSocketChannel.open();
+			serverChannel.bind(new InetSocketAddress(port), acceptBacklog);
+			serverUp = true;
+			EventLoop[] eventLoops = new EventLoop[numOfEventLoops];
+			for (int i = 0; i < numOfEventLoops; i++) {
+				eventLoops[i] = new EventLoop(this);
+				Thread t = new Thread(eventLoops[i], "EventLoop-" + i);
+				t.start();
+			}
+			println("Starts up the server at localhost:"
+					+ serverChannel.socket().getLocalPort() + " with "
+					+ numOfEventLoops + " event loops");
+			int next = 0;
+			while (serverUp) {
+				// waits for clients to connect
+				SocketChannel channel = serverChannel.accept();
+				// the event loops read the first bytes without a thread of
+				// their own, so only the rate is limited
+				if (!admit(0)) {
+					closeQuietly(channel.socket());
+					continue;
+				}
+				eventLoops[next].register(channel);
+				next = (next + 1) % numOfEventLoops;
+			} // while
+			serverChannel.close();
+		} catch (Exception ex) {
+			println("Error in starting up the server at localhost:" + port);
+			if (!silentMode) ex.printStackTrace();
+		}
+	} // start
+
+
+	/**
+	 * Returns a boolean indicating if a connection just accepted is admitted,
+	 * i.e., the rate at which the connections are accepted is within the limit
+	 * and the backlog is not full. A connection not admitted is counted as
+	 * throttled.
+	 * 
+	 * @param numOfWaiting
+	 *            the number of connections waiting for their first bytes to
+	 *            be read
+	 * @return true if the connection is admitted; false otherwise
+	 */
+	private boolean admit(int numOfWaiting) {
+		if (numOfWaiting < acceptBacklog && acceptLimiter.tryAcquire()) {
+			return true;
+		}
+		throttled.increment();
+		return false;
+	}
+
+	/**
+	 * Returns a boolean indicating if a client connecting now would be turned
+	 * away, i.e., there is no table with a free seat and no more tables can be
+	 * created. A client is never turned away in matchmaking mode.
+	 * 
+	 * @return true if the server is full; false otherwise
+	 */
+	private boolean isFull() {
+		if (matchmaking) {
+			return false;
+		}
+		lobbyLock.lock();
+		try {
+			return openTables.isEmpty() && tables.size() >= maxNumOfTables;
+		} finally {
+			lobbyLock.unlock();
+		}
+	}
+
+	/**
+	 * Closes the specified socket, ignoring any error.
+	 * 
+	 * @param socket
+	 *            the socket to be closed
+	 */
+	private void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException ex) {
+		}
+	}
+
 	/**
 	 * Parses the incoming message from the specified client.
 	 * 
-	 * @param clientSocket
-	 *            the socket connection to the specified client
+	 * @param client
+	 *            the connection to the specified client
 	 * @param message
 	 *            the message received from the specified client
 	 */
-	private synchronized void parseMessage(Socket clientSocket,
-			CardGameMessage message) {
-		// updates the playerID
-		for (int i = 0; i < maxNumOfPlayers; i++) {
-			if (clientSockets[i] == clientSocket) {
-				message.setPlayerID(i);
-				break;
-			}
+	void parseMessage(ClientConnection client, CardGameMessage message) {
+		// the messages about the table are handled by the actor of the
+		// table, which checks that the client is still seated there
+		Table table = client.table;
+		int seat = client.seat;
+		// any message tells that the client is alive
+		client.lastReceived = System.currentTimeMillis();
+		if (table == null && isTableMessage(message.getType())) {
+			// the client is waiting to be seated by matchmaking
+			return;
 		}
-
 		// parses the message based on it type
 		switch (message.getType()) {
 		case CardGameMessage.JOIN:
 			// adds a player to the game
-			addPlayer(clientSocket, (String) message.getData());
+			String name = (String) message.getData();
+			table.execute(() -> table.addPlayer(client, seat, name));
 			break;
 		case CardGameMessage.READY:
 			// marks the specified player as ready for a new game
-			setReadyState(clientSocket);
+			table.execute(() -> table.setReadyState(client, seat));
 			break;
 		case CardGameMessage.MOVE:
-			println("Broadcasts a \"MOVE\" message from "
-					+ clientSocket.getRemoteSocketAddress());
-			// broadcast the MOVE message to all clients
-			broadcastMessage(message);
+			table.execute(() -> table.makeMove(client, seat, message));
 			break;
 		case CardGameMessage.MSG:
-			println("Broadcasts a user message from "
-					+ clientSocket.getRemoteSocketAddress());
+			if (verboseMode) println("Broadcasts a user message from "
+					+ client.getRemoteSocketAddress());
 			// broadcast the user message to all clients
-			broadcastUserMessage(clientSocket, (String) message.getData());
+			String msg = (String) message.getData();
+			table.execute(() -> table.broadcastUserMessage(client, seat, msg));
+			break;
+		case CardGameMessage.TABLE_LIST:
+			// sends the list of tables to the client
+			sendTableList(client);
+			break;
+		case CardGameMessage.CREATE_TABLE:
+			// moves the client to a new table
+			createTable(client);
+			break;
+		case CardGameMessage.JOIN_TABLE:
+			// moves the client to the specified table
+			Object tableID = message.getData();
+			joinTable(client, (tableID instanceof Integer) ? (Integer) tableID
+					: -1);
+			break;
+		case CardGameMessage.PING:
+			// replies to the heartbeat of the client
+			client.sendMessage(new CardGameMessage(CardGameMessage.PONG, -1,
+					null));
+			break;
+		case CardGameMessage.PONG:
+			// the time it is received is all that counts
 			break;
 		default:
 			println("Wrong message type: " + message.getType());
@@ -171,186 +853,615 @@ public class CardGameServer {
 	} // parseMessage
 
 	/**
-	 * Broadcasts the specified message to all clients.
+	 * Returns a boolean indicating if a message of the specified type is
+	 * about the table of the client, and is handled by the actor of the table.
 	 * 
-	 * @param message
-	 *            the specified message to be broadcast to all clients
+	 * @param type
+	 *            the type of the message
+	 * @return true if the message is about the table; false otherwise
 	 */
-	private synchronized void broadcastMessage(CardGameMessage message) {
-		if (numOfPlayers > 0) {
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientSockets[i] != null && clientOutputStreams[i] != null) {
-					try {
-						clientOutputStreams[i].writeObject(message);
-					} catch (Exception ex) {
-						println("Error in broadcasting a message to the client at "
-								+ clientSockets[i].getRemoteSocketAddress());
-						if (!silentMode) ex.printStackTrace();
-					}
-				}
-			}
-		}
-	} // broadcastMessage
+	private boolean isTableMessage(int type) {
+		return type == CardGameMessage.JOIN || type == CardGameMessage.READY
+				|| type == CardGameMessage.MOVE || type == CardGameMessage.MSG;
+	}
 
 	/**
 	 * Adds a new socket connection to the server
 	 * 
 	 * @param clientSocket
 	 *            the socket connection to be added to the server
+	 * @param istream
+	 *            the InputStream of the client socket, possibly preceded by
+	 *            the bytes already read from the socket
+	 * @param handshakeTimer
+	 *            the timer closing the socket if the first bytes of the
+	 *            client are not read in time, which is cancelled once they
+	 *            are, or null if there is none
 	 */
-	private synchronized void addConnection(Socket clientSocket) {
-		// adds this connection to the server if the server is not full
-		if (numOfPlayers < maxNumOfPlayers) {
-			// locates the first empty slot for the new connection
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientSockets[i] == null) {
-					try {
-						// creates an ObjectOutputStream for this client socket
-						ObjectOutputStream oostream = new ObjectOutputStream(
-								clientSocket.getOutputStream());
-
-						clientSockets[i] = clientSocket;
-						clientOutputStreams[i] = oostream;
-						clientNames[i] = null;
-						clientReadyStates[i] = false;
-						numOfPlayers++;
-						println("Establishes a connection with a client at "
-								+ clientSocket.getRemoteSocketAddress());
-
-						// creates a thread for receiving messages from this
-						// client
-						Thread t = new Thread(new ClientHandler(clientSocket));
-						t.start();
-
-						// sends the player list to the new player
-						oostream.writeObject(new CardGameMessage(
-								CardGameMessage.PLAYER_LIST, i, clientNames));
-					} catch (Exception ex) {
-						println("Error in establishing a connection with a client at "
-								+ clientSocket.getRemoteSocketAddress());
-						if (!silentMode) ex.printStackTrace();
-					}
-					break;
-				}
-			} // for
-		} else {
-			// Max. no. of players reached
-			println("Server is full: cannot establish a connection with a client at "
+	void addConnection(Socket clientSocket, InputStream istream,
+			HashedWheelTimer.Timeout handshakeTimer) {
+		// tells the protocol of the client by the first bytes it sends
+		PushbackInputStream pistream = new PushbackInputStream(istream,
+				MessageFrame.HEADER_LENGTH);
+		MessageCodec codec;
+		int routeID;
+		try {
+			// a client which sends nothing is not waited for forever
+			clientSocket.setSoTimeout(HANDSHAKE_TIMEOUT);
+			routeID = readNodeHeader(clientSocket, pistream);
+			if (routeID == HEALTH_CHECKED) {
+				closeQuietly(clientSocket);
+				return;
+			}
+			codec = readPreamble(pistream);
+			clientSocket.setSoTimeout(0);
+		} catch (Exception ex) {
+			println("Error in establishing a connection with a client at "
 					+ clientSocket.getRemoteSocketAddress());
+			if (!silentMode) ex.printStackTrace();
+			closeQuietly(clientSocket);
+			return;
+		} finally {
+			if (handshakeTimer != null) {
+				timer.cancel(handshakeTimer);
+			}
+		}
 
-			// creates a thread for sending a FULL message to this client, waits
-			// for 1000 milliseconds and closes the socket
-			Thread t = new Thread(new ClientHandler2(clientSocket));
-			t.start();
+		// in matchmaking mode, the client is queued without the lock of the
+		// lobby, and seated by a round of matchmaking, unless it is routed
+		// to a table by a gateway
+		if (matchmaking && routeID < 0) {
+			SocketConnection client = createConnection(clientSocket, pistream,
+					codec);
+			if (client != null) {
+				enqueue(client);
+				// creates a thread for receiving messages from this client
+				connectionThreads.newThread(new ClientHandler(client)).start();
+			}
+			return;
 		}
 
+		// adds this connection to the server if the server is not full; the
+		// preamble is read before the lock of the lobby is acquired
+		boolean full = false;
+		lobbyLock.lock();
+		try {
+			Table table = (routeID >= 0) ? findRoutedTable(routeID)
+					: findOpenTable();
+			if (table == null) {
+				// Max. no. of players reached
+				println("Server is full: cannot establish a connection with a client at "
+						+ clientSocket.getRemoteSocketAddress());
+				full = true;
+				return;
+			}
+			SocketConnection client = createConnection(clientSocket, pistream,
+					codec);
+			if (client != null) {
+				// seats the new player, which sends the player list to the
+				// new player
+				seat(client, table);
+				register(client);
+
+				// creates a thread for receiving messages from this client
+				connectionThreads.newThread(new ClientHandler(client)).start();
+			}
+		} finally {
+			lobbyLock.unlock();
+			if (full) {
+				// sends a FULL message to this client without the lock of the
+				// lobby, and has the timer close the socket
+				reject(clientSocket, codec);
+			}
+		}
 	} // addConnection
 
 	/**
-	 * Removes a connection from the server (possibly due to connection loss).
+	 * Creates a connection on the specified socket, and starts the thread
+	 * sending messages to the client.
 	 * 
 	 * @param clientSocket
-	 *            the socket connection being removed from the server
+	 *            the socket connection to the client
+	 * @param istream
+	 *            the InputStream of the client socket
+	 * @param codec
+	 *            the codec of the client, or null for a legacy client
+	 * @return the connection, or null if it cannot be created
 	 */
-	private synchronized void removeConnection(Socket clientSocket) {
-		if (numOfPlayers > 0) {
-			// locates the client socket in the array
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientSockets[i] == clientSocket) {
-					String name = clientNames[i];
+	private SocketConnection createConnection(Socket clientSocket,
+			InputStream istream, MessageCodec codec) {
+		try {
+			// creates the output stream for this client socket
+			SocketConnection client = new SocketConnection(this, clientSocket,
+					istream, codec);
+			println("Establishes a connection with a client at "
+					+ clientSocket.getRemoteSocketAddress());
 
-					clientSockets[i] = null;
-					clientOutputStreams[i] = null;
-					clientNames[i] = null;
-					clientReadyStates[i] = false;
-					numOfPlayers--;
+			// creates a thread for sending messages to this client
+			client.writer = connectionThreads.newThread(new ClientWriter(client));
+			client.writer.start();
+			return client;
+		} catch (Exception ex) {
+			println("Error in establishing a connection with a client at "
+					+ clientSocket.getRemoteSocketAddress());
+			if (!silentMode) ex.printStackTrace();
+			closeQuietly(clientSocket);
+			return null;
+		}
+	}
 
-					println(name + " (" + clientSocket.getRemoteSocketAddress()
-							+ ") leaves the game.");
+	/**
+	 * Sends a FULL message to the specified client, and has the timer close
+	 * the socket REJECT_CLOSE_DELAY to twice REJECT_CLOSE_DELAY milliseconds
+	 * later, so that the client reads the message before the connection is
+	 * closed. The message is small enough to fit in the send buffer of the
+	 * socket, so it is written without blocking. It must not be called with
+	 * the lock of the lobby held.
+	 * 
+	 * @param clientSocket
+	 *            the socket connection to the client
+	 * @param codec
+	 *            the codec of the client, or null for a legacy client
+	 */
+	private void reject(Socket clientSocket, MessageCodec codec) {
+		rejected.increment();
+		try {
+			CardGameMessage message = new CardGameMessage(
+					CardGameMessage.FULL, -1, null);
+			if (codec == null) {
+				// creates an ObjectOutputStream and chains it to the
+				// OutputStream of the client socket
+				ObjectOutputStream oostream = new ObjectOutputStream(
+						clientSocket.getOutputStream());
+				// sends a FULL message to the client
+				oostream.writeObject(message);
+				oostream.flush();
+			} else {
+				// sends a FULL frame to the client
+				MessageFrame.write(new DataOutputStream(
+						clientSocket.getOutputStream()), message, codec);
+			}
+		} catch (Exception ex) {
+			println("Error in sending a FULL message to the client at "
+					+ clientSocket.getRemoteSocketAddress());
+			if (!silentMode) ex.printStackTrace();
+		}
+		// the socket is counted once it is queued, and the first socket
+		// queued while there are none schedules the timer
+		rejectedSockets.offer(clientSocket);
+		if (numOfRejectedSockets.getAndIncrement() == 0) {
+			timer.schedule(rejectTimer, REJECT_CLOSE_DELAY);
+		}
+	} // reject
 
-					String remoteAddress = clientSocket
-							.getRemoteSocketAddress().toString();
+	/**
+	 * Closes the sockets rejected before the last run of this method, which
+	 * have been given REJECT_CLOSE_DELAY milliseconds at least, and runs
+	 * again REJECT_CLOSE_DELAY milliseconds later if any socket is left. Run
+	 * by the timer.
+	 */
+	private void closeRejected() {
+		for (int i = 0; i < numOfRejectedSocketsDue; i++) {
+			closeQuietly(rejectedSockets.poll());
+		}
+		numOfRejectedSocketsDue = numOfRejectedSockets
+				.addAndGet(-numOfRejectedSocketsDue);
+		if (numOfRejectedSocketsDue > 0) {
+			timer.schedule(rejectTimer, REJECT_CLOSE_DELAY);
+		}
+	}
 
-					// broadcasts a message about the leaving of this player
-					broadcastMessage(new CardGameMessage(CardGameMessage.QUIT,
-							i, remoteAddress));
-					break;
-				}
+	/**
+	 * Reads the header of the node protocol sent by a gateway ahead of the
+	 * first bytes of a client, if there is one (see NodeProtocol). A health
+	 * check is answered at once. The bytes sent by a client which is not
+	 * routed by a gateway are pushed back.
+	 * 
+	 * @param clientSocket
+	 *            the socket connection to the client
+	 * @param pistream
+	 *            the InputStream of the client
+	 * @return the ID of the route of the client, -1 if the client is not
+	 *         routed by a gateway, or HEALTH_CHECKED if the connection is a
+	 *         health check
+	 * @throws IOException
+	 *             if the header cannot be read or is not valid
+	 */
+	private int readNodeHeader(Socket clientSocket, PushbackInputStream pistream)
+			throws IOException {
+		byte[] bytes = new byte[MessageFrame.HEADER_LENGTH];
+		DataInputStream distream = new DataInputStream(pistream);
+		distream.readFully(bytes);
+		int command = ByteBuffer.wrap(bytes).getInt();
+		if (!NodeProtocol.isCommand(command)) {
+			pistream.unread(bytes);
+			return -1;
+		}
+		int argument = distream.readInt();
+		if (command == NodeProtocol.HEALTH) {
+			clientSocket.getOutputStream().write(
+					NodeProtocol.healthReply(connections.size()).array());
+			return HEALTH_CHECKED;
+		}
+		if (command != NodeProtocol.ROUTE || argument < 0) {
+			throw new StreamCorruptedException("Invalid node header");
+		}
+		return argument;
+	}
+
+	/**
+	 * Reads the first bytes sent by a client on a blocking socket, and returns
+	 * the codec of the framed protocol named by the preamble. The bytes sent by
+	 * a legacy client are pushed back to be read as a Java object stream.
+	 * 
+	 * @param pistream
+	 *            the InputStream of the client
+	 * @return the codec of the client, or null for a legacy client
+	 * @throws IOException
+	 *             if the first bytes cannot be read or are not valid
+	 */
+	private MessageCodec readPreamble(PushbackInputStream pistream)
+			throws IOException {
+		byte[] bytes = new byte[MessageFrame.HEADER_LENGTH];
+		new DataInputStream(pistream).readFully(bytes);
+		int preamble = ByteBuffer.wrap(bytes).getInt();
+		if ((preamble >>> 16) == MessageFrame.STREAM_MAGIC) {
+			pistream.unread(bytes);
+			return null;
+		}
+		MessageCodec codec = getCodec(MessageFrame.getCodecId(preamble));
+		if (codec == null) {
+			throw new StreamCorruptedException("Invalid preamble");
+		}
+		return codec;
+	}
+
+	/**
+	 * Returns the codec of the framed protocol with the specified ID.
+	 * 
+	 * @param codecId
+	 *            the ID of the codec
+	 * @return the codec, or null if there is no codec with the ID
+	 */
+	MessageCodec getCodec(int codecId) {
+		return (codecId >= 0 && codecId < codecs.length) ? codecs[codecId]
+				: null;
+	}
+
+	/**
+	 * Adds a new connection of the framed protocol to the server. If the
+	 * server is full, the connection is closed after a FULL message is sent.
+	 * 
+	 * @param client
+	 *            the connection to be added to the server
+	 */
+	void addConnection(ChannelConnection client) {
+		if (matchmaking && client.routeID < 0) {
+			println("Establishes a connection with a client at "
+					+ client.getRemoteSocketAddress());
+			enqueue(client);
+			return;
+		}
+		lobbyLock.lock();
+		try {
+			// adds this connection to the server if the server is not full
+			Table table = (client.routeID >= 0) ? findRoutedTable(client.routeID)
+					: findOpenTable();
+			if (table != null) {
+				println("Establishes a connection with a client at "
+						+ client.getRemoteSocketAddress());
+				seat(client, table);
+				register(client);
+			} else {
+				// Max. no. of players reached
+				println("Server is full: cannot establish a connection with a client at "
+						+ client.getRemoteSocketAddress());
+				rejected.increment();
+				client.sendMessage(new CardGameMessage(CardGameMessage.FULL, -1,
+						null));
+				client.closeAfterFlush();
 			}
+		} finally {
+			lobbyLock.unlock();
 		}
-	} // removeConnection
+	} // addConnection
 
 	/**
-	 * adds a player to the game.
+	 * Registers the specified connection, and puts it in the matchmaking queue
+	 * in the rating bucket of the client. It takes no lock.
 	 * 
-	 * @param clientSocket
-	 *            the socket connection to the player who is joining the game
-	 * @param name
-	 *            the name of the player who is joining the game
+	 * @param client
+	 *            the connection to be queued
 	 */
-	private synchronized void addPlayer(Socket clientSocket, String name) {
-		if (numOfPlayers > 0) {
-			// locates the client socket in the array
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientSockets[i] == clientSocket) {
-					// updates the name of the new player
-					clientNames[i] = name;
+	private void enqueue(ClientConnection client) {
+		register(client);
+		matchmaker.enqueue(client,
+				getRatingBucket(client.getRemoteSocketAddress()));
+	}
 
-					println(name + " (" + clientSocket.getRemoteSocketAddress()
-							+ ") joins the game.");
+	/**
+	 * Runs a round of matchmaking, and schedules the next round as long as the
+	 * server is in matchmaking mode or any client is waiting. Run by the pool
+	 * of the tables; the rounds are run one at a time, as each holds the lock
+	 * of the lobby.
+	 */
+	private void matchRound() {
+		lobbyLock.lock();
+		try {
+			matchmaker.match(client -> client.table == null
+					&& connections.containsKey(client.connectionID),
+					this::seatGroup, this::seatStraggler);
+		} finally {
+			if (matchmaking || matchmaker.getNumOfWaiting() > 0) {
+				timer.schedule(matchTimer, MATCH_INTERVAL);
+			}
+			lobbyLock.unlock();
+		}
+	}
 
-					// broadcasts a message about this player joining the game
-					broadcastMessage(new CardGameMessage(CardGameMessage.JOIN,
-							i, name));
-					break;
-				}
+	/**
+	 * Seats the specified group of clients at a new table, which is the least
+	 * loaded of all. The caller must hold the lock of the lobby.
+	 * 
+	 * @param clients
+	 *            the clients of the group
+	 * @param enqueued
+	 *            the times at which the clients were queued, in nanoseconds
+	 * @return true if the group is seated; false if no more tables can be
+	 *         created
+	 */
+	private boolean seatGroup(List<ClientConnection> clients, long[] enqueued) {
+		Table table = newTable();
+		if (table == null) {
+			return false;
+		}
+		long now = System.nanoTime();
+		for (int i = 0; i < clients.size(); i++) {
+			seat(clients.get(i), table);
+			matchWait.record(now - enqueued[i]);
+		}
+		matchGroups.increment();
+		return true;
+	}
+
+	/**
+	 * Seats the specified client, which has waited too long for a group, at
+	 * the first open table. The caller must hold the lock of the lobby.
+	 * 
+	 * @param client
+	 *            the client to be seated
+	 * @param enqueued
+	 *            the time at which the client was queued, in nanoseconds
+	 * @return true if the client is seated; false if the server is full
+	 */
+	private boolean seatStraggler(ClientConnection client, long enqueued) {
+		Table table = findOpenTable();
+		if (table == null) {
+			return false;
+		}
+		seat(client, table);
+		matchWait.record(System.nanoTime() - enqueued);
+		matchStragglers.increment();
+		return true;
+	}
+
+	/**
+	 * Registers the specified connection, which is seated or queued for
+	 * matchmaking, and starts its heartbeat.
+	 * 
+	 * @param client
+	 *            the connection to be registered
+	 */
+	private void register(ClientConnection client) {
+		connections.put(client.connectionID, client);
+		admitted.increment();
+		timer.schedule(client.heartbeat, heartbeatInterval);
+	}
+
+	/**
+	 * Removes a connection from the server (possibly due to connection loss).
+	 * 
+	 * @param client
+	 *            the connection being removed from the server
+	 */
+	void removeConnection(ClientConnection client) {
+		connections.remove(client.connectionID);
+		timer.cancel(client.heartbeat);
+		lobbyLock.lock();
+		try {
+			if (client.table != null) {
+				unseat(client);
 			}
+		} finally {
+			lobbyLock.unlock();
 		}
-	} // addPlayer
+	} // removeConnection
 
 	/**
-	 * Marks the specified player as ready for a new game.
+	 * Returns the first table with a free seat, creating a new table if there
+	 * is none. The caller must hold the lock of the lobby.
 	 * 
-	 * @param clientSocket
-	 *            the socket connection to the player who becomes ready for a
-	 *            new game
+	 * @return the first table with a free seat, or null if all the tables are
+	 *         full and no more tables can be created
 	 */
-	private synchronized void setReadyState(Socket clientSocket) {
-		if (numOfPlayers > 0) {
-			// locates the client socket in the array
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientSockets[i] == clientSocket) {
-					clientReadyStates[i] = true;
-					println(clientNames[i] + " ("
-							+ clientSocket.getRemoteSocketAddress()
-							+ " ) is ready for the next game.");
-					broadcastMessage(new CardGameMessage(CardGameMessage.READY,
-							i, null));
-					break;
-				}
+	private Table findOpenTable() {
+		if (!openTables.isEmpty()) {
+			return openTables.firstEntry().getValue();
+		}
+		return newTable();
+	}
+
+	/**
+	 * Returns the table of the clients of the specified route, i.e., of a
+	 * table of a gateway, creating a new table if there is none or it is
+	 * full. The caller must hold the lock of the lobby.
+	 * 
+	 * @param routeID
+	 *            the ID of the route
+	 * @return the table of the route, or null if it is full and no more
+	 *         tables can be created
+	 */
+	private Table findRoutedTable(int routeID) {
+		Table table = routedTables.get(routeID);
+		if (table != null && openTables.get(table.tableID) == table) {
+			return table;
+		}
+		table = newTable();
+		if (table != null) {
+			table.routeID = routeID;
+			routedTables.put(routeID, table);
+		}
+		return table;
+	}
+
+	/**
+	 * Creates and returns a new table. The caller must hold the lock of the
+	 * lobby.
+	 * 
+	 * @return the new table, or null if no more tables can be created
+	 */
+	private Table newTable() {
+		if (tables.size() >= maxNumOfTables) {
+			return null;
+		}
+		Table table = new Table(nextTableID++);
+		tables.put(table.tableID, table);
+		openTables.put(table.tableID, table);
+		println("Creates table " + table.tableID);
+		return table;
+	}
+
+	/**
+	 * Seats the specified client at the specified table. The caller must hold
+	 * the lock of the lobby.
+	 * 
+	 * @param client
+	 *            the connection to the client, which is not seated
+	 * @param table
+	 *            a table with a free seat
+	 */
+	private void seat(ClientConnection client, Table table) {
+		table.seat(client);
+		if (table.numOfPlayers == maxNumOfPlayers) {
+			openTables.remove(table.tableID);
+		}
+	}
+
+	/**
+	 * Removes the specified client from its table, and removes the table if it
+	 * becomes empty. The caller must hold the lock of the lobby.
+	 * 
+	 * @param client
+	 *            the connection to the client, which is seated
+	 */
+	private void unseat(ClientConnection client) {
+		Table table = client.table;
+		table.unseat(client);
+		if (table.numOfPlayers == 0) {
+			tables.remove(table.tableID);
+			openTables.remove(table.tableID);
+			if (table.routeID >= 0) {
+				routedTables.remove(table.routeID, table);
 			}
+			println("Removes table " + table.tableID);
+		} else {
+			openTables.put(table.tableID, table);
 		}
+	}
 
-		// checks if all players are ready
-		if (numOfPlayers == maxNumOfPlayers) {
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientReadyStates[i] == false) {
-					// returns if any of the players is not ready
-					return;
-				}
+	/**
+	 * Returns the sum of the specified quantity over the outbound queues or
+	 * streams of the connections registered. No lock is held, so the sum is
+	 * only a snapshot of a moving quantity.
+	 * 
+	 * @param quantity
+	 *            the quantity of a connection
+	 * @return the sum of the quantity over the connections registered
+	 */
+	private long sumOutbound(ToLongFunction<ClientConnection> quantity) {
+		long sum = 0;
+		for (ClientConnection client : connections.values()) {
+			sum += quantity.applyAsLong(client);
+		}
+		return sum;
+	}
+
+	/**
+	 * Sends the list of tables to the specified client.
+	 * 
+	 * @param client
+	 *            the connection to the client
+	 */
+	private void sendTableList(ClientConnection client) {
+		lobbyLock.lock();
+		try {
+			int[] list = new int[tables.size() * 2];
+			int i = 0;
+			for (Table table : tables.values()) {
+				list[i++] = table.tableID;
+				list[i++] = table.numOfPlayers;
 			}
+			// a client waiting to be seated by matchmaking has no table
+			Table table = client.table;
+			client.sendMessage(new CardGameMessage(CardGameMessage.TABLE_LIST,
+					(table != null) ? table.tableID : -1, list));
+		} finally {
+			lobbyLock.unlock();
+		}
+	}
 
-			// resets the ready states of all the players for the next game
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				clientReadyStates[i] = false;
+	/**
+	 * Moves the specified client to a new table.
+	 * 
+	 * @param client
+	 *            the connection to the client
+	 */
+	private void createTable(ClientConnection client) {
+		lobbyLock.lock();
+		try {
+			Table table = newTable();
+			if (table == null) {
+				println("Cannot create a table for the client at "
+						+ client.getRemoteSocketAddress());
+				client.sendMessage(new CardGameMessage(CardGameMessage.FULL, -1,
+						null));
+				return;
+			}
+			if (client.table != null) {
+				unseat(client);
 			}
+			seat(client, table);
+		} finally {
+			lobbyLock.unlock();
+		}
+	}
 
-			// creates a new deck, shuffles the deck, and starts a new game
-			Deck deck = createDeck();
-			deck.shuffle();
-			println("All players are ready. Game starts.");
-			broadcastMessage(new CardGameMessage(CardGameMessage.START, -1,
-					deck));
+	/**
+	 * Moves the specified client to the specified table, if it has a free seat.
+	 * 
+	 * @param client
+	 *            the connection to the client
+	 * @param tableID
+	 *            the ID of the table to be joined
+	 */
+	private void joinTable(ClientConnection client, int tableID) {
+		lobbyLock.lock();
+		try {
+			Table table = openTables.get(tableID);
+			if (table == null || table == client.table) {
+				println("Cannot seat the client at "
+						+ client.getRemoteSocketAddress() + " at table "
+						+ tableID);
+				client.sendMessage(new CardGameMessage(CardGameMessage.FULL, -1,
+						tableID));
+				return;
+			}
+			if (client.table != null) {
+				unseat(client);
+			}
+			seat(client, table);
+		} finally {
+			lobbyLock.unlock();
 		}
 	}
 
@@ -364,132 +1475,585 @@ public class CardGameServer {
 		return new Deck();
 	}
 
-	private synchronized void broadcastUserMessage(Socket clientSocket,
-			String msg) {
-		if (numOfPlayers > 0) {
-			// locates the client in the array
-			for (int i = 0; i < maxNumOfPlayers; i++) {
-				if (clientSockets[i] == clientSocket) {
-					String longMsg = clientNames[i] + " ("
-							+ clientSocket.getRemoteSocketAddress() + "): "
-							+ msg;
-					broadcastMessage(new CardGameMessage(CardGameMessage.MSG,
-							i, longMsg));
-					break;
-				}
-			}
-		}
+	/**
+	 * Creates and returns the authoritative state of a new game, against which
+	 * the moves of the players are checked. Overrides this method to have the
+	 * moves checked by the server. Each table has its own game.
+	 * 
+	 * @return the state of a new game, or null if the moves are not checked
+	 */
+	public CardGame createGame() {
+		return null;
 	}
 
 	/**
-	 * Prints the specified message to the text area.
+	 * Checks the move made by the specified player against the authoritative
+	 * state of the game, and makes the move if it is legal. Overrides this
+	 * method together with createGame(). It is called by the actor of the
+	 * table of the game, one move at a time.
+	 * 
+	 * @param game
+	 *            the state of the game created by createGame()
+	 * @param playerID
+	 *            the playerID of the player who makes the move
+	 * @param cardIdx
+	 *            the list of the indices of the cards selected by the player,
+	 *            or null if the player passes
+	 * @return true if the move is legal; false otherwise
+	 */
+	public boolean checkMove(CardGame game, int playerID, int[] cardIdx) {
+		game.checkMove(playerID, cardIdx);
+		return true;
+	}
+
+	/**
+	 * Prints the specified message to the text area, or to the standard output
+	 * if the server has no GUI.
 	 * 
 	 * @param msg
 	 */
-	private void println(String msg) {
+	void println(String msg) {
+		if (textArea == null) {
+			System.out.println(msg);
+			return;
+		}
 		textArea.append(msg + "\n");
 		textArea.setCaretPosition(textArea.getDocument().getLength());
 	}
 
 	/**
-	 * This inner class is used for receiving incoming messages from a client
+	 * This inner class is used to model a table of the server, with its own
+	 * seats, ready states and game. The state of the game is owned by the
+	 * actor of the table: the messages about the table are queued in its
+	 * mailbox, and run one at a time on the table pool of the server, so the
+	 * game needs no lock and different tables proceed in parallel. The seats
+	 * taken are guarded by the lock of the lobby.
 	 * 
 	 * @author Kenneth Wong
 	 *
 	 */
-	private class ClientHandler implements Runnable {
-		private Socket clientSocket; // socket connection to the client
-		private ObjectInputStream oistream; // ObjectInputStream of the client
+	class Table {
+		// the ID of this table
+		private final int tableID;
+		// Array for holding the seats taken, guarded by the lock of the lobby
+		private final boolean[] seatsTaken;
+		// number of seats taken, guarded by the lock of the lobby
+		private int numOfPlayers = 0;
+		// the ID of the route of the clients seated by a gateway, or -1,
+		// guarded by the lock of the lobby
+		private int routeID = -1;
+		// the tasks to be run by the actor of this table, queued by any thread
+		private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<Runnable>();
+		// a boolean indicating if the actor is scheduled to run on the pool
+		private final AtomicBoolean scheduled = new AtomicBoolean(false);
+		// Array for holding connections to the clients
+		private final ClientConnection[] clients;
+		// Array for holding player names of the clients
+		private final String[] clientNames;
+		// Array for holding ready states of the clients
+		private final boolean[] clientReadyStates;
+		// the authoritative state of the game being played, or null if the
+		// moves are not checked by the server
+		CardGame game = null;
+		// the full deal of the game being played, kept for replays, or null
+		// if no game has started
+		private Deck deal = null;
+		// the time by which the current player is to move
+		private long turnDeadline = 0;
+		// the task of the actor run when the turn times out
+		private final Runnable expireTurnTask = this::expireTurn;
+		// the timer of the turn of the current player, which hands the
+		// timeout over to the actor
+		private final HashedWheelTimer.Timeout turnTimer = new HashedWheelTimer.Timeout(
+				() -> execute(expireTurnTask));
 
 		/**
-		 * Creates and returns an instance of the ClientHandler class.
+		 * Creates and returns an instance of the Table class.
 		 * 
-		 * @param clientSocket
-		 *            the socket connection to the client
+		 * @param tableID
+		 *            the ID of this table
 		 */
-		public ClientHandler(Socket clientSocket) {
-			this.clientSocket = clientSocket;
-			try {
-				// creates an ObjectInputStream and chains it to the InputStream
-				// of the client socket
-				oistream = new ObjectInputStream(clientSocket.getInputStream());
-			} catch (Exception ex) {
-				println("Error in creating an ObjectInputStream for the client at "
-						+ clientSocket.getRemoteSocketAddress());
-				if (!silentMode) ex.printStackTrace();
-			}
+		public Table(int tableID) {
+			this.tableID = tableID;
+
+			// creates arrays for holding the seats taken, client connections,
+			// player names, and ready states
+			seatsTaken = new boolean[maxNumOfPlayers];
+			clients = new ClientConnection[maxNumOfPlayers];
+			clientNames = new String[maxNumOfPlayers];
+			clientReadyStates = new boolean[maxNumOfPlayers];
+
+			// creates the state of the game up front, so that no move goes
+			// unchecked before the first deal
+			game = createGame();
 		} // constructor
 
-		// implementation of method from the Runnable interface
-		public void run() {
-			CardGameMessage message;
-			try {
-				// waits for messages from the client
-				while ((message = (CardGameMessage) oistream.readObject()) != null) {
-					println("Message received from "
-							+ clientSocket.getRemoteSocketAddress());
-					parseMessage(clientSocket, message);
-				} // close while
-			} catch (Exception ex) {
-				println("Error in receiving messages from the client at "
-						+ clientSocket.getRemoteSocketAddress());
-				if (!silentMode) ex.printStackTrace();
-				// possible connection loss, removes the connection
-				removeConnection(clientSocket);
+		/**
+		 * Queues the specified task to be run by the actor of this table, and
+		 * schedules the actor on the table pool if it is not scheduled yet.
+		 * The tasks are run in the order they are queued. It never blocks, and
+		 * may be called by any thread.
+		 * 
+		 * @param task
+		 *            the task to be run by the actor
+		 */
+		void execute(Runnable task) {
+			mailbox.offer(task);
+			if (scheduled.compareAndSet(false, true)) {
+				tablePool.execute(this::drain);
 			}
-		} // run
-	} // ClientHandler
+		} // execute
 
-	private class ClientHandler2 implements Runnable {
-		private Socket clientSocket; // socket connection to the client
+		/**
+		 * Runs the tasks queued in the mailbox, up to ACTOR_BATCH_SIZE of them
+		 * so that the other tables get their turn, and schedules the actor
+		 * again if any task is left.
+		 */
+		private void drain() {
+			int n = 0;
+			Runnable task;
+			while (n < ACTOR_BATCH_SIZE && (task = mailbox.poll()) != null) {
+				try {
+					task.run();
+				} catch (Exception ex) {
+					println("Error in handling a message at table " + tableID);
+					if (!silentMode) ex.printStackTrace();
+				}
+				n++;
+			}
+			actorTasks.add(n);
+			actorRuns.increment();
+			scheduled.set(false);
+			// a task queued after the last poll finds the actor scheduled,
+			// and so does not schedule it
+			if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true)) {
+				tablePool.execute(this::drain);
+			}
+		} // drain
 
 		/**
-		 * Creates and returns an instance of the ClientHandler2 class.
+		 * Takes the first free seat of this table for the specified client,
+		 * and has the actor seat the client. The caller must hold the lock of
+		 * the lobby.
 		 * 
-		 * @param clientSocket
-		 *            the socket connection to the client
+		 * @param client
+		 *            the connection to the client, which is not seated
 		 */
-		public ClientHandler2(Socket clientSocket) {
-			this.clientSocket = clientSocket;
-		} // constructor
+		private void seat(ClientConnection client) {
+			// locates the first empty slot for the new connection
+			for (int i = 0; i < maxNumOfPlayers; i++) {
+				if (!seatsTaken[i]) {
+					seatsTaken[i] = true;
+					numOfPlayers++;
+					// the client is seated by the actor before any message
+					// of the client is handled by it
+					int seat = i;
+					execute(() -> addClient(client, seat));
+					client.seat = i;
+					client.table = this;
+					break;
+				}
+			} // for
+		} // seat
 
-		// implementation of method from the Runnable interface
-		public void run() {
-			try {
-				// creates an ObjectOutputStream and chains it to the
-				// OutputStream
-				// of the client socket
-				ObjectOutputStream oostream = new ObjectOutputStream(
-						clientSocket.getOutputStream());
-				// sends a FULL message to the client
-				oostream.writeObject(new CardGameMessage(CardGameMessage.FULL,
-						-1, null));
-				oostream.flush();
-			} catch (Exception ex) {
-				println("Error in sending a FULL message to the client at "
-						+ clientSocket.getRemoteSocketAddress());
-				if (!silentMode) ex.printStackTrace();
+		/**
+		 * Frees the seat of the specified client, and has the actor remove the
+		 * client. The caller must hold the lock of the lobby.
+		 * 
+		 * @param client
+		 *            the connection to the client, which is seated at this
+		 *            table
+		 */
+		private void unseat(ClientConnection client) {
+			int seat = client.seat;
+			seatsTaken[seat] = false;
+			numOfPlayers--;
+			client.table = null;
+			client.seat = -1;
+			execute(() -> removeClient(client, seat));
+		} // unseat
+
+		/**
+		 * Returns a boolean indicating if the specified client is seated at
+		 * the specified seat. Called by the actor.
+		 * 
+		 * @param client
+		 *            the connection to the client
+		 * @param seat
+		 *            the seat of the client when its message was received
+		 * @return true if the client is seated at the seat; false otherwise
+		 */
+		private boolean isSeated(ClientConnection client, int seat) {
+			return seat >= 0 && clients[seat] == client;
+		}
+
+		/**
+		 * Seats the specified client at the specified seat, and sends the
+		 * player list to the client. Called by the actor.
+		 * 
+		 * @param client
+		 *            the connection to the client
+		 * @param seat
+		 *            the seat taken for the client
+		 */
+		private void addClient(ClientConnection client, int seat) {
+			clients[seat] = client;
+			clientNames[seat] = null;
+			clientReadyStates[seat] = false;
+			println("Seats the client at " + client.getRemoteSocketAddress()
+					+ " at table " + tableID);
+
+			// sends the player list to the new player; the array is copied as
+			// the stream would send a back reference to an array it has sent
+			// before
+			client.sendMessage(new CardGameMessage(CardGameMessage.PLAYER_LIST,
+					seat, clientNames.clone()));
+		} // addClient
+
+		/**
+		 * Removes the specified client from the specified seat. Called by the
+		 * actor.
+		 * 
+		 * @param client
+		 *            the connection to the client
+		 * @param seat
+		 *            the seat freed
+		 */
+		private void removeClient(ClientConnection client, int seat) {
+			if (!isSeated(client, seat)) {
+				return;
 			}
+			String name = clientNames[seat];
 
-			// sleeps for 1000 milliseconds before closing the socket
-			try {
-				Thread.sleep(1000);
-			} catch (Exception ex) {
-				println("Error in sleeping before closing the client socket at "
-						+ clientSocket.getRemoteSocketAddress());
-				if (!silentMode) ex.printStackTrace();
+			clients[seat] = null;
+			clientNames[seat] = null;
+			clientReadyStates[seat] = false;
+			// the game being played (if any) cannot go on
+			game = createGame();
+			deal = null;
+			scheduleTurn();
+
+			println(name + " (" + client.getRemoteSocketAddress()
+					+ ") leaves table " + tableID + ".");
+
+			String remoteAddress = client.getRemoteSocketAddress().toString();
+
+			// broadcasts a message about the leaving of this player
+			broadcastMessage(new CardGameMessage(CardGameMessage.QUIT, seat,
+					remoteAddress));
+		} // removeClient
+
+		/**
+		 * Broadcasts the specified message to all clients at this table.
+		 * Called by the actor.
+		 * 
+		 * @param message
+		 *            the specified message to be broadcast to all clients
+		 */
+		private void broadcastMessage(CardGameMessage message) {
+			// the message is encoded once, and shared by the clients
+			OutboundMessage outbound = new OutboundMessage(message);
+			for (int i = 0; i < maxNumOfPlayers; i++) {
+				if (clients[i] != null) {
+					clients[i].sendMessage(outbound);
+				}
 			}
+		} // broadcastMessage
 
-			// closes the socket
-			try {
-				clientSocket.close();
-			} catch (Exception ex) {
-				println("Error in closing the client socket at "
-						+ clientSocket.getRemoteSocketAddress());
-				if (!silentMode) ex.printStackTrace();
+		/**
+		 * adds a player to the game. Called by the actor.
+		 * 
+		 * @param client
+		 *            the connection to the player who is joining the game
+		 * @param seat
+		 *            the seat of the player
+		 * @param name
+		 *            the name of the player who is joining the game
+		 */
+		private void addPlayer(ClientConnection client, int seat, String name) {
+			if (!isSeated(client, seat)) {
+				return;
+			}
+			// updates the name of the new player
+			clientNames[seat] = name;
+
+			println(name + " (" + client.getRemoteSocketAddress()
+					+ ") joins table " + tableID + ".");
+
+			// broadcasts a message about this player joining the game
+			broadcastMessage(new CardGameMessage(CardGameMessage.JOIN, seat,
+					name));
+		} // addPlayer
+
+		/**
+		 * Marks the specified player as ready for a new game. Called by the
+		 * actor.
+		 * 
+		 * @param client
+		 *            the connection to the player who becomes ready for a new
+		 *            game
+		 * @param seat
+		 *            the seat of the player
+		 */
+		private void setReadyState(ClientConnection client, int seat) {
+			if (!isSeated(client, seat)) {
+				return;
+			}
+			clientReadyStates[seat] = true;
+			println(clientNames[seat] + " (" + client.getRemoteSocketAddress()
+					+ " ) is ready for the next game.");
+			broadcastMessage(new CardGameMessage(CardGameMessage.READY, seat,
+					null));
+
+			// checks if all seats are taken by players who are ready
+			for (int i = 0; i < maxNumOfPlayers; i++) {
+				if (clients[i] == null || clientReadyStates[i] == false) {
+					// returns if any of the players is not ready
+					return;
+				}
+			}
+
+			// resets the ready states of all the players for the next game
+			for (int i = 0; i < maxNumOfPlayers; i++) {
+				clientReadyStates[i] = false;
+			}
+
+			// creates a new deck, shuffles the deck, and starts a new game
+			Deck deck = createDeck();
+			deck.shuffle();
+			game = createGame();
+			println("All players at table " + tableID
+					+ " are ready. Game starts.");
+			if (game == null) {
+				// the moves are not checked, so each client deals the cards
+				// itself
+				broadcastMessage(new CardGameMessage(CardGameMessage.START, -1,
+						deck));
+				return;
+			}
+
+			// the game consumes the cards it deals, so it is given a copy
+			deal = deck;
+			Deck copy = createDeck();
+			copy.removeAllCards();
+			for (int i = 0; i < deck.size(); i++) {
+				copy.addCard(deck.getCard(i));
+			}
+			game.start(copy);
+			sendDeals();
+			scheduleTurn();
+		} // setReadyState
+
+		/**
+		 * Sends each player the cards dealt to this player by the game, and
+		 * the number of cards dealt to each player. Called by the actor.
+		 */
+		private void sendDeals() {
+			int[] numOfCards = getNumOfCards();
+			for (int i = 0; i < maxNumOfPlayers; i++) {
+				CardGameDeal hand = new CardGameDeal(i, game.getPlayerList()
+						.get(i).getCardsInHand(), numOfCards,
+						game.getCurrentPlayerIdx());
+				clients[i].sendMessage(new CardGameMessage(
+						CardGameMessage.START, i, hand));
+			}
+		} // sendDeals
+
+		/**
+		 * Returns the number of cards held by each player in the game. Called
+		 * by the actor.
+		 * 
+		 * @return an array holding the number of cards held by each player
+		 */
+		private int[] getNumOfCards() {
+			int[] numOfCards = new int[maxNumOfPlayers];
+			for (int i = 0; i < maxNumOfPlayers; i++) {
+				numOfCards[i] = game.getPlayerList().get(i).getNumOfCards();
 			}
-		} // run
-	} // ClientHandler2
+			return numOfCards;
+		}
+
+		/**
+		 * Returns a boolean indicating if a game checked by the server is
+		 * being played, i.e., it has started and no player has won. Called by
+		 * the actor.
+		 * 
+		 * @return true if a game is being played; false otherwise
+		 */
+		private boolean isPlaying() {
+			if (deal == null) {
+				return false;
+			}
+			for (int i = 0; i < maxNumOfPlayers; i++) {
+				if (game.getPlayerList().get(i).getNumOfCards() == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Starts the timer of the turn of the current player, or stops it if
+		 * no game checked by the server is being played. Called by the actor
+		 * whenever the turn changes.
+		 */
+		private void scheduleTurn() {
+			long timeout = turnTimeout;
+			if (timeout <= 0 || !isPlaying()) {
+				timer.cancel(turnTimer);
+				return;
+			}
+			turnDeadline = System.currentTimeMillis() + timeout;
+			timer.schedule(turnTimer, timeout);
+		}
+
+		/**
+		 * Makes the move of the current player whose turn has timed out: the
+		 * player passes, or plays the lowest card if it may not pass. Called
+		 * by the actor.
+		 */
+		private void expireTurn() {
+			if (!isPlaying()) {
+				return;
+			}
+			long now = System.currentTimeMillis();
+			if (now < turnDeadline) {
+				// the turn has changed since the timer expired, or the timer
+				// expired early
+				timer.schedule(turnTimer, turnDeadline - now);
+				return;
+			}
+			int seat = game.getCurrentPlayerIdx();
+			println("The turn of " + clientNames[seat] + " at table " + tableID
+					+ " times out.");
+			turnTimeouts.increment();
+			CardList cards = null;
+			if (!checkMove(game, seat, null)) {
+				int[] cardIdx = { 0 };
+				cards = game.getPlayerList().get(seat).play(cardIdx);
+				if (!checkMove(game, seat, cardIdx)) {
+					// the game cannot go on without the player
+					scheduleTurn();
+					return;
+				}
+			}
+			broadcastMessage(new CardGameMessage(CardGameMessage.MOVE, seat,
+					cards));
+			scheduleTurn();
+		} // expireTurn
+
+		/**
+		 * Sends the specified client a snapshot of this table in place of the
+		 * messages dropped for it, and lets the messages about this table be
+		 * sent to it again. Called by the actor once the client has caught up.
+		 * 
+		 * @param client
+		 *            the connection to the client in resync mode
+		 * @param seat
+		 *            the seat of the client
+		 */
+		void resync(ClientConnection client, int seat) {
+			if (!isSeated(client, seat) || !client.resyncing) {
+				return;
+			}
+			// the messages broadcast from now on follow the snapshot
+			client.resyncing = false;
+			timer.cancel(client.resyncTimer);
+			CardGameDeal hand = null;
+			int lastPlayerIdx = -1;
+			Hand lastHand = null;
+			// the cards are only sent while a game is being played
+			if (isPlaying()) {
+				hand = new CardGameDeal(seat, game.getPlayerList().get(seat)
+						.getCardsInHand(), getNumOfCards(),
+						game.getCurrentPlayerIdx());
+				List<Hand> hands = game.getHandsOnTable();
+				if (!hands.isEmpty()) {
+					lastHand = hands.get(hands.size() - 1);
+					lastPlayerIdx = game.getPlayerList().indexOf(
+							lastHand.getPlayer());
+				}
+			}
+			println("Resynchronizes the client at "
+					+ client.getRemoteSocketAddress() + " at table " + tableID);
+			client.sendMessage(new CardGameMessage(CardGameMessage.SNAPSHOT,
+					seat, new CardGameSnapshot(clientNames, hand, lastPlayerIdx,
+							lastHand)));
+		} // resync
+
+		/**
+		 * Checks the move in the specified MOVE message, and broadcasts it if
+		 * it is legal, or rejects it otherwise. Called by the actor.
+		 * 
+		 * @param client
+		 *            the connection to the player who makes the move
+		 * @param seat
+		 *            the seat of the player
+		 * @param message
+		 *            the MOVE message received from the player
+		 */
+		private void makeMove(ClientConnection client, int seat,
+				CardGameMessage message) {
+			if (!isSeated(client, seat)) {
+				return;
+			}
+			// updates the playerID
+			message.setPlayerID(seat);
+
+			Object data = message.getData();
+			boolean legal = (data == null || data instanceof int[]);
+			CardList cards = null;
+			if (game != null) {
+				// a server which checks the moves accepts none outside a game
+				legal = legal && isPlaying();
+				if (legal) {
+					// the cards selected are looked up before the move removes
+					// them, as the other players do not know the cards held
+					cards = game.getPlayerList().get(seat).play((int[]) data);
+					legal = checkMove(game, seat, (int[]) data);
+				}
+			}
+			if (!legal) {
+				if (verboseMode) println("Rejects an illegal \"MOVE\" message from "
+						+ client.getRemoteSocketAddress());
+				// sends the rejection to the sender only
+				client.sendMessage(new CardGameMessage(CardGameMessage.REJECT,
+						seat, data));
+				return;
+			}
+			if (verboseMode) println("Broadcasts a \"MOVE\" message from "
+					+ client.getRemoteSocketAddress());
+			// broadcast the MOVE message to all clients, with the cards played
+			// in place of their indices if the cards are dealt by the server
+			if (game != null) {
+				message.setData(cards);
+			}
+			broadcastMessage(message);
+			scheduleTurn();
+		} // makeMove
+
+		/**
+		 * Broadcasts the specified chat message of the specified client to all
+		 * clients at this table. Called by the actor.
+		 * 
+		 * @param client
+		 *            the connection to the client who sends the message
+		 * @param seat
+		 *            the seat of the client
+		 * @param msg
+		 *            the chat message
+		 */
+		private void broadcastUserMessage(ClientConnection client, int seat,
+				String msg) {
+			if (!isSeated(client, seat)) {
+				return;
+			}
+			String longMsg = clientNames[seat] + " ("
+					+ client.getRemoteSocketAddress() + "): " + msg;
+			broadcastMessage(new CardGameMessage(CardGameMessage.MSG, seat,
+					longMsg));
+		} // broadcastUserMessage
+	} // Table
 
 	/**
 	 * This inner class is used for handling the Clear menu
@@ -503,6 +2067,18 @@ public class CardGameServer {
 		}
 	} // ClearMenuItemListener
 
+	/**
+	 * This inner class is used for handling the Metrics menu
+	 * 
+	 * @author Kenneth Wong
+	 *
+	 */
+	private class MetricsMenuItemListener implements ActionListener {
+		public void actionPerformed(ActionEvent e) {
+			println(metrics.toString());
+		}
+	} // MetricsMenuItemListener
+
 	/**
 	 * This inner class is used for handling the Quit menu
 	 * 
@@ -0,0 +1,80 @@
+import java.io.Serializable;
+
+/**
+ * This class is used to model the state of a table of a network card game as
+ * seen by one player. The server sends it in place of the messages that a
+ * client too slow to keep up with the game has missed, and the client replaces
+ * its own state with it.
+ */
+public class CardGameSnapshot implements Serializable {
+	private static final long serialVersionUID = -2203848395874411960L;
+	private String[] playerNames; // the names of the players at the table
+	private CardGameDeal deal; // the cards of the player, or null if no game is being played
+	private int lastPlayerIdx; // the index of the player of the last hand on the table
+	private CardList lastHand; // the last hand on the table, or null if there is none
+
+	/**
+	 * Creates and returns an instance of the CardGameSnapshot class.
+	 *
+	 * @param playerNames
+	 *            the names of the players at the table
+	 * @param deal
+	 *            the cards held by the player receiving this snapshot and the
+	 *            number of cards held by each player, or null if no game is
+	 *            being played
+	 * @param lastPlayerIdx
+	 *            the index of the player of the last hand on the table, or -1
+	 *            if there is none
+	 * @param lastHand
+	 *            the last hand on the table, or null if there is none
+	 */
+	public CardGameSnapshot(String[] playerNames, CardGameDeal deal,
+			int lastPlayerIdx, CardList lastHand) {
+		this.playerNames = playerNames.clone();
+		this.deal = deal;
+		this.lastPlayerIdx = lastPlayerIdx;
+		if (lastHand != null) {
+			this.lastHand = new CardList();
+			for (int i = 0; i < lastHand.size(); i++) {
+				this.lastHand.addCard(lastHand.getCard(i));
+			}
+		}
+	}
+
+	/**
+	 * Returns the names of the players at the table.
+	 *
+	 * @return the names of the players, with null for a free seat
+	 */
+	public String[] getPlayerNames() {
+		return playerNames;
+	}
+
+	/**
+	 * Returns the cards held by the player receiving this snapshot and the
+	 * number of cards held by each player.
+	 *
+	 * @return the cards of the player, or null if no game is being played
+	 */
+	public CardGameDeal getDeal() {
+		return deal;
+	}
+
+	/**
+	 * Returns the index of the player of the last hand on the table.
+	 *
+	 * @return the index of the player, or -1 if there is no hand on the table
+	 */
+	public int getLastPlayerIdx() {
+		return lastPlayerIdx;
+	}
+
+	/**
+	 * Returns the last hand on the table.
+	 *
+	 * @return the cards of the last hand, or null if there is none
+	 */
+	public CardList getLastHand() {
+		return lastHand;
+	}
+}
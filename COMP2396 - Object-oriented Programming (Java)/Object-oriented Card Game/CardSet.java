@@ -0,0 +1,301 @@
+import java.io.Serializable;
+
+/**
+ * This class is used to represent a set of Big Two cards as a 64-bit bitboard.
+ * Each of the 52 cards is mapped to one bit, ordered by the Big Two order of
+ * the cards (i.e., the order given by BigTwoCard.getRank() and then the suit),
+ * so that bit 0 is the diamond 3 and bit 51 is the spade 2.
+ * <p>
+ * Adding, removing and testing a card are O(1), and the size of the set is a
+ * single population count. The static methods operate directly on the raw
+ * {@code long} value and can be used on hot paths without any allocation.
+ */
+public class CardSet implements Serializable {
+	private static final long serialVersionUID = 4019286618364275541L;
+	/** the number of distinct cards that can be held by a card set.*/
+	public static final int NUM_OF_CARDS = 52;
+	/** a bit mask covering all the 52 cards.*/
+	public static final long ALL_CARDS = (1L << NUM_OF_CARDS) - 1;
+	/** the raw bitboard of this card set.*/
+	private long bits;
+
+	/**
+	 * Creates and returns an empty card set.
+	 */
+	public CardSet() {
+		this.bits = 0L;
+	}
+
+	/**
+	 * Creates and returns a card set holding the cards of the specified bitboard.
+	 *
+	 * @param bits the bitboard of the cards
+	 */
+	public CardSet(long bits) {
+		this.bits = bits & ALL_CARDS;
+	}
+
+	/**
+	 * Creates and returns a card set holding the cards in the specified list.
+	 *
+	 * @param cards the list of cards to be added to this set
+	 */
+	public CardSet(CardList cards) {
+		this.bits = bitsOf(cards);
+	}
+
+	/**
+	 * Returns the index (0 - 51) of the specified card in the Big Two order.
+	 *
+	 * @param card the card
+	 * @return the index of the card, i.e., rank * 4 + suit
+	 */
+	public static int index(Card card) {
+		return card.getRank() * 4 + card.getSuit();
+	}
+
+	/**
+	 * Returns the bit of the specified card.
+	 *
+	 * @param card the card
+	 * @return a bitboard holding only the specified card
+	 */
+	public static long bit(Card card) {
+		return 1L << index(card);
+	}
+
+	/**
+	 * Returns the Big Two card of the specified index.
+	 *
+	 * @param index the index (0 - 51) of the card
+	 * @return the card of the specified index
+	 */
+	public static Card card(int index) {
+		return BigTwoCard.fromOrdinal(index);
+	}
+
+	/**
+	 * Returns the bitboard of the cards in the specified list.
+	 *
+	 * @param cards the list of cards
+	 * @return the bitboard of the cards
+	 */
+	public static long bitsOf(CardList cards) {
+		long bits = 0L;
+		for (int i = 0; i < cards.size(); i++) {
+			bits |= bit(cards.getCard(i));
+		}
+		return bits;
+	}
+
+	/**
+	 * Returns a list holding the cards of the specified bitboard, sorted in the
+	 * Big Two order.
+	 *
+	 * @param bits the bitboard of the cards
+	 * @return a list of the cards
+	 */
+	public static CardList toCardList(long bits) {
+		CardList cards = new CardList();
+		for (long b = bits & ALL_CARDS; b != 0; b &= b - 1) {
+			cards.addCard(card(Long.numberOfTrailingZeros(b)));
+		}
+		return cards;
+	}
+
+	/**
+	 * Returns the indices of the cards in the specified list which are held by
+	 * the specified bitboard, e.g. for turning a move into the cardIdx array
+	 * expected by BigTwo.makeMove().
+	 *
+	 * @param cards the list of cards
+	 * @param bits  the bitboard of the cards to be located
+	 * @return an array of the indices, or null if none of the cards is found
+	 */
+	public static int[] indicesOf(CardList cards, long bits) {
+		int[] cardIdx = new int[Long.bitCount(bits)];
+		int count = 0;
+		for (int i = 0; i < cards.size() && count < cardIdx.length; i++) {
+			long bit = bit(cards.getCard(i));
+			if ((bits & bit) != 0) {
+				cardIdx[count++] = i;
+				bits &= ~bit;
+			}
+		}
+		if (count == 0) {
+			return null;
+		} else if (count < cardIdx.length) {
+			int[] found = new int[count];
+			System.arraycopy(cardIdx, 0, found, 0, count);
+			return found;
+		} else {
+			return cardIdx;
+		}
+	}
+
+	/**
+	 * Returns the raw bitboard of this card set.
+	 *
+	 * @return the bitboard of this card set
+	 */
+	public long getBits() {
+		return bits;
+	}
+
+	/**
+	 * Adds the specified card to this set.
+	 *
+	 * @param card the card to be added
+	 * @return true if this set did not already hold the card
+	 */
+	public boolean addCard(Card card) {
+		long bit = bit(card);
+		boolean added = (bits & bit) == 0;
+		bits |= bit;
+		return added;
+	}
+
+	/**
+	 * Removes the specified card from this set.
+	 *
+	 * @param card the card to be removed
+	 * @return true if this set held the card
+	 */
+	public boolean removeCard(Card card) {
+		long bit = bit(card);
+		boolean removed = (bits & bit) != 0;
+		bits &= ~bit;
+		return removed;
+	}
+
+	/**
+	 * Removes all cards from this set.
+	 */
+	public void removeAllCards() {
+		bits = 0L;
+	}
+
+	/**
+	 * Returns true if this set holds the specified card.
+	 *
+	 * @param card the card whose presence is to be tested
+	 * @return true if this set holds the card; otherwise false
+	 */
+	public boolean contains(Card card) {
+		return (bits & bit(card)) != 0;
+	}
+
+	/**
+	 * Returns true if this set holds every card of the specified set.
+	 *
+	 * @param set the card set to be tested
+	 * @return true if the specified set is a subset of this set
+	 */
+	public boolean containsAll(CardSet set) {
+		return (set.bits & ~bits) == 0;
+	}
+
+	/**
+	 * Returns true if this set holds no cards.
+	 *
+	 * @return true if this set holds no cards; otherwise false
+	 */
+	public boolean isEmpty() {
+		return bits == 0;
+	}
+
+	/**
+	 * Returns the number of cards in this set.
+	 *
+	 * @return the number of cards in this set
+	 */
+	public int size() {
+		return Long.bitCount(bits);
+	}
+
+	/**
+	 * Returns the union of this set and the specified set.
+	 *
+	 * @param set the other card set
+	 * @return a new card set holding the cards of either set
+	 */
+	public CardSet union(CardSet set) {
+		return new CardSet(bits | set.bits);
+	}
+
+	/**
+	 * Returns the intersection of this set and the specified set.
+	 *
+	 * @param set the other card set
+	 * @return a new card set holding the cards of both sets
+	 */
+	public CardSet intersection(CardSet set) {
+		return new CardSet(bits & set.bits);
+	}
+
+	/**
+	 * Returns the difference of this set and the specified set.
+	 *
+	 * @param set the other card set
+	 * @return a new card set holding the cards of this set which are not in the
+	 *         specified set
+	 */
+	public CardSet difference(CardSet set) {
+		return new CardSet(bits & ~set.bits);
+	}
+
+	/**
+	 * Returns the lowest card of this set in the Big Two order.
+	 *
+	 * @return the lowest card, or null if this set is empty
+	 */
+	public Card getLowestCard() {
+		return (bits == 0) ? null : card(Long.numberOfTrailingZeros(bits));
+	}
+
+	/**
+	 * Returns the highest card of this set in the Big Two order.
+	 *
+	 * @return the highest card, or null if this set is empty
+	 */
+	public Card getHighestCard() {
+		return (bits == 0) ? null : card(63 - Long.numberOfLeadingZeros(bits));
+	}
+
+	/**
+	 * Returns a list holding the cards of this set, sorted in the Big Two order.
+	 *
+	 * @return a list of the cards of this set
+	 */
+	public CardList toCardList() {
+		return toCardList(bits);
+	}
+
+	/**
+	 * Indicates whether the specified card set holds the same cards as this one.
+	 *
+	 * @param obj the reference object with which to compare
+	 * @return true if both sets hold the same cards; false otherwise
+	 */
+	public boolean equals(Object obj) {
+		return (obj instanceof CardSet) && ((CardSet) obj).bits == bits;
+	}
+
+	/**
+	 * Returns a hash code value for the card set.
+	 *
+	 * @return a hash code value for the card set
+	 */
+	public int hashCode() {
+		return Long.hashCode(bits);
+	}
+
+	/**
+	 * Returns a string representation of the cards in the set
+	 *
+	 * @return a string representation of the cards in the set
+	 */
+	public String toString() {
+		return toCardList().toString();
+	}
+}
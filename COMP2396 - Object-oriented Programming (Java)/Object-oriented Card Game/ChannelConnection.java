@@ -0,0 +1,294 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class is used to model the connection to a client of the
+ * framed protocol, which is a non-blocking SocketChannel handled by an
+ * event loop. The messages sent by other threads are queued as frames, and
+ * written by the event loop when the channel is ready.
+ * 
+ * @author Kenneth Wong
+ *
+ */
+class ChannelConnection extends ClientConnection {
+	// the initial capacity of the read buffer
+	private static final int READ_BUFFER_CAPACITY = 1024;
+	// the channel of the client
+	final SocketChannel channel;
+	// the event loop handling the channel
+	private final EventLoop eventLoop;
+	// the selection key of the channel
+	SelectionKey key;
+	// the bytes read but not parsed yet, in write mode
+	private ByteBuffer readBuffer = ByteBuffer
+			.allocate(READ_BUFFER_CAPACITY);
+	// the frames to be written
+	private final Queue<ByteBuffer> writeQueue = new ConcurrentLinkedQueue<ByteBuffer>();
+	// the number of frames in the write queue
+	private final AtomicInteger numOfQueuedFrames = new AtomicInteger();
+	// the capacity of the write queue, in frames
+	private final int writeQueueCapacity = server.outboundQueueCapacity;
+	// a boolean indicating if a write has been requested from the event
+	// loop and not done yet
+	final AtomicBoolean writeRequested = new AtomicBoolean();
+	// the codec of the client, which is known once the preamble is read
+	private volatile MessageCodec codec = null;
+	// a boolean indicating if the preamble has been read
+	private boolean handshaken = false;
+	// the ID of the route of the client if it is routed by a gateway, or
+	// -1, which is known once the preamble is read
+	volatile int routeID = -1;
+	// a boolean indicating if the channel is to be closed once the frames
+	// queued are written
+	private volatile boolean closing = false;
+	// a boolean indicating if the channel is closed
+	volatile boolean closed = false;
+	// the timer closing the channel if the client does not send its preamble
+	// within HANDSHAKE_TIMEOUT milliseconds of its registration, or does not
+	// close the channel within REJECT_CLOSE_DELAY milliseconds of being turned
+	// away
+	final HashedWheelTimer.Timeout closeTimer = new HashedWheelTimer.Timeout(
+			this::closeTimedOut);
+	// a boolean indicating if the close timer has expired
+	private volatile boolean timedOut = false;
+
+	/**
+	 * Creates and returns an instance of the ChannelConnection class.
+	 * 
+	 * @param server
+	 *            the server of the connection
+	 * @param channel
+	 *            the channel of the client, in non-blocking mode
+	 * @param eventLoop
+	 *            the event loop handling the channel
+	 */
+	public ChannelConnection(CardGameServer server, SocketChannel channel,
+			EventLoop eventLoop) {
+		super(server);
+		this.channel = channel;
+		this.eventLoop = eventLoop;
+	} // constructor
+
+	SocketAddress getRemoteSocketAddress() {
+		return channel.socket().getRemoteSocketAddress();
+	}
+
+	MessageCodec getClientCodec() {
+		return codec;
+	}
+
+	boolean isClosed() {
+		return closed || closing;
+	}
+
+	int getNumOfQueuedMessages() {
+		return numOfQueuedFrames.get();
+	}
+
+	boolean queue(OutboundMessage message) throws IOException {
+		if (numOfQueuedFrames.incrementAndGet() > writeQueueCapacity) {
+			numOfQueuedFrames.decrementAndGet();
+			return false;
+		}
+		try {
+			writeQueue.add(message.getFrame(codec));
+		} catch (IOException ex) {
+			numOfQueuedFrames.decrementAndGet();
+			throw ex;
+		}
+		eventLoop.requestWrite(this);
+		return true;
+	} // queue
+
+	void disconnect() {
+		// the event loop closes the channel and removes the connection
+		eventLoop.requestWrite(this);
+	}
+
+	/**
+	 * Closes the channel once the frames queued are written.
+	 */
+	void closeAfterFlush() {
+		closing = true;
+		server.timer.schedule(closeTimer, CardGameServer.REJECT_CLOSE_DELAY);
+		eventLoop.requestWrite(this);
+	}
+
+	/**
+	 * Asks the event loop to close the channel. Run by the timer once the
+	 * close timer expires.
+	 */
+	private void closeTimedOut() {
+		timedOut = true;
+		eventLoop.requestWrite(this);
+	}
+
+	/**
+	 * Reads the bytes available from the channel, and parses the messages
+	 * in the complete frames. Called by the event loop.
+	 * 
+	 * @return true if the client sends a Java object stream and is to be
+	 *         handed over to the blocking transport; false otherwise
+	 * @throws IOException
+	 *             if the channel is closed or the bytes are not valid
+	 */
+	boolean read() throws IOException {
+		if (channel.read(readBuffer) < 0) {
+			throw new EOFException();
+		}
+		readBuffer.flip();
+		if (closing) {
+			// discards the bytes until the client closes the channel
+			readBuffer.clear();
+			return false;
+		}
+		if (!handshaken) {
+			if (readBuffer.remaining() < MessageFrame.HEADER_LENGTH) {
+				readBuffer.compact();
+				return false;
+			}
+			// a client routed by a gateway is preceded by a header of the
+			// node protocol, which is only taken once the preamble is
+			// read too, so that a legacy client is handed over with it
+			int start = 0;
+			if (NodeProtocol.isCommand(readBuffer.getInt(0))) {
+				start = NodeProtocol.HEADER_LENGTH;
+				if (readBuffer.remaining() < start
+						+ ((readBuffer.getInt(0) == NodeProtocol.HEALTH) ? 0
+								: MessageFrame.HEADER_LENGTH)) {
+					readBuffer.compact();
+					return false;
+				}
+				if (readBuffer.getInt(0) == NodeProtocol.HEALTH) {
+					// the reply fits in the send buffer of the socket
+					channel.write(NodeProtocol.healthReply(server.connections.size()));
+					throw new EOFException();
+				}
+			}
+			if ((readBuffer.getShort(start) & 0xFFFF) == MessageFrame.STREAM_MAGIC) {
+				server.timer.cancel(closeTimer);
+				return true;
+			}
+			if (start > 0) {
+				int command = readBuffer.getInt();
+				int argument = readBuffer.getInt();
+				if (command != NodeProtocol.ROUTE || argument < 0) {
+					throw new StreamCorruptedException("Invalid node header");
+				}
+				routeID = argument;
+			}
+			codec = server.getCodec(MessageFrame.getCodecId(readBuffer.getInt()));
+			if (codec == null) {
+				throw new StreamCorruptedException("Invalid preamble");
+			}
+			handshaken = true;
+			server.timer.cancel(closeTimer);
+			server.addConnection(this);
+		}
+		while (!closed && MessageFrame.frameLength(readBuffer) > 0) {
+			CardGameMessage message = MessageFrame.decode(readBuffer, codec);
+			if (server.verboseMode) server.println("Message received from " + getRemoteSocketAddress());
+			server.parseMessage(this, message);
+		}
+		// grows the buffer if the next frame does not fit in it
+		int length = (readBuffer.remaining() >= MessageFrame.HEADER_LENGTH) ? MessageFrame.HEADER_LENGTH
+				+ readBuffer.getInt(readBuffer.position())
+				: 0;
+		if (length > readBuffer.capacity()) {
+			ByteBuffer larger = ByteBuffer.allocate(length);
+			larger.put(readBuffer);
+			readBuffer = larger;
+		} else {
+			readBuffer.compact();
+		}
+		return false;
+	} // read
+
+	/**
+	 * Writes the frames queued to the channel until the channel cannot
+	 * take more, in which case the event loop waits for the channel to be
+	 * writable. The frames are written by gathering writes of up to
+	 * batch.length frames. Called by the event loop.
+	 * 
+	 * @param batch
+	 *            an array for the frames written at a time
+	 * @throws IOException
+	 *             if the channel is closed, the client is evicted or the
+	 *             close timer has expired
+	 */
+	void write(ByteBuffer[] batch) throws IOException {
+		if (isEvicted()) {
+			throw new IOException("Client evicted");
+		}
+		if (timedOut) {
+			throw new IOException("Client timed out");
+		}
+		while (!writeQueue.isEmpty()) {
+			int n = 0;
+			for (ByteBuffer frame : writeQueue) {
+				batch[n++] = frame;
+				if (n == batch.length) {
+					break;
+				}
+			}
+			channel.write(batch, 0, n);
+			boolean blocked = batch[n - 1].hasRemaining();
+			for (int i = 0; i < n && !batch[i].hasRemaining(); i++) {
+				writeQueue.poll();
+				numOfQueuedFrames.decrementAndGet();
+				written(batch[i].limit());
+			}
+			Arrays.fill(batch, 0, n, null);
+			if (blocked) {
+				key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+				return;
+			}
+		}
+		key.interestOps(SelectionKey.OP_READ);
+		if (closing) {
+			// the client closes the channel after reading the frames
+			channel.shutdownOutput();
+		}
+	} // write
+
+	/**
+	 * Returns the bytes read from the channel but not parsed.
+	 * 
+	 * @return the bytes read from the channel but not parsed
+	 */
+	byte[] getUnreadBytes() {
+		byte[] bytes = new byte[readBuffer.remaining()];
+		readBuffer.get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Closes the channel and removes the connection from the server.
+	 */
+	void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		server.timer.cancel(closeTimer);
+		if (key != null) {
+			key.cancel();
+		}
+		try {
+			channel.close();
+		} catch (IOException ex) {
+			if (!server.silentMode) ex.printStackTrace();
+		}
+		server.removeConnection(this);
+	} // close
+}
@@ -0,0 +1,355 @@
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is used to model the connection to a client, and the
+ * seat of the client. It counts the bytes queued for the client, and drops
+ * the messages for a client which cannot keep up (see the watermarks of
+ * the server).
+ * 
+ * @author Kenneth Wong
+ *
+ */
+abstract class ClientConnection {
+	// the server of this connection
+	final CardGameServer server;
+	// the ID of this connection, by which it is registered
+	final int connectionID;
+	// the table of the client, or null if the client is not seated
+	volatile CardGameServer.Table table = null;
+	// the seat of the client at its table
+	volatile int seat = -1;
+	// the number of bytes queued and not written yet
+	final AtomicLong pendingBytes = new AtomicLong();
+	// a boolean indicating if the bytes queued have reached the high
+	// watermark and not fallen below the low watermark since
+	private volatile boolean congested = false;
+	// a boolean indicating if the messages about the table are dropped
+	// until the client is sent a snapshot
+	volatile boolean resyncing = false;
+	// the timer of the resync mode of the client
+	final HashedWheelTimer.Timeout resyncTimer = new HashedWheelTimer.Timeout(
+			this::checkResync);
+	// a boolean indicating if the client is being disconnected for not
+	// keeping up or for being idle
+	private volatile boolean evicted = false;
+	// the time at which the last message was received from the client
+	volatile long lastReceived = System.currentTimeMillis();
+	// the timer of the heartbeat of the client
+	final HashedWheelTimer.Timeout heartbeat = new HashedWheelTimer.Timeout(
+			this::checkHeartbeat);
+
+	/**
+	 * Creates and returns an instance of the ClientConnection class, which is
+	 * registered with the specified server by a new connection ID.
+	 * 
+	 * @param server
+	 *            the server of the connection
+	 */
+	ClientConnection(CardGameServer server) {
+		this.server = server;
+		this.connectionID = server.nextConnectionID.getAndIncrement();
+	} // constructor
+
+	/**
+	 * Returns the remote address of the client.
+	 * 
+	 * @return the remote address of the client
+	 */
+	abstract SocketAddress getRemoteSocketAddress();
+
+	/**
+	 * Queues the specified message to be sent to the client, without
+	 * blocking. The messages are sent in the order they are queued. If the
+	 * outbound queue is full, the client is disconnected.
+	 * 
+	 * @param message
+	 *            the specified message to be sent to the client
+	 */
+	void sendMessage(CardGameMessage message) {
+		sendMessage(new OutboundMessage(message));
+	}
+
+	/**
+	 * Queues the specified message to be sent to the client, like
+	 * sendMessage(CardGameMessage). The message may be shared with other
+	 * clients. The message is dropped if it is a chat message and the
+	 * client is congested, or if it is about the table and the client is
+	 * in resync mode.
+	 * 
+	 * @param message
+	 *            the specified message to be sent to the client
+	 */
+	void sendMessage(OutboundMessage message) {
+		if (evicted || isClosed()) {
+			return;
+		}
+		int type = message.getMessage().getType();
+		long pending = pendingBytes.get();
+		if (pending >= server.highWatermark) {
+			congested = true;
+		}
+		if ((resyncing || pending >= 2L * server.highWatermark)
+				&& isDroppable(type)) {
+			dropEvent();
+			return;
+		}
+		if (congested && type == CardGameMessage.MSG) {
+			server.droppedChats.increment();
+			return;
+		}
+		int size = 0;
+		try {
+			size = sizeOf(message);
+			pending = pendingBytes.addAndGet(size);
+			if (pending > server.peakPendingBytes.get()) {
+				server.peakPendingBytes.accumulateAndGet(pending, Math::max);
+			}
+			if (!queue(message)) {
+				pendingBytes.addAndGet(-size);
+				evict("Outbound queue full", server.evictions);
+			}
+		} catch (Exception ex) {
+			pendingBytes.addAndGet(-size);
+			server.println("Error in sending a message to the client at "
+					+ getRemoteSocketAddress());
+			if (!server.silentMode) ex.printStackTrace();
+		}
+	} // sendMessage
+
+	/**
+	 * Returns a boolean indicating if a message of the specified type is
+	 * about the table, and so can be dropped for a client which is sent a
+	 * snapshot of the table instead.
+	 * 
+	 * @param type
+	 *            the type of the message
+	 * @return true if the message can be dropped; false otherwise
+	 */
+	private boolean isDroppable(int type) {
+		switch (type) {
+		case CardGameMessage.JOIN:
+		case CardGameMessage.QUIT:
+		case CardGameMessage.READY:
+		case CardGameMessage.START:
+		case CardGameMessage.MOVE:
+		case CardGameMessage.MSG:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Drops a message about the table, putting the client in resync mode
+	 * if it is not. The client is disconnected if it has not caught up
+	 * within RESYNC_TIMEOUT milliseconds, or at once if its table has no
+	 * state of the game to be sent in a snapshot. Called by the actor of
+	 * the table.
+	 */
+	private void dropEvent() {
+		if (!resyncing) {
+			CardGameServer.Table table = this.table;
+			if (table == null || table.game == null) {
+				evict("Outbound queue congested", server.evictions);
+				return;
+			}
+			resyncing = true;
+			server.resyncs.increment();
+			server.timer.schedule(resyncTimer, CardGameServer.RESYNC_TIMEOUT);
+			server.println("Outbound queue congested: resynchronizes the client at "
+					+ getRemoteSocketAddress());
+		}
+		server.droppedEvents.increment();
+		// the client may have caught up before being put in resync mode
+		if (pendingBytes.get() < server.lowWatermark) {
+			resync();
+		}
+	}
+
+	/**
+	 * Disconnects the client if it is still in resync mode and has not
+	 * caught up. Run by the timer RESYNC_TIMEOUT milliseconds after the
+	 * client is put in resync mode.
+	 */
+	private void checkResync() {
+		if (evicted || isClosed()) {
+			return;
+		}
+		if (resyncing && pendingBytes.get() >= server.lowWatermark) {
+			evict("Client not catching up", server.evictions);
+		}
+	}
+
+	/**
+	 * Sends the client a snapshot of its table if it is in resync mode.
+	 * Called once the client has caught up.
+	 */
+	private void resync() {
+		CardGameServer.Table table = this.table;
+		int seat = this.seat;
+		if (table != null) {
+			table.execute(() -> table.resync(this, seat));
+		}
+	}
+
+	/**
+	 * Tells that the specified number of bytes queued have been written.
+	 * Once the bytes queued fall below the low watermark, the client is
+	 * sent chat messages again, and a snapshot if it is in resync mode.
+	 * Called by the writer of the connection without any lock held.
+	 * 
+	 * @param size
+	 *            the number of bytes written
+	 */
+	void written(int size) {
+		if (pendingBytes.addAndGet(-size) < server.lowWatermark) {
+			congested = false;
+			if (resyncing) {
+				resync();
+			}
+		}
+	}
+
+	/**
+	 * Sends the client a PING message if it has sent nothing for the
+	 * heartbeat interval, or disconnects it if it has sent nothing for the
+	 * idle timeout. Run by the timer every heartbeat interval.
+	 */
+	private void checkHeartbeat() {
+		if (evicted || isClosed()) {
+			return;
+		}
+		long idle = System.currentTimeMillis() - lastReceived;
+		if (idle >= server.idleTimeout) {
+			evict("Client idle", server.idleDisconnects);
+			return;
+		}
+		if (idle >= server.heartbeatInterval) {
+			server.pings.increment();
+			sendMessage(server.ping);
+		}
+		server.timer.schedule(heartbeat, server.heartbeatInterval);
+	}
+
+	/**
+	 * Disconnects the client for not keeping up or for being idle.
+	 * 
+	 * @param reason
+	 *            the reason printed
+	 * @param counter
+	 *            the counter of the clients disconnected for the reason
+	 */
+	private void evict(String reason, LongAdder counter) {
+		if (evicted) {
+			return;
+		}
+		evicted = true;
+		counter.increment();
+		server.println(reason + ": disconnects the client at "
+				+ getRemoteSocketAddress());
+		disconnect();
+	}
+
+	/**
+	 * Returns a boolean indicating if the client is being disconnected for
+	 * not keeping up.
+	 * 
+	 * @return true if the client is evicted; false otherwise
+	 */
+	boolean isEvicted() {
+		return evicted;
+	}
+
+	/**
+	 * Returns the number of bytes of the specified message counted
+	 * against the watermarks: the length of its frame, or of its frame in
+	 * the serialized codec for a legacy client.
+	 * 
+	 * @param message
+	 *            the message to be sent
+	 * @return the number of bytes of the message
+	 * @throws IOException
+	 *             if the message cannot be encoded
+	 */
+	int sizeOf(OutboundMessage message) throws IOException {
+		MessageCodec codec = getClientCodec();
+		return message.getFrame(
+				(codec != null) ? codec : server.codecs[MessageCodec.SERIALIZED])
+				.remaining();
+	}
+
+	/**
+	 * Returns the codec of the client.
+	 * 
+	 * @return the codec of the client, or null for a legacy client
+	 */
+	abstract MessageCodec getClientCodec();
+
+	/**
+	 * Returns a boolean indicating if the connection is closed, or being
+	 * closed.
+	 * 
+	 * @return true if the connection is closed; false otherwise
+	 */
+	abstract boolean isClosed();
+
+	/**
+	 * Returns the number of messages queued and not written yet.
+	 * 
+	 * @return the number of messages queued
+	 */
+	abstract int getNumOfQueuedMessages();
+
+	/**
+	 * Returns the number of bytes written to the object stream of a
+	 * legacy client since the stream was last reset.
+	 * 
+	 * @return the number of bytes, or 0 if the client is not a legacy
+	 *         client
+	 */
+	long getRetainedStreamBytes() {
+		return 0;
+	}
+
+	/**
+	 * Returns the number of messages written to the object stream of a
+	 * legacy client since the stream was last reset.
+	 * 
+	 * @return the number of messages, or 0 if the client is not a legacy
+	 *         client
+	 */
+	long getRetainedStreamMessages() {
+		return 0;
+	}
+
+	/**
+	 * Returns the number of times the object stream of a legacy client has
+	 * been reset.
+	 * 
+	 * @return the number of resets, or 0 if the client is not a legacy
+	 *         client
+	 */
+	long getNumOfStreamResets() {
+		return 0;
+	}
+
+	/**
+	 * Puts the specified message in the outbound queue, without blocking.
+	 * 
+	 * @param message
+	 *            the message to be sent
+	 * @return true if the message is queued; false if the queue is full
+	 * @throws IOException
+	 *             if the message cannot be encoded
+	 */
+	abstract boolean queue(OutboundMessage message) throws IOException;
+
+	/**
+	 * Closes the connection, which removes it from the server, without
+	 * blocking.
+	 */
+	abstract void disconnect();
+}
@@ -0,0 +1,72 @@
+import java.io.DataInputStream;
+import java.io.ObjectInputStream;
+import java.net.Socket;
+
+/**
+ * This class is used for receiving incoming messages from a client
+ * 
+ * @author Kenneth Wong
+ *
+ */
+class ClientHandler implements Runnable {
+	private CardGameServer server; // server of the connection
+	private SocketConnection client; // connection to the client
+	private Socket clientSocket; // socket connection to the client
+	private ObjectInputStream oistream; // ObjectInputStream of a legacy client
+	private DataInputStream distream; // DataInputStream of a framed client
+
+	/**
+	 * Creates and returns an instance of the ClientHandler class.
+	 * 
+	 * @param client
+	 *            the connection to the client
+	 */
+	public ClientHandler(SocketConnection client) {
+		this.server = client.server;
+		this.client = client;
+		this.clientSocket = client.socket;
+		try {
+			if (client.codec == null) {
+				// creates an ObjectInputStream and chains it to the
+				// InputStream of the client socket
+				oistream = new ObjectInputStream(client.istream);
+			} else {
+				distream = new DataInputStream(client.istream);
+			}
+		} catch (Exception ex) {
+			server.println("Error in creating an ObjectInputStream for the client at "
+					+ clientSocket.getRemoteSocketAddress());
+			if (!server.silentMode) ex.printStackTrace();
+		}
+	} // constructor
+
+	// implementation of method from the Runnable interface
+	public void run() {
+		CardGameMessage message;
+		try {
+			// waits for messages from the client
+			while ((message = readMessage()) != null) {
+				if (server.verboseMode) server.println("Message received from "
+						+ clientSocket.getRemoteSocketAddress());
+				server.parseMessage(client, message);
+			} // close while
+		} catch (Exception ex) {
+			server.println("Error in receiving messages from the client at "
+					+ clientSocket.getRemoteSocketAddress());
+			if (!server.silentMode) ex.printStackTrace();
+			// possible connection loss, removes the connection
+			client.close();
+			server.removeConnection(client);
+		}
+	} // run
+
+	/**
+	 * Reads the next message from the client.
+	 */
+	private CardGameMessage readMessage() throws Exception {
+		if (client.codec == null) {
+			return (CardGameMessage) oistream.readObject();
+		}
+		return MessageFrame.read(distream, client.codec);
+	}
+}
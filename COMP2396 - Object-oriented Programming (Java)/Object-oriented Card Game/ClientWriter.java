@@ -0,0 +1,50 @@
+/**
+ * This class is used for sending the messages queued for a client.
+ * The messages queued while a message is written are written after it,
+ * and the stream is flushed once they are all written.
+ * 
+ * @author Kenneth Wong
+ *
+ */
+class ClientWriter implements Runnable {
+	private CardGameServer server; // server of the connection
+	private SocketConnection client; // connection to the client
+
+	/**
+	 * Creates and returns an instance of the ClientWriter class.
+	 * 
+	 * @param client
+	 *            the connection to the client
+	 */
+	public ClientWriter(SocketConnection client) {
+		this.server = client.server;
+		this.client = client;
+	} // constructor
+
+	// implementation of method from the Runnable interface
+	public void run() {
+		try {
+			while (!client.closed) {
+				// waits for a message, and writes the messages queued
+				// after it in the same burst
+				OutboundMessage message = client.outbox.take();
+				do {
+					client.write(message);
+					client.written(client.sizeOf(message));
+				} while ((message = client.outbox.poll()) != null);
+				client.flush();
+			} // while
+		} catch (InterruptedException ex) {
+			// the connection is closed
+		} catch (Exception ex) {
+			if (!client.closed) {
+				server.println("Error in sending messages to the client at "
+						+ client.getRemoteSocketAddress());
+				if (!server.silentMode) ex.printStackTrace();
+				// the reader thread removes the connection once the
+				// socket is closed
+				client.close();
+			}
+		}
+	} // run
+}
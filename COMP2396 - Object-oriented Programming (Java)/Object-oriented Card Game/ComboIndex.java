@@ -0,0 +1,224 @@
+import java.util.Arrays;
+
+/**
+ * This class is used to index the combos (i.e., the valid hands) available in
+ * the cards of a player. The combos are kept as CardSet bitboards sorted by
+ * their strengths (see HandClassifier.getStrength), so that the combos of each
+ * type are held in a contiguous range and a query such as "the smallest pair
+ * that beats a hand" is a binary search.
+ * <p>
+ * Removing cards updates the index in place by dropping the combos that use
+ * any of the removed cards. Adding cards only happens when the cards are dealt,
+ * so it marks the index stale and the index is rebuilt once on the next query.
+ * <p>
+ * The index is sized for the combos of a hand of at most MAX_CARDS cards (see
+ * MoveGenerator.MAX_MOVES), and refuses any more cards.
+ */
+public class ComboIndex {
+	/**
+	 * The maximum number of cards indexed, i.e., the cards of a hand dealt.
+	 */
+	public static final int MAX_CARDS = 13;
+
+	// the cards indexed
+	private long hand = 0L;
+	// the combos, sorted by strength
+	private long[] combos = new long[MoveGenerator.MAX_MOVES];
+	// the strengths of the combos
+	private int[] strengths = new int[MoveGenerator.MAX_MOVES];
+	// the number of combos
+	private int count = 0;
+	// a boolean indicating if the index has to be rebuilt
+	private boolean stale = false;
+
+	/**
+	 * Creates and returns an empty combo index.
+	 */
+	public ComboIndex() {
+	}
+
+	/**
+	 * Creates and returns a combo index of the specified cards.
+	 *
+	 * @param cards the list of cards to be indexed
+	 * @throws IllegalArgumentException if there are more than MAX_CARDS
+	 *                                  cards
+	 */
+	public ComboIndex(CardList cards) {
+		addCards(CardSet.bitsOf(cards));
+	}
+
+	/**
+	 * Adds the specified cards to the index.
+	 *
+	 * @param bits the bitboard of the cards to be added
+	 * @throws IllegalArgumentException if the index would hold more than
+	 *                                  MAX_CARDS cards
+	 */
+	public void addCards(long bits) {
+		if (Long.bitCount(hand | bits) > MAX_CARDS) {
+			throw new IllegalArgumentException("More than " + MAX_CARDS
+					+ " cards: " + Long.bitCount(hand | bits));
+		}
+		if ((hand | bits) != hand) {
+			hand |= bits;
+			stale = true;
+		}
+	}
+
+	/**
+	 * Removes the specified cards from the index, together with every combo
+	 * using any of them. The order of the remaining combos is kept.
+	 *
+	 * @param bits the bitboard of the cards to be removed
+	 */
+	public void removeCards(long bits) {
+		hand &= ~bits;
+		if (stale) {
+			return;
+		}
+		int n = 0;
+		for (int i = 0; i < count; i++) {
+			if ((combos[i] & bits) == 0) {
+				combos[n] = combos[i];
+				strengths[n] = strengths[i];
+				n++;
+			}
+		}
+		count = n;
+	}
+
+	/**
+	 * Removes all cards and combos from the index.
+	 */
+	public void removeAllCards() {
+		hand = 0L;
+		count = 0;
+		stale = false;
+	}
+
+	/**
+	 * Returns the bitboard of the cards indexed.
+	 *
+	 * @return the bitboard of the cards indexed
+	 */
+	public long getCards() {
+		return hand;
+	}
+
+	/**
+	 * Returns the number of combos in the index.
+	 *
+	 * @return the number of combos
+	 */
+	public int size() {
+		refresh();
+		return count;
+	}
+
+	/**
+	 * Returns the combo at the specified position. The combos are sorted by
+	 * strength in ascending order.
+	 *
+	 * @param i the position of the combo
+	 * @return the bitboard of the combo
+	 */
+	public long getCombo(int i) {
+		refresh();
+		return combos[i];
+	}
+
+	/**
+	 * Returns the strength of the combo at the specified position.
+	 *
+	 * @param i the position of the combo
+	 * @return the strength of the combo
+	 */
+	public int getStrength(int i) {
+		refresh();
+		return strengths[i];
+	}
+
+	/**
+	 * Returns the position of the first combo of the specified type.
+	 *
+	 * @param type the hand type (see HandClassifier)
+	 * @return the position of the first combo of the type, or the position
+	 *         where it would be if there is none
+	 */
+	public int first(int type) {
+		refresh();
+		return search(HandClassifier.getMinStrength(type) - 1);
+	}
+
+	/**
+	 * Returns the number of combos of the specified type.
+	 *
+	 * @param type the hand type (see HandClassifier)
+	 * @return the number of combos of the type
+	 */
+	public int count(int type) {
+		refresh();
+		int next = (type < HandClassifier.STRAIGHT_FLUSH) ? search(HandClassifier
+				.getMinStrength(type + 1) - 1) : count;
+		return next - first(type);
+	}
+
+	/**
+	 * Returns the smallest combo which beats a hand of the specified strength.
+	 *
+	 * @param strength the strength of the hand to be beaten
+	 * @return the bitboard of the smallest combo beating the hand, or
+	 *         MoveGenerator.PASS if there is none
+	 */
+	public long smallestBeating(int strength) {
+		refresh();
+		int i = search(strength);
+		if (i < count && HandClassifier.beats(strengths[i], strength)) {
+			return combos[i];
+		}
+		return MoveGenerator.PASS;
+	}
+
+	/**
+	 * Returns the position of the first combo whose strength is greater than
+	 * the specified strength.
+	 */
+	private int search(int strength) {
+		int low = 0;
+		int high = count;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (strengths[mid] <= strength) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Rebuilds the index if cards have been added since the last query.
+	 */
+	private void refresh() {
+		if (!stale) {
+			return;
+		}
+		stale = false;
+		count = MoveGenerator.generate(hand, MoveGenerator.LEAD, false, combos);
+		// sorts the combos by strength, using the position as a tie-breaker
+		long[] keys = new long[count];
+		for (int i = 0; i < count; i++) {
+			int strength = HandClassifier.getStrength(HandClassifier.classify(combos[i]));
+			keys[i] = ((long) strength << 32) | i;
+		}
+		Arrays.sort(keys);
+		long[] sorted = new long[combos.length];
+		for (int i = 0; i < count; i++) {
+			sorted[i] = combos[(int) keys[i]];
+			strengths[i] = (int) (keys[i] >>> 32);
+		}
+		combos = sorted;
+	}
+}
@@ -0,0 +1,112 @@
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class is used to model a consistent hash ring, which maps keys to
+ * nodes such that adding or removing a node only moves the keys of that node.
+ * Each node is put on the ring at a number of points (virtual nodes), so that
+ * the keys are spread evenly over the nodes, and a key belongs to the node of
+ * the first point at or after the hash of the key.
+ * <p>
+ * The ring is copied when a node is added or removed, which is rare, so that
+ * a key is looked up without any lock.
+ *
+ * @param <T>
+ *            the type of the nodes
+ */
+public class ConsistentHashRing<T> {
+	// the number of points of each node
+	private final int numOfVirtualNodes;
+	// the points of the ring, never changed once published
+	private volatile TreeMap<Long, T> ring = new TreeMap<Long, T>();
+
+	/**
+	 * Creates and returns an instance of the ConsistentHashRing class, which
+	 * is empty.
+	 *
+	 * @param numOfVirtualNodes
+	 *            the number of points of each node
+	 */
+	public ConsistentHashRing(int numOfVirtualNodes) {
+		if (numOfVirtualNodes <= 0) {
+			throw new IllegalArgumentException("Invalid ring: "
+					+ numOfVirtualNodes);
+		}
+		this.numOfVirtualNodes = numOfVirtualNodes;
+	}
+
+	/**
+	 * Adds the specified node to the ring. It does nothing if the node is on
+	 * the ring.
+	 *
+	 * @param node
+	 *            the node to be added
+	 * @param name
+	 *            the name of the node, from which its points are hashed
+	 */
+	public synchronized void add(T node, String name) {
+		TreeMap<Long, T> copy = new TreeMap<Long, T>(ring);
+		for (int i = 0; i < numOfVirtualNodes; i++) {
+			// a point taken by another node is left to it
+			copy.putIfAbsent(hash(((long) name.hashCode() << 32) | i), node);
+		}
+		ring = copy;
+	}
+
+	/**
+	 * Removes the specified node from the ring. It does nothing if the node
+	 * is not on the ring.
+	 *
+	 * @param node
+	 *            the node to be removed
+	 */
+	public synchronized void remove(T node) {
+		TreeMap<Long, T> copy = new TreeMap<Long, T>(ring);
+		copy.values().removeIf(n -> n.equals(node));
+		ring = copy;
+	}
+
+	/**
+	 * Returns the node of the specified key.
+	 *
+	 * @param key
+	 *            the key
+	 * @return the node of the key, or null if the ring is empty
+	 */
+	public T get(long key) {
+		TreeMap<Long, T> ring = this.ring;
+		if (ring.isEmpty()) {
+			return null;
+		}
+		Map.Entry<Long, T> point = ring.ceilingEntry(hash(key));
+		return (point != null) ? point.getValue() : ring.firstEntry()
+				.getValue();
+	}
+
+	/**
+	 * Returns the number of nodes on the ring.
+	 *
+	 * @return the number of nodes on the ring
+	 */
+	public int getNumOfNodes() {
+		return (int) ring.values().stream().distinct().count();
+	}
+
+	/**
+	 * Returns a hash of the specified value, with its bits well mixed (the
+	 * finalizer of MurmurHash3), so that nearby values are far apart on the
+	 * ring.
+	 *
+	 * @param value
+	 *            the value to be hashed
+	 * @return the hash of the value
+	 */
+	private static long hash(long value) {
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb53a5fe94ce3L;
+		value ^= value >>> 33;
+		return value;
+	}
+}
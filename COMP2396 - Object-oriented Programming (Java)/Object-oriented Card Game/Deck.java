@@ -1,3 +1,5 @@
+import java.util.Random;
+
 /**
  * This class is used to represent a deck of cards in general card games.
  * 
@@ -38,4 +40,20 @@ public class Deck extends CardList {
 			}
 		}
 	}
+
+	/**
+	 * Shuffles the deck of cards with the specified random number generator,
+	 * e.g. a ThreadLocalRandom when many decks are shuffled in parallel.
+	 * 
+	 * @param random the random number generator to be used
+	 */
+	public void shuffle(Random random) {
+		for (int i = this.size() - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			if (i != j) {
+				Card card = setCard(i, getCard(j));
+				setCard(j, card);
+			}
+		}
+	}
 }
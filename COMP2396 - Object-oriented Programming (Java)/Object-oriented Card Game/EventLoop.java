@@ -0,0 +1,195 @@
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * This class is used to model an event loop, which handles the
+ * connections of the framed protocol registered with it on a single
+ * thread.
+ * 
+ * @author Kenneth Wong
+ *
+ */
+class EventLoop implements Runnable {
+	// the maximum number of frames written at a time to a channel
+	private static final int WRITE_BATCH_SIZE = 64;
+	// the selector of the channels
+	private final Selector selector;
+	// the channels accepted but not registered yet
+	private final Queue<SocketChannel> newChannels = new ConcurrentLinkedQueue<SocketChannel>();
+	// the connections with frames queued by other threads
+	private final Queue<ChannelConnection> pendingWrites = new ConcurrentLinkedQueue<ChannelConnection>();
+	// the frames written at a time by a gathering write
+	private final ByteBuffer[] writeBatch = new ByteBuffer[WRITE_BATCH_SIZE];
+	// the server of the connections
+	private final CardGameServer server;
+
+	/**
+	 * Creates and returns an instance of the EventLoop class.
+	 * 
+	 * @param server
+	 *            the server of the connections
+	 * @throws IOException
+	 *             if the selector cannot be opened
+	 */
+	public EventLoop(CardGameServer server) throws IOException {
+		this.server = server;
+		selector = Selector.open();
+	} // constructor
+
+	/**
+	 * Registers the specified channel with this event loop.
+	 * 
+	 * @param channel
+	 *            a channel accepted by the server
+	 */
+	void register(SocketChannel channel) {
+		newChannels.add(channel);
+		selector.wakeup();
+	}
+
+	/**
+	 * Asks this event loop to write the frames queued for the specified
+	 * connection.
+	 * 
+	 * @param client
+	 *            the connection with frames queued
+	 */
+	void requestWrite(ChannelConnection client) {
+		// the frames queued before the event loop gets to the connection
+		// are written together
+		if (client.writeRequested.compareAndSet(false, true)) {
+			pendingWrites.add(client);
+			selector.wakeup();
+		}
+	}
+
+	// implementation of method from the Runnable interface
+	public void run() {
+		List<ChannelConnection> handOvers = new ArrayList<ChannelConnection>();
+		while (server.serverUp) {
+			try {
+				selector.select();
+			} catch (IOException ex) {
+				server.println("Error in selecting the channels of the clients");
+				if (!server.silentMode) ex.printStackTrace();
+				break;
+			}
+
+			// registers the channels accepted
+			SocketChannel channel;
+			while ((channel = newChannels.poll()) != null) {
+				try {
+					channel.configureBlocking(false);
+					channel.socket().setTcpNoDelay(true);
+					ChannelConnection client = new ChannelConnection(
+							server, channel, this);
+					client.key = channel.register(selector,
+							SelectionKey.OP_READ, client);
+					// a client which sends no preamble is not kept forever
+					server.timer.schedule(client.closeTimer,
+							CardGameServer.HANDSHAKE_TIMEOUT);
+				} catch (IOException ex) {
+					server.println("Error in registering the channel of a client");
+					if (!server.silentMode) ex.printStackTrace();
+					try {
+						channel.close();
+					} catch (IOException e) {
+					}
+				}
+			}
+
+			// writes the frames queued by other threads
+			ChannelConnection client;
+			while ((client = pendingWrites.poll()) != null) {
+				client.writeRequested.set(false);
+				if (!client.closed && client.key != null
+						&& client.key.isValid()) {
+					try {
+						client.write(writeBatch);
+					} catch (Exception ex) {
+						client.close();
+					}
+				}
+			}
+
+			// handles the channels ready
+			Iterator<SelectionKey> keys = selector.selectedKeys()
+					.iterator();
+			while (keys.hasNext()) {
+				SelectionKey key = keys.next();
+				keys.remove();
+				client = (ChannelConnection) key.attachment();
+				try {
+					if (key.isValid() && key.isReadable() && client.read()) {
+						key.cancel();
+						handOvers.add(client);
+						continue;
+					}
+					if (key.isValid() && key.isWritable()) {
+						client.write(writeBatch);
+					}
+				} catch (Exception ex) {
+					if (!(ex instanceof EOFException)) {
+						server.println("Error in receiving messages from the client at "
+								+ client.getRemoteSocketAddress());
+						if (!server.silentMode) ex.printStackTrace();
+					}
+					client.close();
+				}
+			}
+
+			// hands the legacy clients over to the blocking transport once
+			// their keys are deregistered
+			if (!handOvers.isEmpty()) {
+				try {
+					selector.selectNow();
+				} catch (IOException ex) {
+					if (!server.silentMode) ex.printStackTrace();
+				}
+				for (ChannelConnection legacy : handOvers) {
+					handOver(legacy);
+				}
+				handOvers.clear();
+			}
+		} // while
+	} // run
+
+	/**
+	 * Hands the specified client over to the blocking transport, with the
+	 * bytes already read put back in front of its InputStream.
+	 * 
+	 * @param client
+	 *            the connection to a legacy client
+	 */
+	private void handOver(ChannelConnection client) {
+		try {
+			client.channel.configureBlocking(true);
+			Socket socket = client.channel.socket();
+			InputStream istream = new SequenceInputStream(
+					new ByteArrayInputStream(client.getUnreadBytes()),
+					socket.getInputStream());
+			server.addConnection(socket, istream, null);
+		} catch (IOException ex) {
+			server.println("Error in establishing a connection with a client at "
+					+ client.getRemoteSocketAddress());
+			if (!server.silentMode) ex.printStackTrace();
+			try {
+				client.channel.close();
+			} catch (IOException e) {
+			}
+		}
+	} // handOver
+}
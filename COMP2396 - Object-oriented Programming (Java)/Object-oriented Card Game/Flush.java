@@ -21,24 +21,6 @@ public class Flush extends Hand{
 		}
 	}
 	
-	public boolean beats(Hand hand) {
-		/**
-		 * a method for checking if this hand beats a specified hand.
-		 */
-		if (hand == null) return false;
-		if (!this.isValid() || !hand.isValid()) return false;
-		if (this.size() != hand.size()) return false;
-		
-		if (this.compareCombo(hand)==1) 
-			return true;
-		else if (this.compareCombo(hand)==-1)
-			return false;
-		else if (this.getTopCard().getSuit()>hand.getTopCard().getSuit())
-			return true;
-		else
-			return (this.getTopCard().getRank()>hand.getTopCard().getRank());
-	}
-	
 	public String getType() {
 		return "Flush";
 	}
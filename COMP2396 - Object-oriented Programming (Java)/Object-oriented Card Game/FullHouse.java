@@ -34,45 +34,6 @@ public class FullHouse extends Hand{
 				return false;
 		}
 	}
-	public Card getTopCard() {
-		/**
-		 * a method for retrieving the top card of this hand.
-		 */
-		Card topCard;
-		
-		// sort the hand
-		// if middle card == last card, last card is in the triple
-		//     hence last card is top card
-		// else last card is not in the triple
-		//     hence middle card is top card
-		
-		this.sort();
-
-		Card card2 = this.getCard(2);
-		Card card4 = this.getCard(4);
-		
-		if (card2==card4)
-			topCard = card4;
-		else
-			topCard = card2;
-		return topCard;
-	}
-	public boolean beats(Hand hand) {
-		/**
-		 * a method for checking if this hand beats a specified hand.
-		 */
-		if (hand == null) return false;
-		if (!this.isValid() || !hand.isValid()) return false;
-		if (this.size() != hand.size()) return false;
-		
-		if (this.compareCombo(hand)==1) 
-			return true;
-		else if (this.compareCombo(hand)==-1)
-			return false;
-		else return (this.getTopCard().compareTo(hand.getTopCard())>0);
-	}
-	
-	
 	public String getType() {
 		return "FullHouse";
 	}
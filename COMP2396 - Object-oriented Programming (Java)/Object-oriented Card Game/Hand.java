@@ -1,6 +1,3 @@
-import java.util.ArrayList;
-import java.util.Arrays;
-
 /**
  * The Hand class is a subclass of the CardList class and is used to model a hand of cards. 
  */
@@ -8,15 +5,10 @@ abstract class Hand extends CardList {
 	// Instance variables
 	private CardGamePlayer player;
 	/** the player who plays this hand.*/
-	private static ArrayList<String> comboRank = 
-			new ArrayList<>(Arrays.asList(
-					"Straight",
-					"Flush",
-					"FullHouse",
-					"Quad",
-					"StraightFlush"
-					));	
-	/** the rank of five-card combo*/
+	private int strength = UNKNOWN;
+	/** the cached strength of this hand, or -1 if this is not a valid hand (see HandClassifier.getStrength).*/
+	private static final int UNKNOWN = Integer.MIN_VALUE;
+	/** a marker for a strength which is not computed yet.*/
 	
 	// Constructors
 	public Hand(CardGamePlayer player, CardList cards) {
@@ -38,26 +30,43 @@ abstract class Hand extends CardList {
 		 */
 		return this.player;
 	}
+	public int getStrength() {
+		/**
+		 * a method for retrieving the strength of this hand, which packs the hand size, the type
+		 * and the top card into a single int. It is computed once and cached.
+		 */
+		if (strength == UNKNOWN) {
+			int type = HandClassifier.getTypeOf(this.getType());
+			long bits = CardSet.bitsOf(this);
+			if (type != HandClassifier.INVALID && Long.bitCount(bits) == this.size() && this.isValid())
+				strength = HandClassifier.getStrength(HandClassifier.encode(type, bits));
+			else
+				strength = -1;
+		}
+		return strength;
+	}
 	public Card getTopCard() {
 		/**
 		 * a method for retrieving the top card of this hand.
 		 */
-		Card topCard;
-		
-		this.sort();
-		topCard = this.getCard(this.size()-1);
-				
-		return topCard;
+		int strength = this.getStrength();
+		if (strength >= 0) {
+			// locate the top card given by the strength
+			int index = HandClassifier.getTopCardIndex(HandClassifier.getCode(strength));
+			for (int i=0;i<this.size();i++) {
+				if (CardSet.index(this.getCard(i)) == index)
+					return this.getCard(i);
+			}
+		}
+		// the cards are sorted in the constructor
+		return this.getCard(this.size()-1);
 	}
 	public boolean beats(Hand hand) {
 		/**
 		 * a method for checking if this hand beats a specified hand.
 		 */
 		if (hand == null) return false;
-		if (!this.isValid() || !hand.isValid()) return false;
-		if (this.getType() != hand.getType()) return false;
-		
-		return (this.getTopCard().compareTo(hand.getTopCard())>0);
+		return HandClassifier.beats(this.getStrength(), hand.getStrength());
 	}
 	public abstract boolean isValid();
 	/** a method for checking if this is a valid hand.*/
@@ -68,15 +77,9 @@ abstract class Hand extends CardList {
 		/**
 		 * a method for comparing the order of this five-card combo with the specified combo. 
 		 */
-		// get index of the declared ranking
-		int thisRank = comboRank.indexOf(this.getType());
-		int handRank = comboRank.indexOf(hand.getType());
-		if (thisRank > handRank) {
-			return 1;
-		} else if (thisRank < handRank) {
-			return -1;
-		} else {
-			return 0;
-		}
+		// compare the types packed in the strengths
+		int thisRank = HandClassifier.getType(HandClassifier.getCode(this.getStrength()));
+		int handRank = HandClassifier.getType(HandClassifier.getCode(hand.getStrength()));
+		return Integer.compare(thisRank, handRank);
 	}
 }
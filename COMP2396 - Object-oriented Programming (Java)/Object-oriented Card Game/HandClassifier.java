@@ -0,0 +1,286 @@
+/**
+ * This class is used to classify a set of Big Two cards into a hand type in
+ * constant time. The cards are given as a CardSet bitboard. Five-card combos
+ * are classified by a single lookup in a table built once when the class is
+ * loaded, indexed by the 13-bit mask of the ranks present, a flush bit and a
+ * four-of-a-kind bit.
+ * <p>
+ * The result of classify() is a hand code which packs the hand type together
+ * with the key of its top card. getStrength() adds the hand size on top of the
+ * code, so that beating a hand is one size check and one integer comparison.
+ */
+public class HandClassifier {
+	/** the code of a set of cards which is not a valid hand.*/
+	public static final int INVALID = 0;
+	/** the hand type of a single.*/
+	public static final int SINGLE = 1;
+	/** the hand type of a pair.*/
+	public static final int PAIR = 2;
+	/** the hand type of a triple.*/
+	public static final int TRIPLE = 3;
+	/** the hand type of a straight.*/
+	public static final int STRAIGHT = 4;
+	/** the hand type of a flush.*/
+	public static final int FLUSH = 5;
+	/** the hand type of a full house.*/
+	public static final int FULL_HOUSE = 6;
+	/** the hand type of a quad.*/
+	public static final int QUAD = 7;
+	/** the hand type of a straight flush.*/
+	public static final int STRAIGHT_FLUSH = 8;
+
+	// the number of bits used by the top card key in a hand code
+	private static final int TYPE_SHIFT = 6;
+	// the mask of the top card key in a hand code
+	private static final int KEY_MASK = (1 << TYPE_SHIFT) - 1;
+	// the number of bits used by the hand code in a strength
+	private static final int SIZE_SHIFT = 10;
+	// the bits of the lowest card (i.e., the diamond) of each rank
+	private static final long DIAMONDS = 0x1111111111111L;
+	// the names of the hand types, as returned by Hand.getType()
+	private static final String[] TYPE_NAMES = { null, "Single", "Pair",
+			"Triple", "Straight", "Flush", "FullHouse", "Quad",
+			"StraightFlush" };
+	// the number of cards of each hand type
+	private static final int[] TYPE_SIZES = { 0, 1, 2, 3, 5, 5, 5, 5, 5 };
+	// the type of a five-card combo, indexed by rank mask, flush and quad bits
+	private static final byte[] FIVE_CARD_TYPES = new byte[1 << 15];
+
+	static {
+		for (int rankMask = 0; rankMask < (1 << 13); rankMask++) {
+			int distinct = Integer.bitCount(rankMask);
+			for (int flush = 0; flush < 2; flush++) {
+				for (int four = 0; four < 2; four++) {
+					int type = INVALID;
+					if (distinct == 5) {
+						// five consecutive ranks, i.e., the mask is 0b11111
+						// shifted to the lowest rank present
+						boolean straight = (rankMask >>> Integer
+								.numberOfTrailingZeros(rankMask)) == 0x1F;
+						if (straight && flush == 1) {
+							type = STRAIGHT_FLUSH;
+						} else if (flush == 1) {
+							type = FLUSH;
+						} else if (straight) {
+							type = STRAIGHT;
+						}
+					} else if (distinct == 2 && flush == 0) {
+						type = (four == 1) ? QUAD : FULL_HOUSE;
+					}
+					FIVE_CARD_TYPES[(rankMask << 2) | (flush << 1) | four] = (byte) type;
+				}
+			}
+		}
+	}
+
+	/**
+	 * This class should not be instantiated.
+	 */
+	private HandClassifier() {
+	}
+
+	/**
+	 * Classifies the specified set of cards.
+	 *
+	 * @param bits the bitboard of the cards, as given by CardSet
+	 * @return the hand code of the cards, or INVALID if the cards do not form a
+	 *         valid hand
+	 */
+	public static int classify(long bits) {
+		int size = Long.bitCount(bits);
+		int low = Long.numberOfTrailingZeros(bits);
+		int high = 63 - Long.numberOfLeadingZeros(bits);
+		switch (size) {
+		case 1:
+			return (SINGLE << TYPE_SHIFT) | high;
+		case 2:
+			// both cards must be of the same rank
+			return ((low >> 2) == (high >> 2)) ? (PAIR << TYPE_SHIFT) | high
+					: INVALID;
+		case 3:
+			return ((low >> 2) == (high >> 2)) ? (TRIPLE << TYPE_SHIFT) | high
+					: INVALID;
+		case 5:
+			return classifyFive(bits, low);
+		default:
+			return INVALID;
+		}
+	}
+
+	/**
+	 * Classifies the specified set of five cards.
+	 */
+	private static int classifyFive(long bits, int low) {
+		int rankMask = 0;
+		for (long b = bits; b != 0; b &= b - 1) {
+			rankMask |= 1 << (Long.numberOfTrailingZeros(b) >> 2);
+		}
+		// all the cards are of the suit of the lowest card
+		int flush = (bits & (DIAMONDS << (low & 3))) == bits ? 1 : 0;
+		// any rank having all its four bits set
+		long x = bits & (bits >>> 1);
+		int four = (x & (x >>> 2) & DIAMONDS) != 0 ? 1 : 0;
+
+		int type = FIVE_CARD_TYPES[(rankMask << 2) | (flush << 1) | four];
+		return (type == INVALID) ? INVALID : (type << TYPE_SHIFT) | topKey(type, bits);
+	}
+
+	/**
+	 * Returns the hand code of the specified cards taken as a hand of the
+	 * specified type. The cards are assumed to be valid for the type, e.g. a
+	 * straight flush may be encoded as a plain straight.
+	 *
+	 * @param type the hand type
+	 * @param bits the bitboard of the cards
+	 * @return the hand code of the cards
+	 */
+	public static int encode(int type, long bits) {
+		return (type << TYPE_SHIFT) | topKey(type, bits);
+	}
+
+	/**
+	 * Returns the key of the top card of the specified cards taken as a hand of
+	 * the specified type.
+	 */
+	private static int topKey(int type, long bits) {
+		int low = Long.numberOfTrailingZeros(bits);
+		int high = 63 - Long.numberOfLeadingZeros(bits);
+		switch (type) {
+		case FLUSH:
+			// flushes are ordered by suit first, and then by the top rank
+			return (high & 3) * 13 + (high >> 2);
+		case FULL_HOUSE:
+		case QUAD:
+			// the top card is the highest card of the triple (or quad), which
+			// is the rank holding more cards
+			int highNibble = (int) (bits >>> (high & ~3)) & 0xF;
+			if (Integer.bitCount(highNibble) >= 3) {
+				return high;
+			}
+			int lowNibble = (int) (bits >>> (low & ~3)) & 0xF;
+			return (low & ~3) + 31 - Integer.numberOfLeadingZeros(lowNibble);
+		default:
+			return high;
+		}
+	}
+
+	/**
+	 * Returns the strength of the specified hand code. The strength is a total
+	 * order key packing the hand size, the hand type and the top card key, so
+	 * that a hand beats another hand of the same size if and only if its
+	 * strength is greater.
+	 *
+	 * @param code the hand code returned by classify() or encode()
+	 * @return the strength of the hand, or -1 if the code is INVALID
+	 */
+	public static int getStrength(int code) {
+		return (code == INVALID) ? -1
+				: (TYPE_SIZES[code >>> TYPE_SHIFT] << SIZE_SHIFT) | code;
+	}
+
+	/**
+	 * Returns the lowest strength of a hand of the specified type.
+	 *
+	 * @param type the hand type
+	 * @return the lowest strength of a hand of the type
+	 */
+	public static int getMinStrength(int type) {
+		return getStrength(type << TYPE_SHIFT);
+	}
+
+	/**
+	 * Returns true if a hand of the first strength beats a hand of the second
+	 * strength, i.e., both hands are valid and of the same size, and the first
+	 * strength is greater.
+	 *
+	 * @param strength the strength of the hand being played
+	 * @param other    the strength of the hand to be beaten
+	 * @return true if the first hand beats the second one
+	 */
+	public static boolean beats(int strength, int other) {
+		return other >= 0 && (strength >>> SIZE_SHIFT) == (other >>> SIZE_SHIFT)
+				&& strength > other;
+	}
+
+	/**
+	 * Returns the hand code packed in the specified strength.
+	 *
+	 * @param strength the strength of a hand
+	 * @return the hand code of the hand
+	 */
+	public static int getCode(int strength) {
+		return (strength < 0) ? INVALID : strength & ((1 << SIZE_SHIFT) - 1);
+	}
+
+	/**
+	 * Returns the hand type of the specified hand code.
+	 *
+	 * @param code the hand code returned by classify()
+	 * @return the hand type, or INVALID
+	 */
+	public static int getType(int code) {
+		return code >>> TYPE_SHIFT;
+	}
+
+	/**
+	 * Returns the key of the top card of the specified hand code. For all hand
+	 * types other than a flush, this is the CardSet index of the top card.
+	 *
+	 * @param code the hand code returned by classify()
+	 * @return the key of the top card
+	 */
+	public static int getTopKey(int code) {
+		return code & KEY_MASK;
+	}
+
+	/**
+	 * Returns the CardSet index of the top card of the specified hand code.
+	 *
+	 * @param code the hand code returned by classify()
+	 * @return the index of the top card
+	 */
+	public static int getTopCardIndex(int code) {
+		int key = code & KEY_MASK;
+		if (getType(code) == FLUSH) {
+			// undo the suit-first ordering of a flush
+			return (key % 13) * 4 + key / 13;
+		}
+		return key;
+	}
+
+	/**
+	 * Returns the number of cards of the specified hand type.
+	 *
+	 * @param type the hand type
+	 * @return the number of cards, or 0 if the type is INVALID
+	 */
+	public static int getSize(int type) {
+		return TYPE_SIZES[type];
+	}
+
+	/**
+	 * Returns the hand type of the specified name.
+	 *
+	 * @param name the name of the hand type, as returned by Hand.getType()
+	 * @return the hand type, or INVALID if the name is unknown
+	 */
+	public static int getTypeOf(String name) {
+		for (int type = SINGLE; type < TYPE_NAMES.length; type++) {
+			if (TYPE_NAMES[type].equals(name)) {
+				return type;
+			}
+		}
+		return INVALID;
+	}
+
+	/**
+	 * Returns the name of the specified hand type, as returned by
+	 * Hand.getType().
+	 *
+	 * @param type the hand type
+	 * @return the name of the hand type, or null if the type is INVALID
+	 */
+	public static String getTypeName(int type) {
+		return TYPE_NAMES[type];
+	}
+}
@@ -0,0 +1,296 @@
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class is used to model a hashed timing wheel, which runs a large
+ * number of timers with a single thread. The wheel is an array of buckets,
+ * one for each tick; a timer is put in the bucket of the tick at which it
+ * expires, with the number of turns of the wheel left before then. At each
+ * tick, the thread of the wheel walks the bucket of the tick only, and runs
+ * the timers which expire.
+ * <p>
+ * A timer (see Timeout) is created once by its owner and scheduled again and
+ * again, so that scheduling it allocates nothing. The buckets are intrusive
+ * doubly linked lists of the timers, so that a timer is scheduled and
+ * cancelled in constant time. A timer never expires early, and expires at most
+ * a tick late as long as the thread of the wheel keeps up, so the tick is the
+ * resolution of the wheel.
+ * <p>
+ * The tasks of the timers are run by the thread of the wheel, and must be
+ * short: a task which has to do more hands it over to another thread.
+ */
+public class HashedWheelTimer {
+	// the buckets of the wheel, each the head of a list of timers
+	private final Timeout[] wheel;
+	// the mask for the bucket of a tick, as the wheel has 2^n buckets
+	private final int mask;
+	// the duration of a tick, in nanoseconds
+	private final long tickNanos;
+	// the time at which the wheel started, in nanoseconds
+	private final long startNanos;
+	// the lock guarding the buckets and the timers
+	private final ReentrantLock lock = new ReentrantLock();
+	// the number of ticks since the wheel started, guarded by the lock
+	private long tick = 0;
+	// the number of timers scheduled, guarded by the lock
+	private int numOfPending = 0;
+	// the number of timers expired
+	private volatile long numOfExpired = 0;
+	// the thread of the wheel
+	private final Thread thread;
+	// a boolean indicating if the wheel is stopped
+	private volatile boolean stopped = false;
+
+	/**
+	 * This inner class is used to model a timer of a wheel, which runs its
+	 * task once it expires. A timer is scheduled on one wheel at a time, and
+	 * may be scheduled again or cancelled by any thread. Scheduling a timer
+	 * which is scheduled reschedules it.
+	 */
+	public static class Timeout {
+		// the task run when this timer expires
+		private final Runnable task;
+		// the previous and next timers in the bucket
+		private Timeout prev, next;
+		// the next timer which expires at the current tick
+		private Timeout nextExpired;
+		// the bucket of this timer, or -1 if it is not scheduled
+		private int bucket = -1;
+		// the number of turns of the wheel left before this timer expires
+		private long rounds;
+		// a boolean indicating if this timer has expired and its task is to
+		// be run
+		private boolean expired = false;
+
+		/**
+		 * Creates and returns an instance of the Timeout class.
+		 *
+		 * @param task
+		 *            the task run when this timer expires
+		 */
+		public Timeout(Runnable task) {
+			this.task = task;
+		}
+	}
+
+	/**
+	 * Creates and returns an instance of the HashedWheelTimer class, and
+	 * starts its thread.
+	 *
+	 * @param name
+	 *            the name of the thread of the wheel
+	 * @param tickMillis
+	 *            the duration of a tick, in milliseconds
+	 * @param ticksPerWheel
+	 *            the number of buckets of the wheel, rounded up to a power of
+	 *            two
+	 */
+	public HashedWheelTimer(String name, long tickMillis, int ticksPerWheel) {
+		if (tickMillis <= 0 || ticksPerWheel <= 0 || ticksPerWheel > 1 << 30) {
+			throw new IllegalArgumentException("Invalid wheel: " + tickMillis
+					+ ", " + ticksPerWheel);
+		}
+		int size = 1;
+		while (size < ticksPerWheel) {
+			size <<= 1;
+		}
+		this.wheel = new Timeout[size];
+		this.mask = size - 1;
+		this.tickNanos = tickMillis * 1000000L;
+		this.startNanos = System.nanoTime();
+		this.thread = new Thread(this::run, name);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Schedules the specified timer to expire after the specified delay. The
+	 * timer is cancelled first if it is scheduled.
+	 *
+	 * @param timeout
+	 *            the timer to be scheduled
+	 * @param delayMillis
+	 *            the delay, in milliseconds; the timer expires at the next
+	 *            tick at the earliest
+	 */
+	public void schedule(Timeout timeout, long delayMillis) {
+		// the first tick at or after the deadline
+		long deadline = System.nanoTime() - startNanos + delayMillis * 1000000L;
+		long deadlineTick = (deadline + tickNanos - 1) / tickNanos;
+		lock.lock();
+		try {
+			long ticks = Math.max(1, deadlineTick - tick);
+			unlink(timeout);
+			timeout.expired = false;
+			timeout.rounds = (ticks - 1) / wheel.length;
+			timeout.bucket = (int) ((tick + ticks) & mask);
+			// the timer is put at the head of its bucket
+			timeout.prev = null;
+			timeout.next = wheel[timeout.bucket];
+			if (timeout.next != null) {
+				timeout.next.prev = timeout;
+			}
+			wheel[timeout.bucket] = timeout;
+			numOfPending++;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Cancels the specified timer, so that its task is not run unless it is
+	 * scheduled again. It does nothing if the timer is not scheduled.
+	 *
+	 * @param timeout
+	 *            the timer to be cancelled
+	 */
+	public void cancel(Timeout timeout) {
+		lock.lock();
+		try {
+			unlink(timeout);
+			timeout.expired = false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the specified timer from its bucket, if it is in one. The
+	 * caller must hold the lock.
+	 *
+	 * @param timeout
+	 *            the timer to be removed
+	 */
+	private void unlink(Timeout timeout) {
+		if (timeout.bucket < 0) {
+			return;
+		}
+		if (timeout.prev != null) {
+			timeout.prev.next = timeout.next;
+		} else {
+			wheel[timeout.bucket] = timeout.next;
+		}
+		if (timeout.next != null) {
+			timeout.next.prev = timeout.prev;
+		}
+		timeout.prev = null;
+		timeout.next = null;
+		timeout.bucket = -1;
+		numOfPending--;
+	}
+
+	/**
+	 * Returns the number of timers scheduled.
+	 *
+	 * @return the number of timers scheduled
+	 */
+	public int getNumOfPending() {
+		lock.lock();
+		try {
+			return numOfPending;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Returns the number of timers expired since the wheel started.
+	 *
+	 * @return the number of timers expired
+	 */
+	public long getNumOfExpired() {
+		return numOfExpired;
+	}
+
+	/**
+	 * Stops the thread of the wheel. The timers scheduled never expire.
+	 */
+	public void stop() {
+		stopped = true;
+		thread.interrupt();
+	}
+
+	/**
+	 * Advances the wheel one tick at a time, and runs the tasks of the timers
+	 * which expire. Run by the thread of the wheel.
+	 */
+	private void run() {
+		long ticks = 0;
+		while (!stopped) {
+			// sleeps until the next tick is due
+			long sleep = startNanos + (ticks + 1) * tickNanos - System.nanoTime();
+			if (sleep > 0) {
+				try {
+					Thread.sleep(sleep / 1000000L, (int) (sleep % 1000000L));
+				} catch (InterruptedException ex) {
+					continue;
+				}
+			}
+			ticks++;
+			runExpired(advance());
+		}
+	}
+
+	/**
+	 * Advances the wheel by a tick, and takes the timers which expire at the
+	 * tick out of its bucket.
+	 *
+	 * @return the first of the timers which expire, linked by nextExpired
+	 */
+	private Timeout advance() {
+		lock.lock();
+		try {
+			tick++;
+			int bucket = (int) (tick & mask);
+			Timeout expired = null;
+			Timeout timeout = wheel[bucket];
+			while (timeout != null) {
+				Timeout next = timeout.next;
+				if (timeout.rounds > 0) {
+					timeout.rounds--;
+				} else {
+					unlink(timeout);
+					timeout.expired = true;
+					timeout.nextExpired = expired;
+					expired = timeout;
+				}
+				timeout = next;
+			}
+			return expired;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Runs the tasks of the specified timers, unless they have been scheduled
+	 * again or cancelled since they expired. The tasks are run without the
+	 * lock held, so that they may schedule timers and take other locks.
+	 *
+	 * @param expired
+	 *            the first of the timers which expire, linked by
+	 *            nextExpired
+	 */
+	private void runExpired(Timeout expired) {
+		while (expired != null) {
+			Timeout timeout = expired;
+			expired = timeout.nextExpired;
+			timeout.nextExpired = null;
+			boolean run;
+			lock.lock();
+			try {
+				run = timeout.expired;
+				timeout.expired = false;
+			} finally {
+				lock.unlock();
+			}
+			if (run) {
+				numOfExpired++;
+				try {
+					timeout.task.run();
+				} catch (RuntimeException ex) {
+					ex.printStackTrace();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,41 @@
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class is used to model a reentrant lock which counts how often it is
+ * acquired, and how often a thread has to wait for it because another thread
+ * holds it. Locks guarding the same kind of state can share their counters, so
+ * that the contention of, say, all the tables of a server is told by a pair of
+ * counters.
+ */
+public class InstrumentedLock extends ReentrantLock {
+	private static final long serialVersionUID = -6014513364213562427L;
+	private final transient LongAdder acquisitions; // the number of times the lock is acquired
+	private final transient LongAdder contentions; // the number of times a thread waits for the lock
+
+	/**
+	 * Creates and returns an instance of the InstrumentedLock class.
+	 *
+	 * @param acquisitions
+	 *            the counter of the number of times the lock is acquired
+	 * @param contentions
+	 *            the counter of the number of times a thread has to wait for
+	 *            the lock
+	 */
+	public InstrumentedLock(LongAdder acquisitions, LongAdder contentions) {
+		this.acquisitions = acquisitions;
+		this.contentions = contentions;
+	}
+
+	/**
+	 * Acquires the lock, counting a contention if it is held by another thread.
+	 */
+	@Override
+	public void lock() {
+		if (!tryLock()) {
+			contentions.increment();
+			super.lock();
+		}
+		acquisitions.increment();
+	}
+}
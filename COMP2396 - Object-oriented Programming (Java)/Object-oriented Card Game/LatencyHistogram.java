@@ -0,0 +1,93 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is used to model a histogram of latencies, such as the time a
+ * player waits to be seated. The latencies are counted in buckets whose upper
+ * bounds are powers of two microseconds, so a percentile is told within a
+ * factor of two, with a fixed and small memory. A latency is recorded without
+ * a lock, so many threads can record at once.
+ */
+public class LatencyHistogram {
+	// the number of buckets, enough for any latency in microseconds
+	private static final int NUM_OF_BUCKETS = 64;
+
+	// the number of latencies in each bucket; bucket i holds the latencies
+	// of less than 2^i microseconds and not less than 2^(i-1)
+	private final LongAdder[] buckets = new LongAdder[NUM_OF_BUCKETS];
+	// the largest latency recorded, in microseconds
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Creates and returns an instance of the LatencyHistogram class.
+	 */
+	public LatencyHistogram() {
+		for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Records the specified latency.
+	 *
+	 * @param nanos
+	 *            the latency, in nanoseconds
+	 */
+	public void record(long nanos) {
+		long micros = Math.max(0, nanos / 1000);
+		buckets[Long.SIZE - Long.numberOfLeadingZeros(micros)].increment();
+		if (micros > max.get()) {
+			max.accumulateAndGet(micros, Math::max);
+		}
+	}
+
+	/**
+	 * Returns the number of latencies recorded.
+	 *
+	 * @return the number of latencies recorded
+	 */
+	public long getCount() {
+		long count = 0;
+		for (LongAdder bucket : buckets) {
+			count += bucket.sum();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the largest latency recorded.
+	 *
+	 * @return the largest latency, in microseconds
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Returns an upper bound of the specified percentile of the latencies
+	 * recorded, i.e., the upper bound of the bucket holding the percentile.
+	 *
+	 * @param percentile
+	 *            the percentile, between 0 and 100
+	 * @return the upper bound of the percentile, in microseconds, or 0 if no
+	 *         latency has been recorded
+	 */
+	public long getPercentile(double percentile) {
+		long[] counts = new long[NUM_OF_BUCKETS];
+		long count = 0;
+		for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+			counts[i] = buckets[i].sum();
+			count += counts[i];
+		}
+		long rank = (long) Math.ceil(count * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < NUM_OF_BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank && counts[i] > 0) {
+				// the bound is no larger than the largest latency recorded
+				return Math.min((i == 0) ? 0 : 1L << i, getMax());
+			}
+		}
+		return 0;
+	}
+}
@@ -0,0 +1,161 @@
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * This class is used to model a long-lived Java object stream whose memory is
+ * bounded. An ObjectOutputStream keeps a handle to every object written, so
+ * that an object written again is sent as a back reference, and the
+ * ObjectInputStream reading the stream does the same. Neither ever lets go of
+ * the objects unless the stream is reset, so the heap of both ends grows with
+ * the length of the session.
+ * <p>
+ * This stream resets itself after a number of messages or bytes written since
+ * the last reset, whichever comes first. A reset is sent on the stream, and
+ * clears the handles of the reading end as well. The cost is that the class
+ * descriptors are sent again after each reset.
+ */
+public class ManagedObjectOutputStream extends ObjectOutputStream {
+	/**
+	 * The default number of messages written between resets.
+	 */
+	public static final int DEFAULT_RESET_MESSAGES = 256;
+	/**
+	 * The default number of bytes written between resets.
+	 */
+	public static final long DEFAULT_RESET_BYTES = 64 * 1024;
+
+	private final CountingOutputStream counter; // counts the bytes written
+	private final int resetMessages; // the messages written between resets
+	private final long resetBytes; // the bytes written between resets
+	private volatile int messagesSinceReset = 0; // the messages written since the last reset
+	private volatile long bytesAtReset = 0; // the bytes written before the last reset
+	private volatile long numOfResets = 0; // the number of resets
+
+	/**
+	 * Creates and returns an instance of the ManagedObjectOutputStream class,
+	 * which resets itself every DEFAULT_RESET_MESSAGES messages or
+	 * DEFAULT_RESET_BYTES bytes.
+	 *
+	 * @param out
+	 *            the output stream to write to
+	 * @throws IOException
+	 *             if the stream header cannot be written
+	 */
+	public ManagedObjectOutputStream(OutputStream out) throws IOException {
+		this(out, DEFAULT_RESET_MESSAGES, DEFAULT_RESET_BYTES);
+	}
+
+	/**
+	 * Creates and returns an instance of the ManagedObjectOutputStream class.
+	 *
+	 * @param out
+	 *            the output stream to write to
+	 * @param resetMessages
+	 *            the number of messages written between resets
+	 * @param resetBytes
+	 *            the number of bytes written between resets
+	 * @throws IOException
+	 *             if the stream header cannot be written
+	 */
+	public ManagedObjectOutputStream(OutputStream out, int resetMessages,
+			long resetBytes) throws IOException {
+		this(new CountingOutputStream(out), resetMessages, resetBytes);
+	}
+
+	private ManagedObjectOutputStream(CountingOutputStream counter,
+			int resetMessages, long resetBytes) throws IOException {
+		super(counter);
+		if (resetMessages <= 0 || resetBytes <= 0) {
+			throw new IllegalArgumentException("Invalid reset interval: "
+					+ resetMessages + ", " + resetBytes);
+		}
+		this.counter = counter;
+		this.resetMessages = resetMessages;
+		this.resetBytes = resetBytes;
+	}
+
+	/**
+	 * Writes the specified message to the stream, and resets the stream if
+	 * enough messages or bytes have been written since the last reset. The
+	 * objects in the message must not refer to the objects of other messages
+	 * which are expected to be shared once read.
+	 *
+	 * @param message
+	 *            the message to be written
+	 * @throws IOException
+	 *             if the message cannot be written
+	 */
+	public void writeMessage(Object message) throws IOException {
+		writeObject(message);
+		messagesSinceReset++;
+		if (messagesSinceReset >= resetMessages
+				|| getRetainedBytes() >= resetBytes) {
+			reset();
+			messagesSinceReset = 0;
+			bytesAtReset = counter.count;
+			numOfResets++;
+		}
+	}
+
+	/**
+	 * Returns the number of messages written since the last reset, whose
+	 * objects are held by both ends of the stream.
+	 *
+	 * @return the number of messages written since the last reset
+	 */
+	public int getRetainedMessages() {
+		return messagesSinceReset;
+	}
+
+	/**
+	 * Returns the number of bytes written since the last reset, which is a
+	 * measure of the memory held by both ends of the stream. The bytes still
+	 * buffered by the stream are not counted.
+	 *
+	 * @return the number of bytes written since the last reset
+	 */
+	public long getRetainedBytes() {
+		return counter.count - bytesAtReset;
+	}
+
+	/**
+	 * Returns the number of times the stream has been reset.
+	 *
+	 * @return the number of resets
+	 */
+	public long getNumOfResets() {
+		return numOfResets;
+	}
+
+	/**
+	 * This inner class is used to count the bytes written to an output
+	 * stream.
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+		private volatile long count = 0; // the number of bytes written
+
+		/**
+		 * Creates and returns an instance of the CountingOutputStream class.
+		 *
+		 * @param out
+		 *            the output stream to write to
+		 */
+		public CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+}
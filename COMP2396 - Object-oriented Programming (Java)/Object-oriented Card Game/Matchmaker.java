@@ -0,0 +1,255 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * This class is used to model a matchmaking queue, which batches the players
+ * waiting for a game into groups of a fixed size. The players are put in the
+ * queue of their rating bucket, so that a group is made of players of the same
+ * bucket only.
+ * <p>
+ * A player is enqueued without a lock, by any thread. The groups are formed
+ * by rounds of matching (see match()), which are run one at a time, e.g.,
+ * periodically by a timer, so that a round takes all the players which have
+ * arrived since the last one in a single pass. A player who has waited too
+ * long for a group is handed over on their own, so that nobody waits forever in
+ * a bucket which fills up slowly.
+ *
+ * @param <T>
+ *            the type of the players
+ */
+public class Matchmaker<T> {
+	// the size of a group
+	private final int groupSize;
+	// the longest time a player waits for a group, in nanoseconds
+	private final long maxWaitNanos;
+	// the players enqueued, by rating bucket
+	private final ConcurrentHashMap<Integer, ConcurrentLinkedQueue<Entry<T>>> queues = new ConcurrentHashMap<Integer, ConcurrentLinkedQueue<Entry<T>>>();
+	// the players taken from the queues but not yet grouped, by rating
+	// bucket, owned by the round of matching
+	private final Map<Integer, ArrayDeque<Entry<T>>> pending = new HashMap<Integer, ArrayDeque<Entry<T>>>();
+	// the number of players waiting
+	private final AtomicInteger numOfWaiting = new AtomicInteger();
+
+	/**
+	 * This inner class is used to model a player waiting in the queue.
+	 *
+	 * @param <T>
+	 *            the type of the players
+	 */
+	private static class Entry<T> {
+		// the player
+		private final T player;
+		// the time at which the player was enqueued, in nanoseconds
+		private final long enqueued;
+
+		private Entry(T player, long enqueued) {
+			this.player = player;
+			this.enqueued = enqueued;
+		}
+	}
+
+	/**
+	 * Creates and returns an instance of the Matchmaker class.
+	 *
+	 * @param groupSize
+	 *            the size of a group
+	 * @param maxWaitMillis
+	 *            the longest time a player waits for a group, in milliseconds
+	 */
+	public Matchmaker(int groupSize, long maxWaitMillis) {
+		if (groupSize <= 0 || maxWaitMillis < 0) {
+			throw new IllegalArgumentException("Invalid matchmaker: "
+					+ groupSize + ", " + maxWaitMillis);
+		}
+		this.groupSize = groupSize;
+		this.maxWaitNanos = maxWaitMillis * 1000000L;
+	}
+
+	/**
+	 * Puts the specified player in the queue of the specified rating bucket.
+	 * It does not block, and may be called by any thread.
+	 *
+	 * @param player
+	 *            the player to be enqueued
+	 * @param bucket
+	 *            the rating bucket of the player
+	 */
+	public void enqueue(T player, int bucket) {
+		ConcurrentLinkedQueue<Entry<T>> queue = queues.get(bucket);
+		if (queue == null) {
+			queue = queues.computeIfAbsent(bucket,
+					b -> new ConcurrentLinkedQueue<Entry<T>>());
+		}
+		numOfWaiting.incrementAndGet();
+		queue.offer(new Entry<T>(player, System.nanoTime()));
+	}
+
+	/**
+	 * Returns the number of players waiting, including those who have left
+	 * but have not been dropped by a round of matching yet.
+	 *
+	 * @return the number of players waiting
+	 */
+	public int getNumOfWaiting() {
+		return numOfWaiting.get();
+	}
+
+	/**
+	 * Runs a round of matching. The players of each bucket are grouped in the
+	 * order they were enqueued, and each group is given to the group sink; it
+	 * returns false if the group cannot be taken, e.g., as there is no room
+	 * for it, and the group then waits for the next round. The players who
+	 * have waited too long for a group are then given to the player sink one
+	 * by one, which likewise returns false if a player cannot be taken. The
+	 * players who are no longer waiting, e.g., as they have left, are
+	 * dropped.
+	 * <p>
+	 * The rounds must be run one at a time.
+	 *
+	 * @param waiting
+	 *            the test of whether a player is still waiting
+	 * @param groupSink
+	 *            the sink of the groups formed, given the players and the
+	 *            times at which they were enqueued
+	 * @param playerSink
+	 *            the sink of the players who have waited too long, given the
+	 *            player and the time at which the player was enqueued
+	 */
+	public void match(Predicate<T> waiting, GroupSink<T> groupSink,
+			PlayerSink<T> playerSink) {
+		for (Map.Entry<Integer, ConcurrentLinkedQueue<Entry<T>>> e : queues
+				.entrySet()) {
+			ArrayDeque<Entry<T>> deque = pending.get(e.getKey());
+			if (deque == null) {
+				deque = new ArrayDeque<Entry<T>>();
+				pending.put(e.getKey(), deque);
+			}
+			Entry<T> entry;
+			while ((entry = e.getValue().poll()) != null) {
+				deque.add(entry);
+			}
+			drop(deque, waiting);
+			matchGroups(deque, groupSink);
+			matchStragglers(deque, playerSink);
+		}
+	}
+
+	/**
+	 * Drops the players who are no longer waiting from the specified deque.
+	 *
+	 * @param deque
+	 *            the players of a bucket
+	 * @param waiting
+	 *            the test of whether a player is still waiting
+	 */
+	private void drop(ArrayDeque<Entry<T>> deque, Predicate<T> waiting) {
+		for (Iterator<Entry<T>> it = deque.iterator(); it.hasNext();) {
+			if (!waiting.test(it.next().player)) {
+				it.remove();
+				numOfWaiting.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Forms as many groups as possible from the specified deque, in the order
+	 * the players were enqueued, until the group sink takes no more.
+	 *
+	 * @param deque
+	 *            the players of a bucket
+	 * @param groupSink
+	 *            the sink of the groups formed
+	 */
+	private void matchGroups(ArrayDeque<Entry<T>> deque, GroupSink<T> groupSink) {
+		List<T> players = new ArrayList<T>(groupSize);
+		long[] enqueued = new long[groupSize];
+		while (deque.size() >= groupSize) {
+			players.clear();
+			Iterator<Entry<T>> it = deque.iterator();
+			for (int i = 0; i < groupSize; i++) {
+				Entry<T> entry = it.next();
+				players.add(entry.player);
+				enqueued[i] = entry.enqueued;
+			}
+			if (!groupSink.accept(players, enqueued)) {
+				return;
+			}
+			for (int i = 0; i < groupSize; i++) {
+				deque.poll();
+			}
+			numOfWaiting.addAndGet(-groupSize);
+		}
+	}
+
+	/**
+	 * Hands over the players of the specified deque who have waited too long
+	 * one by one, until the player sink takes no more.
+	 *
+	 * @param deque
+	 *            the players of a bucket, fewer than a group
+	 * @param playerSink
+	 *            the sink of the players who have waited too long
+	 */
+	private void matchStragglers(ArrayDeque<Entry<T>> deque,
+			PlayerSink<T> playerSink) {
+		long now = System.nanoTime();
+		Entry<T> entry;
+		while ((entry = deque.peek()) != null
+				&& now - entry.enqueued >= maxWaitNanos) {
+			if (!playerSink.accept(entry.player, entry.enqueued)) {
+				return;
+			}
+			deque.poll();
+			numOfWaiting.decrementAndGet();
+		}
+	}
+
+	/**
+	 * This interface is used to take the groups formed by a round of
+	 * matching.
+	 *
+	 * @param <T>
+	 *            the type of the players
+	 */
+	public interface GroupSink<T> {
+		/**
+		 * Takes the specified group.
+		 *
+		 * @param players
+		 *            the players of the group, which is reused after the call
+		 * @param enqueued
+		 *            the times at which the players were enqueued, in
+		 *            nanoseconds
+		 * @return true if the group is taken; false otherwise
+		 */
+		boolean accept(List<T> players, long[] enqueued);
+	}
+
+	/**
+	 * This interface is used to take the players who have waited too long for
+	 * a group.
+	 *
+	 * @param <T>
+	 *            the type of the players
+	 */
+	public interface PlayerSink<T> {
+		/**
+		 * Takes the specified player.
+		 *
+		 * @param player
+		 *            the player
+		 * @param enqueued
+		 *            the time at which the player was enqueued, in nanoseconds
+		 * @return true if the player is taken; false otherwise
+		 */
+		boolean accept(T player, long enqueued);
+	}
+}
@@ -0,0 +1,52 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * This interface is used to model a codec of the messages of the card game,
+ * which encodes a message into the body of a frame (see MessageFrame) and
+ * decodes it back. The codec of a connection is chosen by the client in the
+ * preamble it sends when it connects.
+ */
+public interface MessageCodec {
+	/**
+	 * The ID of the codec serializing the messages with Java serialization.
+	 */
+	public static final int SERIALIZED = 0;
+	/**
+	 * The ID of the codec encoding the messages in a compact binary form.
+	 */
+	public static final int BINARY = 1;
+
+	/**
+	 * Returns the ID of this codec, which is sent in the preamble.
+	 * 
+	 * @return the ID of this codec
+	 */
+	public int getId();
+
+	/**
+	 * Encodes the specified message to the specified stream.
+	 * 
+	 * @param message
+	 *            the message to be encoded
+	 * @param out
+	 *            the stream to which the message is encoded
+	 * @throws IOException
+	 *             if the message cannot be encoded
+	 */
+	public void encode(GameMessage message, DataOutputStream out) throws IOException;
+
+	/**
+	 * Decodes a message of the specified length from the specified stream.
+	 * 
+	 * @param in
+	 *            the stream from which the message is decoded
+	 * @param length
+	 *            the length of the encoded message
+	 * @return the message decoded
+	 * @throws IOException
+	 *             if the message is not valid
+	 */
+	public CardGameMessage decode(DataInputStream in, int length) throws IOException;
+}
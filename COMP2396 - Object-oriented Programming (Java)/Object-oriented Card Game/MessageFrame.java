@@ -0,0 +1,169 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+
+/**
+ * This class is used to encode and decode the frames of the framed protocol of
+ * the card game. A client of the framed protocol starts by sending a 4-byte
+ * preamble naming the codec of the messages (see getPreamble()), and each
+ * message is then sent as a frame made up of a 4-byte length followed by the
+ * message encoded by the codec.
+ * <p>
+ * Unlike a long-lived object stream, a frame does not depend on the frames
+ * before it, so it can be decoded as soon as it is read from a non-blocking
+ * channel. A legacy client sending a Java object stream is told apart by the
+ * first two bytes of the stream, which are STREAM_MAGIC.
+ */
+public class MessageFrame {
+	/**
+	 * The preamble sent by a client of the framed protocol, without the codec:
+	 * the bytes 'C' and 'G', the version of the protocol and the ID of the
+	 * codec of the messages.
+	 */
+	public static final int PREAMBLE = 0x43470100;
+	/**
+	 * The first two bytes of a Java object stream, which are sent by a legacy
+	 * client instead of the preamble.
+	 */
+	public static final int STREAM_MAGIC = 0xACED;
+	/**
+	 * The length of the header of a frame.
+	 */
+	public static final int HEADER_LENGTH = 4;
+	/**
+	 * The maximum length of the message in a frame.
+	 */
+	public static final int MAX_LENGTH = 1 << 20;
+
+	/**
+	 * Returns the preamble sent by a client using the specified codec.
+	 *
+	 * @param codec the codec of the messages
+	 * @return the preamble
+	 */
+	public static int getPreamble(MessageCodec codec) {
+		return PREAMBLE | codec.getId();
+	}
+
+	/**
+	 * Returns the ID of the codec named by the specified preamble.
+	 *
+	 * @param preamble the first four bytes sent by a client
+	 * @return the ID of the codec, or -1 if it is not a preamble
+	 */
+	public static int getCodecId(int preamble) {
+		return ((preamble & ~0xFF) == PREAMBLE) ? preamble & 0xFF : -1;
+	}
+
+	/**
+	 * Returns a frame holding the specified message, ready to be written.
+	 *
+	 * @param message the message to be encoded
+	 * @param codec the codec of the message
+	 * @return a buffer holding the frame, positioned at its start
+	 * @throws IOException if the message cannot be encoded
+	 */
+	public static ByteBuffer encode(GameMessage message, MessageCodec codec) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0); // the length, filled in below
+		codec.encode(message, out);
+		out.flush();
+		ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+		int length = frame.limit() - HEADER_LENGTH;
+		if (length > MAX_LENGTH) {
+			throw new IOException("Message too long: " + length);
+		}
+		frame.putInt(0, length);
+		return frame;
+	}
+
+	/**
+	 * Returns the length of the frame at the position of the specified buffer,
+	 * if the buffer holds all of it.
+	 *
+	 * @param buffer a buffer in read mode holding the bytes received
+	 * @return the length of the frame including its header, or -1 if the buffer
+	 *         does not hold all of it
+	 * @throws StreamCorruptedException if the length is not valid
+	 */
+	public static int frameLength(ByteBuffer buffer) throws StreamCorruptedException {
+		if (buffer.remaining() < HEADER_LENGTH) {
+			return -1;
+		}
+		int length = buffer.getInt(buffer.position());
+		if (length < 0 || length > MAX_LENGTH) {
+			throw new StreamCorruptedException("Invalid frame length: " + length);
+		}
+		return (buffer.remaining() >= HEADER_LENGTH + length) ? HEADER_LENGTH + length : -1;
+	}
+
+	/**
+	 * Decodes the message of the frame at the position of the specified buffer,
+	 * which must hold all of it (see frameLength()). The position is moved to
+	 * the end of the frame.
+	 *
+	 * @param buffer a buffer in read mode holding the frame
+	 * @param codec the codec of the message
+	 * @return the message in the frame
+	 * @throws IOException if the frame is not valid
+	 */
+	public static CardGameMessage decode(ByteBuffer buffer, MessageCodec codec) throws IOException {
+		int length = frameLength(buffer);
+		if (length < 0) {
+			throw new StreamCorruptedException("Incomplete frame");
+		}
+		byte[] bytes = new byte[length - HEADER_LENGTH];
+		buffer.position(buffer.position() + HEADER_LENGTH);
+		buffer.get(bytes);
+		return toMessage(bytes, codec);
+	}
+
+	/**
+	 * Writes the specified message as a frame to the specified stream.
+	 *
+	 * @param out the stream to which the frame is written
+	 * @param message the message to be written
+	 * @param codec the codec of the message
+	 * @throws IOException if the frame cannot be written
+	 */
+	public static void write(DataOutputStream out, GameMessage message, MessageCodec codec)
+			throws IOException {
+		ByteBuffer frame = encode(message, codec);
+		out.write(frame.array(), 0, frame.limit());
+		out.flush();
+	}
+
+	/**
+	 * Reads a frame from the specified stream, blocking until all of it is read.
+	 *
+	 * @param in the stream from which the frame is read
+	 * @param codec the codec of the message
+	 * @return the message in the frame
+	 * @throws IOException if the frame cannot be read or is not valid
+	 */
+	public static CardGameMessage read(DataInputStream in, MessageCodec codec) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > MAX_LENGTH) {
+			throw new StreamCorruptedException("Invalid frame length: " + length);
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return toMessage(bytes, codec);
+	}
+
+	/**
+	 * Decodes the message in the specified bytes.
+	 */
+	private static CardGameMessage toMessage(byte[] bytes, MessageCodec codec) throws IOException {
+		try {
+			return codec.decode(new DataInputStream(new ByteArrayInputStream(bytes)), bytes.length);
+		} catch (RuntimeException ex) {
+			throw new StreamCorruptedException("Invalid message: " + ex);
+		}
+	}
+}
@@ -0,0 +1,283 @@
+/**
+ * This class is used to generate the legal moves of a Big Two player. The
+ * cards in hand and the moves are CardSet bitboards, and the moves are written
+ * into a reusable {@code long[]} buffer, so that generating the moves does not
+ * allocate any object.
+ * <p>
+ * Five-card combos are generated by their structure (straights by the ranks
+ * present, flushes by suit, full houses and quads by rank counts) rather than
+ * by trying every five-card subset of the hand.
+ */
+public class MoveGenerator {
+	/**
+	 * The bitboard of a pass. A pass is written as the last move whenever the
+	 * player is allowed to pass.
+	 */
+	public static final long PASS = 0L;
+	/**
+	 * The size of a buffer large enough for all the moves of a 13-card hand.
+	 */
+	public static final int MAX_MOVES = 13 + 78 + 286 + 1287 + 1;
+	/**
+	 * The strength to be passed to generate() when the player leads, i.e., is
+	 * free to play any valid hand.
+	 */
+	public static final int LEAD = -1;
+
+	// the bitboard of the diamond 3
+	private static final long DIAMOND_THREE = 1L;
+	// the bits of the lowest card (i.e., the diamond) of each rank
+	private static final long DIAMONDS = 0x1111111111111L;
+
+	/**
+	 * This class should not be instantiated.
+	 */
+	private MoveGenerator() {
+	}
+
+	/**
+	 * Generates the legal moves for the specified cards in hand.
+	 *
+	 * @param hand      the bitboard of the cards in hand
+	 * @param strength  the strength of the hand to be beaten (see
+	 *                  HandClassifier.getStrength), or LEAD if the player is
+	 *                  free to play any valid hand
+	 * @param firstMove true if this is the first move of the game, which must
+	 *                  contain the diamond 3
+	 * @param moves     the buffer for the moves, which should have at least
+	 *                  MAX_MOVES elements
+	 * @return the number of moves written into the buffer
+	 */
+	public static int generate(long hand, int strength, boolean firstMove,
+			long[] moves) {
+		long required = firstMove ? DIAMOND_THREE : 0L;
+		int size = (strength < 0) ? 0
+				: HandClassifier.getSize(HandClassifier.getType(HandClassifier
+						.getCode(strength)));
+		int count = 0;
+		if (size == 0 || size == 1) {
+			count = generateSingles(hand, strength, required, moves, count);
+		}
+		if (size == 0 || size == 2) {
+			count = generateSets(hand, 2, strength, required, moves, count);
+		}
+		if (size == 0 || size == 3) {
+			count = generateSets(hand, 3, strength, required, moves, count);
+		}
+		if (size == 0 || size == 5) {
+			int type = (strength < 0) ? HandClassifier.INVALID : HandClassifier
+					.getType(HandClassifier.getCode(strength));
+			// combos of a lower type than the hand to be beaten are skipped
+			if (type <= HandClassifier.STRAIGHT) {
+				count = generateStraights(hand, strength, required, moves, count);
+			}
+			if (type <= HandClassifier.STRAIGHT_FLUSH) {
+				count = generateFlushes(hand, strength, required, moves, count);
+			}
+			if (type <= HandClassifier.FULL_HOUSE) {
+				count = generateFullHouses(hand, strength, required, moves, count);
+			}
+			if (type <= HandClassifier.QUAD) {
+				count = generateQuads(hand, strength, required, moves, count);
+			}
+		}
+		if (strength >= 0) {
+			moves[count++] = PASS;
+		}
+		return count;
+	}
+
+	/**
+	 * Generates the legal moves of the specified player in the specified game,
+	 * following the rules of BigTwo.checkMove().
+	 *
+	 * @param game      the Big Two game
+	 * @param playerIdx the index of the player
+	 * @param moves     the buffer for the moves, which should have at least
+	 *                  MAX_MOVES elements
+	 * @return the number of moves written into the buffer
+	 */
+	public static int generate(BigTwo game, int playerIdx, long[] moves) {
+		CardGamePlayer player = game.getPlayerList().get(playerIdx);
+		long hand = CardSet.bitsOf(player.getCardsInHand());
+		Hand lastHandOnTable = game.getLastHandOnTable();
+		if (lastHandOnTable == null) {
+			// the first move of the game must contain the diamond 3
+			return generate(hand, LEAD, true, moves);
+		} else if (lastHandOnTable.getPlayer() == player) {
+			// no one beats the last hand of the player, who leads again
+			return generate(hand, LEAD, false, moves);
+		} else {
+			return generate(hand, lastHandOnTable.getStrength(), false, moves);
+		}
+	}
+
+	/**
+	 * Adds the specified candidate to the moves if it is a legal move.
+	 */
+	private static int add(long move, int strength, long required,
+			long[] moves, int count) {
+		if ((move & required) == required
+				&& (strength < 0 || HandClassifier.beats(
+						HandClassifier.getStrength(HandClassifier.classify(move)),
+						strength))) {
+			moves[count++] = move;
+		}
+		return count;
+	}
+
+	/**
+	 * Generates the singles.
+	 */
+	private static int generateSingles(long hand, int strength, long required,
+			long[] moves, int count) {
+		for (long b = hand; b != 0; b &= b - 1) {
+			count = add(b & -b, strength, required, moves, count);
+		}
+		return count;
+	}
+
+	/**
+	 * Generates the pairs (n = 2) or triples (n = 3).
+	 */
+	private static int generateSets(long hand, int n, int strength,
+			long required, long[] moves, int count) {
+		for (int rank = 0; rank < 13; rank++) {
+			int nibble = (int) (hand >>> (rank << 2)) & 0xF;
+			if (Integer.bitCount(nibble) < n) {
+				continue;
+			}
+			// every subset of the suits held of this rank having n cards
+			for (int subset = nibble; subset != 0; subset = (subset - 1) & nibble) {
+				if (Integer.bitCount(subset) == n) {
+					count = add((long) subset << (rank << 2), strength, required,
+							moves, count);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Generates the straights which are not flushes. Straight flushes are
+	 * generated together with the flushes.
+	 */
+	private static int generateStraights(long hand, int strength,
+			long required, long[] moves, int count) {
+		for (int rank = 0; rank + 5 <= 13; rank++) {
+			int n0 = (int) (hand >>> (rank << 2)) & 0xF;
+			int n1 = (int) (hand >>> ((rank + 1) << 2)) & 0xF;
+			int n2 = (int) (hand >>> ((rank + 2) << 2)) & 0xF;
+			int n3 = (int) (hand >>> ((rank + 3) << 2)) & 0xF;
+			int n4 = (int) (hand >>> ((rank + 4) << 2)) & 0xF;
+			if (n0 == 0 || n1 == 0 || n2 == 0 || n3 == 0 || n4 == 0) {
+				continue;
+			}
+			// one card of each of the five ranks
+			for (int b0 = n0; b0 != 0; b0 &= b0 - 1) {
+				for (int b1 = n1; b1 != 0; b1 &= b1 - 1) {
+					for (int b2 = n2; b2 != 0; b2 &= b2 - 1) {
+						for (int b3 = n3; b3 != 0; b3 &= b3 - 1) {
+							for (int b4 = n4; b4 != 0; b4 &= b4 - 1) {
+								int s0 = b0 & -b0;
+								if (s0 == (b1 & -b1) && s0 == (b2 & -b2)
+										&& s0 == (b3 & -b3) && s0 == (b4 & -b4)) {
+									continue;
+								}
+								long move = ((long) (b0 & -b0) << (rank << 2))
+										| ((long) (b1 & -b1) << ((rank + 1) << 2))
+										| ((long) (b2 & -b2) << ((rank + 2) << 2))
+										| ((long) (b3 & -b3) << ((rank + 3) << 2))
+										| ((long) (b4 & -b4) << ((rank + 4) << 2));
+								count = add(move, strength, required, moves, count);
+							}
+						}
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Generates the flushes and straight flushes.
+	 */
+	private static int generateFlushes(long hand, int strength, long required,
+			long[] moves, int count) {
+		for (int suit = 0; suit < 4; suit++) {
+			long suited = hand & (DIAMONDS << suit);
+			if (Long.bitCount(suited) < 5) {
+				continue;
+			}
+			// every five-card subset of the cards of this suit, each card being
+			// taken from the cards above the previous one
+			for (long b0 = suited; b0 != 0; b0 &= b0 - 1) {
+				long c0 = b0 & -b0;
+				for (long b1 = b0 & ~c0; b1 != 0; b1 &= b1 - 1) {
+					long c1 = b1 & -b1;
+					for (long b2 = b1 & ~c1; b2 != 0; b2 &= b2 - 1) {
+						long c2 = b2 & -b2;
+						for (long b3 = b2 & ~c2; b3 != 0; b3 &= b3 - 1) {
+							long c3 = b3 & -b3;
+							for (long b4 = b3 & ~c3; b4 != 0; b4 &= b4 - 1) {
+								long move = c0 | c1 | c2 | c3 | (b4 & -b4);
+								count = add(move, strength, required, moves, count);
+							}
+						}
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Generates the full houses.
+	 */
+	private static int generateFullHouses(long hand, int strength,
+			long required, long[] moves, int count) {
+		for (int t = 0; t < 13; t++) {
+			int tn = (int) (hand >>> (t << 2)) & 0xF;
+			if (Integer.bitCount(tn) < 3) {
+				continue;
+			}
+			for (int triple = tn; triple != 0; triple = (triple - 1) & tn) {
+				if (Integer.bitCount(triple) != 3) {
+					continue;
+				}
+				for (int p = 0; p < 13; p++) {
+					int pn = (int) (hand >>> (p << 2)) & 0xF;
+					if (p == t || Integer.bitCount(pn) < 2) {
+						continue;
+					}
+					for (int pair = pn; pair != 0; pair = (pair - 1) & pn) {
+						if (Integer.bitCount(pair) == 2) {
+							long move = ((long) triple << (t << 2))
+									| ((long) pair << (p << 2));
+							count = add(move, strength, required, moves, count);
+						}
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Generates the quads.
+	 */
+	private static int generateQuads(long hand, int strength, long required,
+			long[] moves, int count) {
+		for (int rank = 0; rank < 13; rank++) {
+			long quad = 0xFL << (rank << 2);
+			if ((hand & quad) != quad) {
+				continue;
+			}
+			// any other card as the fifth card
+			for (long b = hand & ~quad; b != 0; b &= b - 1) {
+				count = add(quad | (b & -b), strength, required, moves, count);
+			}
+		}
+		return count;
+	}
+}
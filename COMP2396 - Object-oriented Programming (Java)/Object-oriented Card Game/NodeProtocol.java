@@ -0,0 +1,103 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * This class is used to encode the node protocol, which a gateway (see
+ * CardGameGateway) speaks to the card game servers behind it. A message of
+ * the protocol is an 8-byte header: a 4-byte command followed by a 4-byte
+ * argument. The command starts with the bytes 'C' and 'N' and the version of
+ * the protocol, so it is told apart from the first bytes of a client (see
+ * MessageFrame).
+ * <p>
+ * A connection routed by the gateway starts with a ROUTE header, whose
+ * argument is the ID of the table of the gateway the client belongs to,
+ * followed by the bytes of the client as they are. The server seats the
+ * clients of the same route at the same table. A HEALTH header asks the
+ * server for its health: it replies with its number of connections as a
+ * 4-byte integer, and closes the connection.
+ */
+public class NodeProtocol {
+	/**
+	 * The command routing a client to a table.
+	 */
+	public static final int ROUTE = 0x434E0101;
+	/**
+	 * The command asking a server for its health.
+	 */
+	public static final int HEALTH = 0x434E0102;
+	/**
+	 * The length of a header.
+	 */
+	public static final int HEADER_LENGTH = 8;
+	/**
+	 * The length of the reply to a health check.
+	 */
+	public static final int HEALTH_REPLY_LENGTH = 4;
+	// the command without its last byte
+	private static final int COMMAND_MASK = 0xFFFFFF00;
+
+	private NodeProtocol() {
+	}
+
+	/**
+	 * Returns a boolean indicating if the specified first four bytes of a
+	 * connection are a command of the node protocol.
+	 *
+	 * @param command the first four bytes of a connection
+	 * @return true if they are a command; false otherwise
+	 */
+	public static boolean isCommand(int command) {
+		return (command & COMMAND_MASK) == (ROUTE & COMMAND_MASK);
+	}
+
+	/**
+	 * Puts a ROUTE header in the specified buffer, ahead of the bytes of the
+	 * client routed.
+	 *
+	 * @param buffer the buffer of the bytes to the server, with room for the
+	 *               header
+	 * @param routeID the ID of the table of the gateway the client belongs to
+	 */
+	public static void putRoute(ByteBuffer buffer, int routeID) {
+		buffer.putInt(ROUTE);
+		buffer.putInt(routeID);
+	}
+
+	/**
+	 * Returns the reply of a server to a health check, ready to be written.
+	 *
+	 * @param numOfConnections the number of connections of the server
+	 * @return the reply
+	 */
+	public static ByteBuffer healthReply(int numOfConnections) {
+		ByteBuffer reply = ByteBuffer.allocate(HEALTH_REPLY_LENGTH);
+		reply.putInt(numOfConnections).flip();
+		return reply;
+	}
+
+	/**
+	 * Checks the health of the server at the specified address.
+	 *
+	 * @param address the address of the server
+	 * @param timeout the time given to the server to connect and reply, in
+	 *                milliseconds
+	 * @return the number of connections of the server
+	 * @throws IOException if the server cannot be reached or does not reply
+	 *                     in time
+	 */
+	public static int checkHealth(InetSocketAddress address, int timeout) throws IOException {
+		try (Socket socket = new Socket()) {
+			socket.connect(address, timeout);
+			socket.setSoTimeout(timeout);
+			DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+			out.writeInt(HEALTH);
+			out.writeInt(0);
+			out.flush();
+			return new DataInputStream(socket.getInputStream()).readInt();
+		}
+	}
+}
@@ -0,0 +1,66 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * This class is used to model a message sent by the server to one or more
+ * clients. The message is encoded as a frame (see MessageFrame) once for each
+ * codec of the clients, when the first of them asks for it, and each client is
+ * given a read-only view of the same frame with a position of its own. So a
+ * message broadcast to N clients is encoded once instead of N times.
+ * <p>
+ * A legacy client writes the message itself to its object stream, since the
+ * bytes of a message on such a stream depend on the objects sent before it.
+ */
+public class OutboundMessage {
+	private final CardGameMessage message; // the message to be sent
+	private ByteBuffer[] frames = new ByteBuffer[2]; // the frames, indexed by codec ID
+
+	/**
+	 * Creates and returns an instance of the OutboundMessage class. The message
+	 * must not be changed once it is given to this object.
+	 *
+	 * @param message
+	 *            the message to be sent
+	 */
+	public OutboundMessage(CardGameMessage message) {
+		this.message = message;
+	}
+
+	/**
+	 * Returns the message to be sent.
+	 *
+	 * @return the message to be sent
+	 */
+	public CardGameMessage getMessage() {
+		return message;
+	}
+
+	/**
+	 * Returns a view of the frame holding the message encoded by the specified
+	 * codec, encoding it if it is the first time the codec is asked for. The
+	 * view is positioned at the start of the frame, and can be consumed
+	 * without affecting the views given to the other clients.
+	 *
+	 * @param codec
+	 *            the codec of the client
+	 * @return a read-only view of the frame
+	 * @throws IOException
+	 *             if the message cannot be encoded
+	 */
+	public ByteBuffer getFrame(MessageCodec codec) throws IOException {
+		int id = codec.getId();
+		ByteBuffer frame;
+		synchronized (this) {
+			if (id >= frames.length) {
+				frames = Arrays.copyOf(frames, id + 1);
+			}
+			frame = frames[id];
+			if (frame == null) {
+				frame = MessageFrame.encode(message, codec).asReadOnlyBuffer();
+				frames[id] = frame;
+			}
+		}
+		return frame.duplicate();
+	}
+}
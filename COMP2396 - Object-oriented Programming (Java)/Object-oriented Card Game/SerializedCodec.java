@@ -0,0 +1,35 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+
+/**
+ * This class is used to encode the messages of the card game with Java
+ * serialization, each message on a stream of its own. It is kept for clients
+ * which do not speak the binary codec.
+ */
+public class SerializedCodec implements MessageCodec {
+	@Override
+	public int getId() {
+		return SERIALIZED;
+	}
+
+	@Override
+	public void encode(GameMessage message, DataOutputStream out) throws IOException {
+		ObjectOutputStream oos = new ObjectOutputStream(out);
+		oos.writeObject(message);
+		oos.flush();
+	}
+
+	@Override
+	public CardGameMessage decode(DataInputStream in, int length) throws IOException {
+		ObjectInputStream ois = new ObjectInputStream(in);
+		try {
+			return (CardGameMessage) ois.readObject();
+		} catch (ClassNotFoundException | ClassCastException ex) {
+			throw new StreamCorruptedException("Invalid message: " + ex);
+		}
+	}
+}
@@ -0,0 +1,103 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * This class is used to hold the metrics of a card game server: counters,
+ * which count events such as the messages dropped, and gauges, which tell a
+ * current value such as the number of bytes waiting to be sent. The metrics
+ * are named, and listed in the order of their names.
+ * <p>
+ * A counter is a LongAdder, so it can be incremented by many threads at once
+ * without contention. The hot paths should look up their counters once with
+ * counter() and keep them. A histogram of latencies (see LatencyHistogram) is
+ * shown as a set of gauges: its count, and its median, 99th percentile and
+ * maximum in microseconds.
+ */
+public class ServerMetrics {
+	private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<String, LongAdder>();
+	private final Map<String, LongSupplier> gauges = new ConcurrentSkipListMap<String, LongSupplier>();
+	private final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<String, LatencyHistogram>();
+
+	/**
+	 * Returns the counter of the specified name, creating it if there is none.
+	 *
+	 * @param name
+	 *            the name of the counter
+	 * @return the counter of the specified name
+	 */
+	public LongAdder counter(String name) {
+		return counters.computeIfAbsent(name, k -> new LongAdder());
+	}
+
+	/**
+	 * Registers a gauge of the specified name, replacing the gauge of the same
+	 * name if there is one.
+	 *
+	 * @param name
+	 *            the name of the gauge
+	 * @param gauge
+	 *            the function returning the current value of the gauge
+	 */
+	public void gauge(String name, LongSupplier gauge) {
+		gauges.put(name, gauge);
+	}
+
+	/**
+	 * Returns the histogram of latencies of the specified name, creating it and
+	 * its gauges if there is none.
+	 *
+	 * @param name
+	 *            the name of the histogram
+	 * @return the histogram of the specified name
+	 */
+	public LatencyHistogram histogram(String name) {
+		return histograms.computeIfAbsent(name, k -> {
+			LatencyHistogram histogram = new LatencyHistogram();
+			gauge(name + ".count", histogram::getCount);
+			gauge(name + ".p50Micros", () -> histogram.getPercentile(50));
+			gauge(name + ".p99Micros", () -> histogram.getPercentile(99));
+			gauge(name + ".maxMicros", histogram::getMax);
+			return histogram;
+		});
+	}
+
+	/**
+	 * Returns the current value of the counter or gauge of the specified name.
+	 *
+	 * @param name
+	 *            the name of the counter or gauge
+	 * @return the current value, or 0 if there is no such counter or gauge
+	 */
+	public long get(String name) {
+		LongAdder counter = counters.get(name);
+		if (counter != null) {
+			return counter.sum();
+		}
+		LongSupplier gauge = gauges.get(name);
+		return (gauge != null) ? gauge.getAsLong() : 0;
+	}
+
+	/**
+	 * Returns the values of all the counters and gauges, one per line, in the
+	 * order of their names.
+	 *
+	 * @return a string representation of the metrics
+	 */
+	@Override
+	public String toString() {
+		Map<String, Long> values = new ConcurrentSkipListMap<String, Long>();
+		for (Map.Entry<String, LongAdder> counter : counters.entrySet()) {
+			values.put(counter.getKey(), counter.getValue().sum());
+		}
+		for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+			values.put(gauge.getKey(), gauge.getValue().getAsLong());
+		}
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, Long> value : values.entrySet()) {
+			sb.append(value.getKey()).append(" = ").append(value.getValue()).append('\n');
+		}
+		return sb.toString();
+	}
+}
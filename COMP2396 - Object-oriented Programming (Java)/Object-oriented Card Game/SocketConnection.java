@@ -0,0 +1,167 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * This class is used to model the connection to a client on a
+ * blocking socket, which sends and receives either a Java object stream
+ * (a legacy client) or the frames of a codec.
+ * 
+ * @author Kenneth Wong
+ *
+ */
+class SocketConnection extends ClientConnection {
+	// the size of the buffer for copying a frame to the stream
+	private static final int WRITE_BUFFER_SIZE = 512;
+	// socket connection to the client
+	final Socket socket;
+	// InputStream of the client
+	final InputStream istream;
+	// the codec of the client, or null for a legacy client
+	final MessageCodec codec;
+	// ObjectOutputStream of a legacy client, which is reset every few
+	// messages
+	private ManagedObjectOutputStream oostream = null;
+	// DataOutputStream of a client of the framed protocol
+	private DataOutputStream dostream = null;
+	// the buffer through which the shared frames are copied to the
+	// stream of a client of the framed protocol
+	private final byte[] writeBuffer = new byte[WRITE_BUFFER_SIZE];
+	// the messages to be sent by the writer thread
+	final BlockingQueue<OutboundMessage> outbox;
+	// the writer thread of this connection
+	Thread writer = null;
+	// a boolean indicating if the connection is closed
+	volatile boolean closed = false;
+
+	/**
+	 * Creates and returns an instance of the SocketConnection class.
+	 * 
+	 * @param server
+	 *            the server of the connection
+	 * @param socket
+	 *            the socket connection to the client
+	 * @param istream
+	 *            the InputStream of the client
+	 * @param codec
+	 *            the codec of the client, or null for a legacy client
+	 * @throws IOException
+	 *             if the output stream cannot be created
+	 */
+	public SocketConnection(CardGameServer server, Socket socket,
+			InputStream istream, MessageCodec codec) throws IOException {
+		super(server);
+		this.socket = socket;
+		this.istream = istream;
+		this.codec = codec;
+		this.outbox = new ArrayBlockingQueue<OutboundMessage>(
+				server.outboundQueueCapacity);
+		// the streams are buffered, and flushed by the writer thread once
+		// the messages queued are written
+		if (codec == null) {
+			oostream = new ManagedObjectOutputStream(
+					new BufferedOutputStream(socket.getOutputStream()),
+					server.streamResetMessages, server.streamResetBytes);
+		} else {
+			dostream = new DataOutputStream(new BufferedOutputStream(
+					socket.getOutputStream()));
+		}
+	} // constructor
+
+	SocketAddress getRemoteSocketAddress() {
+		return socket.getRemoteSocketAddress();
+	}
+
+	MessageCodec getClientCodec() {
+		return codec;
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	int getNumOfQueuedMessages() {
+		return outbox.size();
+	}
+
+	long getRetainedStreamBytes() {
+		return (oostream != null) ? oostream.getRetainedBytes() : 0;
+	}
+
+	long getRetainedStreamMessages() {
+		return (oostream != null) ? oostream.getRetainedMessages() : 0;
+	}
+
+	long getNumOfStreamResets() {
+		return (oostream != null) ? oostream.getNumOfResets() : 0;
+	}
+
+	boolean queue(OutboundMessage message) {
+		return outbox.offer(message);
+	}
+
+	void disconnect() {
+		// the reader thread removes the connection once the socket is
+		// closed
+		close();
+	}
+
+	/**
+	 * Writes the specified message to the output stream, without
+	 * flushing it. Called by the writer thread.
+	 * 
+	 * @param message
+	 *            the message to be written
+	 * @throws IOException
+	 *             if the message cannot be written
+	 */
+	void write(OutboundMessage message) throws IOException {
+		if (codec == null) {
+			oostream.writeMessage(message.getMessage());
+			return;
+		}
+		ByteBuffer frame = message.getFrame(codec);
+		while (frame.hasRemaining()) {
+			int length = Math.min(frame.remaining(), writeBuffer.length);
+			frame.get(writeBuffer, 0, length);
+			dostream.write(writeBuffer, 0, length);
+		}
+	}
+
+	/**
+	 * Flushes the output stream. Called by the writer thread.
+	 * 
+	 * @throws IOException
+	 *             if the stream cannot be flushed
+	 */
+	void flush() throws IOException {
+		if (codec == null) {
+			oostream.flush();
+		} else {
+			dostream.flush();
+		}
+	}
+
+	/**
+	 * Closes the socket and stops the writer thread. The reader thread
+	 * stops as its socket is closed, so the threads of the connection end
+	 * together, whichever of them fails first.
+	 */
+	void close() {
+		closed = true;
+		if (writer != null) {
+			writer.interrupt();
+		}
+		try {
+			socket.close();
+		} catch (IOException ex) {
+			if (!server.silentMode) ex.printStackTrace();
+		}
+	} // close
+}
@@ -22,21 +22,6 @@ public class Straight extends Hand{
 		}
 	}
 	
-	public boolean beats(Hand hand) {
-		/**
-		 * a method for checking if this hand beats a specified hand.
-		 */
-		if (hand == null) return false;
-		if (!this.isValid() || !hand.isValid()) return false;
-		if (this.size() != hand.size()) return false;
-		
-		if (this.compareCombo(hand)==1) 
-			return true;
-		else if (this.compareCombo(hand)==-1)
-			return false;
-		else return (this.getTopCard().compareTo(hand.getTopCard())>0);
-	}
-	
 	public String getType() {
 		return "Straight";
 	}
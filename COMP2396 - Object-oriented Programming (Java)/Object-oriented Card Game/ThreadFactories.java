@@ -0,0 +1,88 @@
+import java.lang.reflect.Method;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * This class is used to create the threads running the blocking loops of a
+ * connection, i.e., the reader and writer of a connection of the server and
+ * the reader of a client. They are platform threads, or virtual threads if
+ * the Java runtime has them (Java 21 or later) and they are chosen, either by
+ * the server (see CardGameServer.setVirtualThreads()) or by setting the system
+ * property cardgame.virtualThreads to true.
+ * <p>
+ * A virtual thread blocked on a socket does not hold a platform thread, and
+ * its stack is kept on the heap and grows as needed, so a connection costs a
+ * few kilobytes instead of the stack of a platform thread. The virtual
+ * threads are looked up by reflection, so that the game still compiles and
+ * runs on older runtimes, where platform threads are used instead.
+ */
+public class ThreadFactories {
+	/**
+	 * The system property choosing virtual threads for the connections.
+	 */
+	public static final String VIRTUAL_THREADS_PROPERTY = "cardgame.virtualThreads";
+
+	// the factory of virtual threads, or null if the runtime has none
+	private static final ThreadFactory VIRTUAL = lookupVirtual();
+
+	private ThreadFactories() {
+	}
+
+	/**
+	 * Returns a boolean indicating if the Java runtime has virtual threads.
+	 *
+	 * @return true if the runtime has virtual threads; false otherwise
+	 */
+	public static boolean isVirtualSupported() {
+		return VIRTUAL != null;
+	}
+
+	/**
+	 * Returns a factory of platform threads.
+	 *
+	 * @return a factory of platform threads
+	 */
+	public static ThreadFactory platform() {
+		return Thread::new;
+	}
+
+	/**
+	 * Returns a factory of virtual threads, or of platform threads if the
+	 * Java runtime has no virtual threads.
+	 *
+	 * @return a factory of virtual threads if they are supported
+	 */
+	public static ThreadFactory virtual() {
+		return (VIRTUAL != null) ? VIRTUAL : platform();
+	}
+
+	/**
+	 * Returns the factory of the threads of the connections chosen by the
+	 * system property cardgame.virtualThreads.
+	 *
+	 * @return a factory of virtual threads if they are chosen and supported,
+	 *         or of platform threads otherwise
+	 */
+	public static ThreadFactory forConnections() {
+		return Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY) ? virtual()
+				: platform();
+	}
+
+	/**
+	 * Looks up the factory of virtual threads, i.e.,
+	 * Thread.ofVirtual().factory(), by reflection.
+	 *
+	 * @return the factory of virtual threads, or null if the runtime has none
+	 */
+	private static ThreadFactory lookupVirtual() {
+		try {
+			Method ofVirtual = Thread.class.getMethod("ofVirtual");
+			// the builder is called through its public interface, as its
+			// class is not public
+			Method factory = Class.forName("java.lang.Thread$Builder")
+					.getMethod("factory");
+			return (ThreadFactory) factory.invoke(ofVirtual.invoke(null));
+		} catch (ReflectiveOperationException | RuntimeException ex) {
+			return null;
+		}
+	}
+}
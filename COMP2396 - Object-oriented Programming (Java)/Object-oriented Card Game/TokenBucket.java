@@ -0,0 +1,47 @@
+/**
+ * This class is used to model a token bucket, which limits the rate of an
+ * event. The bucket is refilled at a fixed rate up to its capacity, and each
+ * event takes a token from it, so that a burst of up to capacity events is let
+ * through at once, and the events go on at the rate of the bucket after that.
+ */
+public class TokenBucket {
+	private final double rate; // the tokens added per nanosecond
+	private final double capacity; // the maximum number of tokens
+	private double tokens; // the number of tokens in the bucket
+	private long lastRefill; // the time of the last refill, in nanoseconds
+
+	/**
+	 * Creates and returns an instance of the TokenBucket class, which is full.
+	 *
+	 * @param ratePerSecond
+	 *            the number of tokens added to the bucket per second
+	 * @param capacity
+	 *            the maximum number of tokens in the bucket
+	 */
+	public TokenBucket(double ratePerSecond, int capacity) {
+		if (ratePerSecond <= 0 || capacity <= 0) {
+			throw new IllegalArgumentException("Invalid rate: "
+					+ ratePerSecond + ", " + capacity);
+		}
+		this.rate = ratePerSecond / 1e9;
+		this.capacity = capacity;
+		this.tokens = capacity;
+		this.lastRefill = System.nanoTime();
+	}
+
+	/**
+	 * Takes a token from the bucket if there is one.
+	 *
+	 * @return true if a token is taken; false if the bucket is empty
+	 */
+	public synchronized boolean tryAcquire() {
+		long now = System.nanoTime();
+		tokens = Math.min(capacity, tokens + (now - lastRefill) * rate);
+		lastRefill = now;
+		if (tokens < 1) {
+			return false;
+		}
+		tokens--;
+		return true;
+	}
+}
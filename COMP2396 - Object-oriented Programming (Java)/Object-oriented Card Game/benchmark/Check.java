@@ -0,0 +1,70 @@
+/**
+ * This class is a small harness for the checks of the card game, which are
+ * run from the command line like the benchmarks. Each check that fails is
+ * printed, and the JVM exits with status 1 once the checks are done if any of
+ * them has failed, so that a script running the checks stops there.
+ * <p>
+ * The checks are run by the test phase of the build (see pom.xml), or one at a
+ * time once the build has compiled them:
+ *
+ * <pre>
+ * mvn -B test
+ * java -cp target/classes CodecCheck
+ * </pre>
+ */
+public class Check {
+	// the name of the checks, printed with the result
+	private final String name;
+	// the number of checks run
+	private int numOfChecks = 0;
+	// the number of checks failed
+	private int numOfFailures = 0;
+
+	/**
+	 * Creates and returns an instance of the Check class.
+	 *
+	 * @param name the name of the checks
+	 */
+	public Check(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Checks that the specified condition holds.
+	 *
+	 * @param what      a description of the check
+	 * @param condition the condition to be checked
+	 */
+	public void check(String what, boolean condition) {
+		numOfChecks++;
+		if (!condition) {
+			numOfFailures++;
+			System.out.println("FAILED: " + what);
+		}
+	}
+
+	/**
+	 * Checks that the specified values are equal.
+	 *
+	 * @param what     a description of the check
+	 * @param expected the value expected
+	 * @param actual   the value found
+	 */
+	public void equal(String what, Object expected, Object actual) {
+		numOfChecks++;
+		if (expected == null ? actual != null : !expected.equals(actual)) {
+			numOfFailures++;
+			System.out.println("FAILED: " + what + ": expected " + expected + " but was "
+					+ actual);
+		}
+	}
+
+	/**
+	 * Prints the result of the checks, and exits with status 1 if any of them
+	 * has failed.
+	 */
+	public void done() {
+		System.out.printf("%s: %d checks, %d failed%n", name, numOfChecks, numOfFailures);
+		System.exit((numOfFailures > 0) ? 1 : 0);
+	}
+}
@@ -0,0 +1,182 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is a load test of a cluster of card game servers behind a
+ * gateway (see CardGameGateway). It starts a number of Big Two servers, each
+ * in a JVM of its own, and a gateway in this JVM, and seats a number of tables
+ * of four clients through the gateway. Each client then sends chat messages
+ * in a closed loop, i.e., it sends a message and waits for the server to
+ * broadcast it back before it sends the next, for a number of seconds. The
+ * test reports the round trips per second, which are to grow with the number
+ * of nodes as long as the machine has the cores for them. With 0 nodes, the
+ * clients connect to a single server directly, without a gateway.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * java -cp target/classes ClusterLoadTest [nodes] [tables] [seconds]
+ * </pre>
+ */
+public class ClusterLoadTest {
+	// the default number of nodes
+	private static final int DEFAULT_NUM_OF_NODES = 2;
+	// the default number of tables
+	private static final int DEFAULT_NUM_OF_TABLES = 64;
+	// the default duration of the test, in seconds
+	private static final int DEFAULT_DURATION = 10;
+	// the port of the gateway
+	private static final int GATEWAY_PORT = 2396;
+	// the port of the first node
+	private static final int FIRST_NODE_PORT = 2401;
+	// the number of clients at a table
+	private static final int NUM_OF_PLAYERS = 4;
+	// the time given to the nodes to start, in milliseconds
+	private static final long STARTUP_TIME = 2000;
+
+	/**
+	 * Runs the load test.
+	 *
+	 * @param args the number of nodes, the number of tables and the duration
+	 *             of the test in seconds
+	 * @throws Exception if the test fails
+	 */
+	public static void main(String[] args) throws Exception {
+		int numOfNodes = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_NUM_OF_NODES;
+		int numOfTables = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_NUM_OF_TABLES;
+		int duration = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_DURATION;
+
+		// the nodes run with an event loop each, and their output is dropped
+		List<Process> nodes = new ArrayList<Process>();
+		List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>();
+		for (int i = 0; i < Math.max(numOfNodes, 1); i++) {
+			int port = FIRST_NODE_PORT + i;
+			nodes.add(new ProcessBuilder("java", "-Djava.awt.headless=true", "-cp",
+					System.getProperty("java.class.path"), "BigTwoServer", "" + port, "1")
+					.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+					.redirectErrorStream(true).start());
+			addresses.add(new InetSocketAddress("localhost", port));
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> nodes.forEach(Process::destroy)));
+		Thread.sleep(STARTUP_TIME);
+		int port = FIRST_NODE_PORT;
+		CardGameGateway gateway = null;
+		if (numOfNodes > 0) {
+			gateway = new CardGameGateway(NUM_OF_PLAYERS, addresses);
+			CardGameGateway g = gateway;
+			Thread gatewayThread = new Thread(() -> g.start(GATEWAY_PORT));
+			gatewayThread.setDaemon(true);
+			gatewayThread.start();
+			Thread.sleep(500);
+			port = GATEWAY_PORT;
+		}
+
+		// seats the clients, which wait for the start of the test
+		LongAdder roundTrips = new LongAdder();
+		List<Client> clients = new ArrayList<Client>();
+		for (int i = 0; i < numOfTables * NUM_OF_PLAYERS; i++) {
+			clients.add(new Client(port, i, roundTrips));
+		}
+		long start = System.nanoTime();
+		long deadline = start + duration * 1000000000L;
+		for (Client client : clients) {
+			client.start(deadline);
+		}
+		for (Client client : clients) {
+			client.join();
+		}
+		double elapsed = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("%-28s %12d%n", "Nodes", numOfNodes);
+		System.out.printf("%-28s %12d%n", "Clients", clients.size());
+		System.out.printf("%-28s %12.0f%n", "Round trips per second", roundTrips.sum() / elapsed);
+		if (gateway != null) {
+			System.out.print(gateway.getMetrics());
+		}
+		System.exit(0);
+	}
+
+	/**
+	 * This inner class is used to model a client sending chat messages in a
+	 * closed loop.
+	 */
+	private static class Client {
+		// the socket connection to the server
+		private final Socket socket;
+		// the stream to the server
+		private final DataOutputStream out;
+		// the stream from the server
+		private final DataInputStream in;
+		// the codec of the messages
+		private final MessageCodec codec = new BinaryCodec(BigTwoDeck::new);
+		// the chat message sent by this client, which is told apart from
+		// those of the other clients at its table
+		private final String text;
+		// the number of round trips of all the clients
+		private final LongAdder roundTrips;
+		// the thread of this client
+		private Thread thread;
+
+		/**
+		 * Creates and returns an instance of the Client class, which connects
+		 * to the server and waits to be seated.
+		 *
+		 * @param port the port of the server
+		 * @param index the index of the client
+		 * @param roundTrips the number of round trips of all the clients
+		 * @throws IOException if the client cannot be seated
+		 */
+		public Client(int port, int index, LongAdder roundTrips) throws IOException {
+			this.socket = new Socket("localhost", port);
+			this.socket.setTcpNoDelay(true);
+			this.out = new DataOutputStream(socket.getOutputStream());
+			this.in = new DataInputStream(socket.getInputStream());
+			this.text = "#" + index + "#";
+			this.roundTrips = roundTrips;
+			out.writeInt(MessageFrame.getPreamble(codec));
+			out.flush();
+			while (MessageFrame.read(in, codec).getType() != CardGameMessage.PLAYER_LIST) {
+			}
+		}
+
+		/**
+		 * Starts sending chat messages until the specified deadline.
+		 *
+		 * @param deadline the end of the test, as given by System.nanoTime()
+		 */
+		public void start(long deadline) {
+			thread = new Thread(() -> {
+				try {
+					while (System.nanoTime() < deadline) {
+						MessageFrame.write(out, new CardGameMessage(CardGameMessage.MSG, -1, text),
+								codec);
+						CardGameMessage message;
+						do {
+							message = MessageFrame.read(in, codec);
+						} while (message.getType() != CardGameMessage.MSG
+								|| !((String) message.getData()).endsWith(text));
+						roundTrips.increment();
+					}
+				} catch (IOException ex) {
+					System.out.println("Error in the client " + text + ": " + ex);
+				}
+			});
+			thread.start();
+		}
+
+		/**
+		 * Waits for this client to finish.
+		 *
+		 * @throws InterruptedException if interrupted while waiting
+		 */
+		public void join() throws InterruptedException {
+			thread.join();
+		}
+	}
+}
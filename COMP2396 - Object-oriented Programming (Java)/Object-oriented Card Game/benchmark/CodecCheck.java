@@ -0,0 +1,168 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class checks that every message type of the card game comes back the
+ * same after a round trip through a frame (see MessageFrame), with either
+ * codec (see SerializedCodec and BinaryCodec). Each message is encoded to a
+ * frame and decoded from it, both from a buffer as by the event loops of the
+ * server and from a stream as by the blocking clients, and its type, playerID
+ * and data are compared with the original. The data is compared by its
+ * contents, including the classes of the cards, so a deck decoded as plain
+ * cards is caught.
+ * <p>
+ * The messages cover the forms of data that the binary codec encodes apart,
+ * e.g., a move of indices, a move of cards and a pass, and a START message
+ * with a deck or with a deal. The indices of a move are sorted, as the binary
+ * codec sends them as a mask.
+ * <p>
+ * Usage: {@code java -cp target/classes CodecCheck}
+ */
+public class CodecCheck {
+	// the seed of the decks
+	private static final long SEED = 2396L;
+
+	/**
+	 * Returns the messages to be checked, covering every message type.
+	 */
+	private static List<CardGameMessage> messages() {
+		BigTwoDeck deck = new BigTwoDeck();
+		deck.shuffle(new Random(SEED));
+		CardList hand = new CardList();
+		for (int i = 0; i < 13; i++) {
+			hand.addCard(deck.getCard(i));
+		}
+		CardList pair = new CardList();
+		pair.addCard(BigTwoCard.valueOf(0, 5));
+		pair.addCard(BigTwoCard.valueOf(3, 5));
+		CardGameDeal deal = new CardGameDeal(2, hand, new int[] { 13, 13, 13, 13 }, 0);
+		String[] names = { "Alice", null, "Charlie ✓", null };
+
+		List<CardGameMessage> messages = new ArrayList<CardGameMessage>();
+		messages.add(new CardGameMessage(CardGameMessage.PLAYER_LIST, 2, names));
+		messages.add(new CardGameMessage(CardGameMessage.JOIN, 2, "Charlie ✓"));
+		messages.add(new CardGameMessage(CardGameMessage.FULL, -1, null));
+		messages.add(new CardGameMessage(CardGameMessage.FULL, -1, 42));
+		messages.add(new CardGameMessage(CardGameMessage.QUIT, 1, "/192.168.0.1:52396"));
+		messages.add(new CardGameMessage(CardGameMessage.READY, -1, null));
+		messages.add(new CardGameMessage(CardGameMessage.READY, 3, null));
+		messages.add(new CardGameMessage(CardGameMessage.START, -1, deck));
+		messages.add(new CardGameMessage(CardGameMessage.START, 2, deal));
+		messages.add(new CardGameMessage(CardGameMessage.MOVE, 0, new int[] { 0, 3, 12 }));
+		messages.add(new CardGameMessage(CardGameMessage.MOVE, 0, null));
+		messages.add(new CardGameMessage(CardGameMessage.MOVE, 1, pair));
+		messages.add(new CardGameMessage(CardGameMessage.MSG, 3, "Dave (/10.0.0.4:2396): hi"));
+		messages.add(new CardGameMessage(CardGameMessage.MSG, 3, null));
+		messages.add(new CardGameMessage(CardGameMessage.REJECT, 1, new int[] { 4 }));
+		messages.add(new CardGameMessage(CardGameMessage.TABLE_LIST, -1, null));
+		messages.add(new CardGameMessage(CardGameMessage.TABLE_LIST, 3000,
+				new int[] { 0, 4, 3000, 1 }));
+		messages.add(new CardGameMessage(CardGameMessage.CREATE_TABLE, -1, null));
+		messages.add(new CardGameMessage(CardGameMessage.JOIN_TABLE, -1, 99999));
+		messages.add(new CardGameMessage(CardGameMessage.SNAPSHOT, 2,
+				new CardGameSnapshot(names, deal, 1, pair)));
+		messages.add(new CardGameMessage(CardGameMessage.SNAPSHOT, 2,
+				new CardGameSnapshot(names, null, -1, null)));
+		messages.add(new CardGameMessage(CardGameMessage.PING, -1, null));
+		messages.add(new CardGameMessage(CardGameMessage.PONG, -1, null));
+		return messages;
+	}
+
+	/**
+	 * Returns a description of the specified message, by the contents of its
+	 * data.
+	 */
+	private static String describe(CardGameMessage message) {
+		return message.getType() + "/" + message.getPlayerID() + "/" + describe(message.getData());
+	}
+
+	/**
+	 * Returns a description of the specified data of a message, by its
+	 * contents.
+	 */
+	private static String describe(Object data) {
+		if (data instanceof String[]) {
+			return Arrays.toString((String[]) data);
+		} else if (data instanceof int[]) {
+			return Arrays.toString((int[]) data);
+		} else if (data instanceof CardList) {
+			CardList cards = (CardList) data;
+			StringBuilder s = new StringBuilder(data.getClass().getName()).append("[");
+			for (int i = 0; i < cards.size(); i++) {
+				Card card = cards.getCard(i);
+				s.append(" ").append(card.getClass().getName()).append(":")
+						.append(card.getSuit()).append(",").append(card.getRank());
+			}
+			return s.append(" ]").toString();
+		} else if (data instanceof CardGameDeal) {
+			CardGameDeal deal = (CardGameDeal) data;
+			return "Deal(" + deal.getPlayerIdx() + ", " + describe(deal.getCards()) + ", "
+					+ describe(deal.getNumOfCards()) + ", " + deal.getCurrentPlayerIdx() + ")";
+		} else if (data instanceof CardGameSnapshot) {
+			CardGameSnapshot snapshot = (CardGameSnapshot) data;
+			return "Snapshot(" + describe(snapshot.getPlayerNames()) + ", "
+					+ describe(snapshot.getDeal()) + ", " + snapshot.getLastPlayerIdx() + ", "
+					+ describe(snapshot.getLastHand()) + ")";
+		} else {
+			return String.valueOf(data);
+		}
+	}
+
+	/**
+	 * Checks the round trips of the specified messages with the specified
+	 * codec.
+	 */
+	private static void check(Check check, List<CardGameMessage> messages, MessageCodec codec)
+			throws IOException {
+		String codecName = codec.getClass().getSimpleName();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		for (CardGameMessage message : messages) {
+			String name = codecName + " " + describe(message);
+			ByteBuffer frame = MessageFrame.encode(message, codec);
+			check.equal(name + " frame length", frame.limit(), MessageFrame.frameLength(frame));
+			CardGameMessage decoded = MessageFrame.decode(frame, codec);
+			check.equal(name + " from a buffer", describe(message), describe(decoded));
+			check.check(name + " leaves no bytes", !frame.hasRemaining());
+			MessageFrame.write(out, message, codec);
+		}
+
+		// the frames are read back to back from a stream
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		for (CardGameMessage message : messages) {
+			String name = codecName + " " + describe(message);
+			check.equal(name + " from a stream", describe(message),
+					describe(MessageFrame.read(in, codec)));
+		}
+		check.equal(codecName + " stream fully read", 0, in.available());
+	}
+
+	/**
+	 * Runs the checks from the command line.
+	 *
+	 * @param args not used
+	 * @throws IOException if a message cannot be encoded or decoded
+	 */
+	public static void main(String[] args) throws IOException {
+		Check check = new Check("CodecCheck");
+		List<CardGameMessage> messages = messages();
+		boolean[] covered = new boolean[CardGameMessage.PONG + 1];
+		for (CardGameMessage message : messages) {
+			covered[message.getType()] = true;
+		}
+		for (int type = 0; type < covered.length; type++) {
+			check.check("message type " + type + " covered", covered[type]);
+		}
+		check(check, messages, new SerializedCodec());
+		check(check, messages, new BinaryCodec(BigTwoDeck::new));
+		check.done();
+	}
+}
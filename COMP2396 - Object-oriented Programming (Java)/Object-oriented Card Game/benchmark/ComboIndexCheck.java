@@ -0,0 +1,151 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * This class checks the combo index of a player (see ComboIndex) against the
+ * moves generated from scratch (see MoveGenerator) on random deals. Each deal
+ * gives a player 13 cards, with the index enabled before or after the cards
+ * are added, and then plays the combos of the player one at a time until its
+ * cards run out. After each play, the combos of the index are compared with
+ * the moves of a lead, with their strengths and counts by type, and the
+ * smallest combo beating each hand of another player is compared with the
+ * weakest of the moves beating it.
+ * <p>
+ * The index is also checked to refuse more cards than a hand holds.
+ * <p>
+ * Usage: {@code java -cp target/classes ComboIndexCheck}
+ */
+public class ComboIndexCheck {
+	// the seed of the decks
+	private static final long SEED = 2396L;
+	// the number of deals
+	private static final int NUM_OF_DEALS = 200;
+
+	/**
+	 * Returns the bitboard of the specified cards of the deck.
+	 */
+	private static long deal(BigTwoDeck deck, int from, int to) {
+		long bits = 0L;
+		for (int i = from; i < to; i++) {
+			bits |= CardSet.bit(deck.getCard(i));
+		}
+		return bits;
+	}
+
+	/**
+	 * Returns the moves of a lead from the specified cards, sorted.
+	 */
+	private static long[] leads(long hand, long[] moves) {
+		int count = MoveGenerator.generate(hand, MoveGenerator.LEAD, false, moves);
+		long[] leads = Arrays.copyOf(moves, count);
+		Arrays.sort(leads);
+		return leads;
+	}
+
+	/**
+	 * Checks the specified index against the moves generated from the cards
+	 * it holds, beating the specified hands of another player.
+	 */
+	private static void check(Check check, String name, ComboIndex index, long[] others,
+			long[] moves) {
+		long hand = index.getCards();
+		long[] combos = new long[index.size()];
+		boolean sorted = true;
+		for (int i = 0; i < combos.length; i++) {
+			combos[i] = index.getCombo(i);
+			int strength = HandClassifier.getStrength(HandClassifier.classify(combos[i]));
+			sorted &= (index.getStrength(i) == strength)
+					&& (i == 0 || index.getStrength(i - 1) <= strength);
+		}
+		check.check(name + " combos sorted by strength", sorted);
+		Arrays.sort(combos);
+		long[] leads = leads(hand, moves);
+		check.check(name + " combos are the leads of " + Long.toHexString(hand),
+				Arrays.equals(leads, combos));
+
+		for (int type = HandClassifier.SINGLE; type <= HandClassifier.STRAIGHT_FLUSH; type++) {
+			int count = 0;
+			for (long lead : leads) {
+				if (HandClassifier.getType(HandClassifier.classify(lead)) == type) {
+					count++;
+				}
+			}
+			check.equal(name + " count of " + HandClassifier.getTypeName(type), count,
+					index.count(type));
+		}
+
+		for (long other : others) {
+			int strength = HandClassifier.getStrength(HandClassifier.classify(other));
+			int count = MoveGenerator.generate(hand, strength, false, moves);
+			int weakest = -1;
+			for (int i = 0; i < count; i++) {
+				if (moves[i] != MoveGenerator.PASS) {
+					int s = HandClassifier.getStrength(HandClassifier.classify(moves[i]));
+					weakest = (weakest < 0) ? s : Math.min(weakest, s);
+				}
+			}
+			long smallest = index.smallestBeating(strength);
+			int actual = (smallest == MoveGenerator.PASS) ? -1
+					: HandClassifier.getStrength(HandClassifier.classify(smallest));
+			check.equal(name + " smallest beating " + Long.toHexString(other), weakest, actual);
+			check.check(name + " smallest beating " + Long.toHexString(other) + " is held",
+					(smallest & ~hand) == 0);
+		}
+	}
+
+	/**
+	 * Runs the checks from the command line.
+	 *
+	 * @param args not used
+	 */
+	public static void main(String[] args) {
+		Check check = new Check("ComboIndexCheck");
+		Random random = new Random(SEED);
+		long[] moves = new long[MoveGenerator.MAX_MOVES];
+		for (int d = 0; d < NUM_OF_DEALS; d++) {
+			BigTwoDeck deck = new BigTwoDeck();
+			deck.shuffle(random);
+			CardGamePlayer player = new CardGamePlayer();
+			boolean enabledFirst = (d % 2 == 0);
+			if (enabledFirst) {
+				player.setComboIndexEnabled(true);
+			}
+			for (int i = 0; i < ComboIndex.MAX_CARDS; i++) {
+				player.addCard(deck.getCard(i));
+			}
+			if (!enabledFirst) {
+				player.setComboIndexEnabled(true);
+			}
+			ComboIndex index = player.getComboIndex();
+			long[] others = leads(deal(deck, ComboIndex.MAX_CARDS, 2 * ComboIndex.MAX_CARDS), moves);
+
+			// the first play is made before the index is queried on every
+			// other deal, while the index is still to be built
+			for (int play = 0; index.getCards() != 0; play++) {
+				String name = "deal " + d + " play " + play;
+				if (play > 0 || enabledFirst) {
+					check(check, name, index, others, moves);
+				}
+				long[] leads = leads(index.getCards(), moves);
+				long combo = leads[random.nextInt(leads.length)];
+				player.removeCards(CardSet.toCardList(combo));
+				check.equal(name + " cards in hand", CardSet.bitsOf(player.getCardsInHand()),
+						index.getCards());
+			}
+			check.equal("deal " + d + " no combo left", 0, index.size());
+		}
+
+		// a hand holds no more cards than the index is sized for
+		BigTwoDeck deck = new BigTwoDeck();
+		ComboIndex index = new ComboIndex();
+		index.addCards(deal(deck, 0, ComboIndex.MAX_CARDS));
+		try {
+			index.addCards(deal(deck, ComboIndex.MAX_CARDS, ComboIndex.MAX_CARDS + 1));
+			check.check("a card beyond MAX_CARDS refused", false);
+		} catch (IllegalArgumentException ex) {
+			check.equal("a card beyond MAX_CARDS leaves the cards", deal(deck, 0, ComboIndex.MAX_CARDS),
+					index.getCards());
+		}
+		check.done();
+	}
+}
@@ -0,0 +1,158 @@
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class is a load test of the blocking transport of the card game
+ * server, which handles each connection with a reader and a writer thread of
+ * its own. It starts a server in this JVM, opens a number of connections of
+ * the framed protocol to it, and reports the time taken to seat them, and the
+ * heap, resident memory and platform threads of the JVM per connection. The
+ * threads of the connections are platform threads or virtual threads (see
+ * ThreadFactories); each mode is to be run in a JVM of its own. For
+ * comparison, the connections can be multiplexed on the event loops of the
+ * server instead.
+ * <p>
+ * The connections of the test are made from the same JVM, so the memory per
+ * connection includes their sockets, which is the same in all the modes. The
+ * resident memory is read from /proc, and is only reported on Linux.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * java -cp target/classes ConnectionLoadTest platform|virtual|eventloop [connections] [port]
+ * </pre>
+ *
+ * The number of open files allowed (see ulimit -n) must be at least twice the
+ * number of connections.
+ */
+public class ConnectionLoadTest {
+	// the default number of connections
+	private static final int DEFAULT_NUM_OF_CONNECTIONS = 2000;
+	// the default port of the server
+	private static final int DEFAULT_PORT = 2397;
+	// the time given to the server to seat the connections, in milliseconds
+	private static final long TIMEOUT = 120000;
+	// the number of event loops of the server in the eventloop mode
+	private static final int NUM_OF_EVENT_LOOPS = 2;
+
+	/**
+	 * Runs the load test.
+	 *
+	 * @param args the mode (platform, virtual or eventloop), the number of
+	 *             connections and the port of the server
+	 * @throws Exception if the test fails
+	 */
+	public static void main(String[] args) throws Exception {
+		String mode = (args.length > 0) ? args[0] : "platform";
+		boolean virtual = mode.equals("virtual");
+		int numOfEventLoops = mode.equals("eventloop") ? NUM_OF_EVENT_LOOPS : 0;
+		int numOfConnections = (args.length > 1) ? Integer.parseInt(args[1])
+				: DEFAULT_NUM_OF_CONNECTIONS;
+		int port = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_PORT;
+		if (virtual && !ThreadFactories.isVirtualSupported()) {
+			mode = "platform";
+			System.out.println("Virtual threads are not supported by Java "
+					+ System.getProperty("java.version")
+					+ "; platform threads are used instead.");
+		}
+
+		CardGameServer server = new CardGameServer("ConnectionLoadTest", 4);
+		server.setVirtualThreads(virtual);
+		server.setAcceptRate(1e9, Integer.MAX_VALUE);
+		server.setAcceptBacklog(numOfConnections);
+		Thread serverThread = new Thread(() -> server.start(port,
+				numOfEventLoops));
+		serverThread.setDaemon(true);
+		serverThread.start();
+		Thread.sleep(500);
+
+		Snapshot before = new Snapshot();
+		long start = System.nanoTime();
+		List<Socket> sockets = new ArrayList<Socket>(numOfConnections);
+		int preamble = MessageFrame.getPreamble(new BinaryCodec(Deck::new));
+		for (int i = 0; i < numOfConnections; i++) {
+			Socket socket = new Socket("localhost", port);
+			DataOutputStream dostream = new DataOutputStream(
+					socket.getOutputStream());
+			dostream.writeInt(preamble);
+			dostream.flush();
+			sockets.add(socket);
+		}
+		ServerMetrics metrics = server.getMetrics();
+		long deadline = System.currentTimeMillis() + TIMEOUT;
+		while (metrics.get("lobby.connections") < numOfConnections
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		long elapsed = System.nanoTime() - start;
+		Snapshot after = new Snapshot();
+
+		long seated = metrics.get("lobby.connections");
+		System.out.printf("%-28s %12s%n", "Mode", mode);
+		System.out.printf("%-28s %12d%n", "Connections seated", seated);
+		System.out.printf("%-28s %12.1f%n", "Time to seat (ms)", elapsed / 1e6);
+		System.out.printf("%-28s %12d%n", "Platform threads",
+				after.threads - before.threads);
+		System.out.printf("%-28s %12d%n", "Heap per connection (B)",
+				(after.heap - before.heap) / Math.max(seated, 1));
+		if (before.rss >= 0 && after.rss >= 0) {
+			System.out.printf("%-28s %12d%n", "RSS per connection (B)",
+					(after.rss - before.rss) / Math.max(seated, 1));
+		}
+		// the connections are not closed one by one, as the server would
+		// print the loss of each of them
+		System.exit(0);
+	}
+
+	/**
+	 * This inner class is used to model the memory and threads of the JVM at
+	 * a point of the test.
+	 */
+	private static class Snapshot {
+		// the bytes of the heap in use after a garbage collection
+		private final long heap;
+		// the resident memory of the process in bytes, or -1 if unknown
+		private final long rss;
+		// the number of live platform threads
+		private final int threads;
+
+		/**
+		 * Creates and returns an instance of the Snapshot class, taken after
+		 * a garbage collection.
+		 */
+		public Snapshot() {
+			Runtime runtime = Runtime.getRuntime();
+			for (int i = 0; i < 3; i++) {
+				System.gc();
+			}
+			heap = runtime.totalMemory() - runtime.freeMemory();
+			rss = readRss();
+			threads = ManagementFactory.getThreadMXBean().getThreadCount();
+		}
+
+		/**
+		 * Returns the resident memory of the process, read from /proc.
+		 *
+		 * @return the resident memory in bytes, or -1 if unknown
+		 */
+		private static long readRss() {
+			try (BufferedReader reader = new BufferedReader(new FileReader(
+					"/proc/self/status"))) {
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.startsWith("VmRSS:")) {
+						return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+					}
+				}
+			} catch (IOException | NumberFormatException ex) {
+			}
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,256 @@
+import java.util.Map;
+import java.util.Random;
+
+import benchmark.jmh.Suite;
+import benchmark.jmh.SuiteBenchmark;
+
+/**
+ * This class benchmarks the card comparison, the hand classification and
+ * comparison, and the removal of cards from a player. The inputs are taken
+ * from random deals with a fixed seed, so that the distribution of the hands
+ * is that of real games and the runs are repeatable. The operations are
+ * measured by JMH (see SuiteBenchmark), and -prof gc reports the bytes they
+ * allocate.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar HandBenchmark [name filter] [JMH options]}
+ */
+public class HandBenchmark implements Suite {
+	// the number of inputs of each kind; a power of two
+	private static final int POOL_SIZE = 1024;
+	// the mask for picking an input from a pool
+	private static final int MASK = POOL_SIZE - 1;
+	// the seed of the random deals
+	private static final long SEED = 2396L;
+
+	// the random number generator for the deals
+	private final Random random = new Random(SEED);
+	// the 13-card hands dealt, in the order dealt
+	private final Card[][] dealtHands = new Card[POOL_SIZE][];
+	// the valid hands of each type (see HandClassifier), in random order
+	private final CardList[][] validHands = new CardList[HandClassifier.STRAIGHT_FLUSH + 1][POOL_SIZE];
+	// the dealt hands from which the valid hands are taken
+	private final Card[][][] validOwners = new Card[HandClassifier.STRAIGHT_FLUSH + 1][POOL_SIZE][];
+	// the invalid two-card and five-card hands
+	private final CardList[] invalidHands = new CardList[POOL_SIZE];
+	// the valid and invalid hands mixed in the proportions of the moves generated
+	private final CardList[] mixedHands = new CardList[POOL_SIZE];
+
+	/**
+	 * Creates and returns an instance of the HandBenchmark class, dealing the
+	 * inputs of the benchmarks.
+	 */
+	public HandBenchmark() {
+		dealHands();
+		collectValidHands();
+		collectInvalidHands();
+		for (int i = 0; i < POOL_SIZE; i++) {
+			mixedHands[i] = (random.nextInt(4) == 0) ? invalidHands[i]
+					: validHands[1 + random.nextInt(HandClassifier.STRAIGHT_FLUSH)][i];
+		}
+	}
+
+	/**
+	 * Deals the 13-card hands from shuffled decks.
+	 */
+	private void dealHands() {
+		BigTwoDeck deck = new BigTwoDeck();
+		for (int i = 0; i < POOL_SIZE; i += 4) {
+			deck.shuffle(random);
+			for (int p = 0; p < 4; p++) {
+				Card[] hand = new Card[13];
+				for (int j = 0; j < 13; j++) {
+					hand[j] = deck.getCard(p * 13 + j);
+				}
+				dealtHands[i + p] = hand;
+			}
+		}
+	}
+
+	/**
+	 * Collects the valid hands of each type from the combos in the dealt hands.
+	 * Rare types such as straight flushes are collected from extra deals.
+	 */
+	private void collectValidHands() {
+		long[] moves = new long[MoveGenerator.MAX_MOVES];
+		int[] counts = new int[HandClassifier.STRAIGHT_FLUSH + 1];
+		BigTwoDeck deck = new BigTwoDeck();
+		int done = 0;
+		for (int d = 0; done < HandClassifier.STRAIGHT_FLUSH; d++) {
+			Card[] hand;
+			if (d < POOL_SIZE) {
+				hand = dealtHands[d];
+			} else {
+				deck.shuffle(random);
+				hand = new Card[13];
+				for (int j = 0; j < 13; j++) {
+					hand[j] = deck.getCard(j);
+				}
+			}
+			long bits = bitsOf(hand);
+			int numOfMoves = MoveGenerator.generate(bits, MoveGenerator.LEAD, false, moves);
+			if (numOfMoves == 0) {
+				continue;
+			}
+			// takes one combo of each type from the hand, like a player would
+			// choose among them
+			for (int type = HandClassifier.SINGLE; type <= HandClassifier.STRAIGHT_FLUSH; type++) {
+				if (counts[type] == POOL_SIZE) {
+					continue;
+				}
+				int start = random.nextInt(numOfMoves);
+				for (int k = 0; k < numOfMoves; k++) {
+					long move = moves[(start + k) % numOfMoves];
+					if (HandClassifier.getType(HandClassifier.classify(move)) == type) {
+						validOwners[type][counts[type]] = hand;
+						validHands[type][counts[type]++] = toCardList(move);
+						if (counts[type] == POOL_SIZE) {
+							done++;
+						}
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Collects the invalid two-card and five-card hands from random subsets of
+	 * the dealt hands.
+	 */
+	private void collectInvalidHands() {
+		int count = 0;
+		for (int d = 0; count < POOL_SIZE; d = (d + 1) & MASK) {
+			int size = random.nextBoolean() ? 2 : 5;
+			long bits = 0L;
+			while (Long.bitCount(bits) < size) {
+				bits |= CardSet.bit(dealtHands[d][random.nextInt(13)]);
+			}
+			if (HandClassifier.classify(bits) == HandClassifier.INVALID) {
+				invalidHands[count++] = toCardList(bits);
+			}
+		}
+	}
+
+	/**
+	 * Returns the bitboard of the specified cards.
+	 */
+	private static long bitsOf(Card[] cards) {
+		long bits = 0L;
+		for (Card card : cards) {
+			bits |= CardSet.bit(card);
+		}
+		return bits;
+	}
+
+	/**
+	 * Returns a list of the specified cards in a random order, as they would be
+	 * selected by a player.
+	 */
+	private CardList toCardList(long bits) {
+		CardList sorted = CardSet.toCardList(bits);
+		CardList cards = new CardList();
+		while (!sorted.isEmpty()) {
+			cards.addCard(sorted.removeCard(random.nextInt(sorted.size())));
+		}
+		return cards;
+	}
+
+	/**
+	 * Adds the benchmarked operations to the specified map.
+	 *
+	 * @param operations the operations by their names
+	 */
+	public void addOperations(Map<String, Operation> operations) {
+		// card comparison
+		Card[] plainCards = new Card[POOL_SIZE + 1];
+		Card[] bigTwoCards = new Card[POOL_SIZE + 1];
+		for (int i = 0; i <= POOL_SIZE; i++) {
+			Card card = dealtHands[i & MASK][i % 13];
+			plainCards[i] = new Card(card.getSuit(), card.getRank());
+			bigTwoCards[i] = card;
+		}
+		operations.put("Card.compareTo", i -> plainCards[i & MASK].compareTo(plainCards[(i & MASK) + 1]));
+		operations.put("BigTwoCard.compareTo", i -> bigTwoCards[i & MASK].compareTo(bigTwoCards[(i & MASK) + 1]));
+
+		// sorting a dealt hand
+		CardList list = new CardList();
+		for (int j = 0; j < 13; j++) {
+			list.addCard(dealtHands[0][j]);
+		}
+		operations.put("CardList.setCard x13 (baseline)", i -> {
+			Card[] hand = dealtHands[i & MASK];
+			for (int j = 0; j < 13; j++) {
+				list.setCard(j, hand[j]);
+			}
+			return list.getCard(0).hashCode();
+		});
+		operations.put("CardList.sort (13 cards after setCard x13)", i -> {
+			Card[] hand = dealtHands[i & MASK];
+			for (int j = 0; j < 13; j++) {
+				list.setCard(j, hand[j]);
+			}
+			list.sort();
+			return list.getCard(0).hashCode();
+		});
+
+		// classifying a selection of cards
+		CardGamePlayer player = new CardGamePlayer("Player");
+		operations.put("BigTwo.composeHand (valid)", i -> {
+			Hand hand = BigTwo.composeHand(player, validHands[1 + (i & 7)][(i >>> 3) & MASK]);
+			return (hand == null) ? 0 : hand.size();
+		});
+		operations.put("BigTwo.composeHand (invalid)", i -> {
+			Hand hand = BigTwo.composeHand(player, invalidHands[i & MASK]);
+			return (hand == null) ? 0 : hand.size();
+		});
+		operations.put("BigTwo.composeHand (mixed)", i -> {
+			Hand hand = BigTwo.composeHand(player, mixedHands[i & MASK]);
+			return (hand == null) ? 0 : hand.size();
+		});
+		operations.put("HandClassifier.classify (mixed)", i -> HandClassifier.classify(CardSet
+				.bitsOf(mixedHands[i & MASK])));
+
+		// the methods of each Hand subclass
+		for (int type = HandClassifier.SINGLE; type <= HandClassifier.STRAIGHT_FLUSH; type++) {
+			Hand[] hands = new Hand[POOL_SIZE + 1];
+			for (int i = 0; i <= POOL_SIZE; i++) {
+				hands[i] = BigTwo.composeHand(player, validHands[type][i & MASK]);
+			}
+			String name = hands[0].getClass().getName();
+			operations.put(name + ".isValid", i -> hands[i & MASK].isValid() ? 1 : 0);
+			operations.put(name + ".getTopCard", i -> hands[i & MASK].getTopCard().hashCode());
+			operations.put(name + ".beats", i -> hands[i & MASK].beats(hands[(i & MASK) + 1]) ? 1 : 0);
+		}
+
+		// removing a move from a dealt hand
+		operations.put("CardGamePlayer.addCard x13 (baseline)", i -> {
+			Card[] hand = validOwners[HandClassifier.PAIR][i & MASK];
+			player.removeAllCards();
+			for (Card card : hand) {
+				player.addCard(card);
+			}
+			return player.getNumOfCards();
+		});
+		operations.put("CardGamePlayer.removeCards (after addCard x13)", i -> {
+			int type = 1 + ((i >>> 10) & 7);
+			Card[] hand = validOwners[type][i & MASK];
+			player.removeAllCards();
+			for (Card card : hand) {
+				player.addCard(card);
+			}
+			player.removeCards(validHands[type][i & MASK]);
+			return player.getNumOfCards();
+		});
+	}
+
+	/**
+	 * Runs the benchmarks from the command line.
+	 *
+	 * @param args the first argument, if any, is a filter on the names of the
+	 *             benchmarks to be run, followed by the options of JMH
+	 * @throws Exception if the benchmarks cannot be run
+	 */
+	public static void main(String[] args) throws Exception {
+		SuiteBenchmark.runSuite(HandBenchmark.class.getName(), args);
+	}
+}
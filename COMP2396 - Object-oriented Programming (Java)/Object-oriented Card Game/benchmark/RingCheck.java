@@ -0,0 +1,97 @@
+/**
+ * This class checks the consistent hash ring (see ConsistentHashRing) as the
+ * gateway uses it (see CardGameGateway): the keys are spread evenly over the
+ * nodes, only the keys of a node removed move, and they move back once the
+ * node is added again.
+ * <p>
+ * Usage: {@code java -cp target/classes RingCheck}
+ */
+public class RingCheck {
+	// the number of points of each node, as in the gateway
+	private static final int NUM_OF_VIRTUAL_NODES = CardGameGateway.NUM_OF_VIRTUAL_NODES;
+	// the number of nodes
+	private static final int NUM_OF_NODES = 4;
+	// the number of keys looked up
+	private static final int NUM_OF_KEYS = 100000;
+
+	/**
+	 * Returns the name of the specified node, as the gateway names its nodes.
+	 */
+	private static String name(int node) {
+		return "localhost:" + (2401 + node);
+	}
+
+	/**
+	 * Returns the nodes of all the keys on the specified ring.
+	 */
+	private static Integer[] lookUp(ConsistentHashRing<Integer> ring) {
+		Integer[] nodes = new Integer[NUM_OF_KEYS];
+		for (int key = 0; key < NUM_OF_KEYS; key++) {
+			nodes[key] = ring.get(key);
+		}
+		return nodes;
+	}
+
+	/**
+	 * Runs the checks from the command line.
+	 *
+	 * @param args not used
+	 */
+	public static void main(String[] args) {
+		Check check = new Check("RingCheck");
+		ConsistentHashRing<Integer> ring = new ConsistentHashRing<Integer>(NUM_OF_VIRTUAL_NODES);
+		check.equal("an empty ring has no node of a key", null, ring.get(0));
+		for (int node = 0; node < NUM_OF_NODES; node++) {
+			ring.add(node, name(node));
+		}
+		ring.add(0, name(0));
+		check.equal("nodes on the ring", NUM_OF_NODES, ring.getNumOfNodes());
+
+		// each node has between half and twice its fair share of the keys
+		Integer[] before = lookUp(ring);
+		int[] numOfKeys = new int[NUM_OF_NODES];
+		for (Integer node : before) {
+			numOfKeys[node]++;
+		}
+		for (int node = 0; node < NUM_OF_NODES; node++) {
+			int fairShare = NUM_OF_KEYS / NUM_OF_NODES;
+			check.check("node " + node + " has " + numOfKeys[node] + " keys",
+					numOfKeys[node] > fairShare / 2 && numOfKeys[node] < fairShare * 2);
+		}
+
+		// only the keys of the node removed move
+		int removed = NUM_OF_NODES - 1;
+		ring.remove(removed);
+		check.equal("nodes on the ring after a removal", NUM_OF_NODES - 1, ring.getNumOfNodes());
+		Integer[] after = lookUp(ring);
+		int moved = 0;
+		int lost = 0;
+		for (int key = 0; key < NUM_OF_KEYS; key++) {
+			if (before[key] != removed && !before[key].equals(after[key])) {
+				moved++;
+			}
+			if (after[key] == removed) {
+				lost++;
+			}
+		}
+		check.equal("keys of the other nodes moved", 0, moved);
+		check.equal("keys left on the node removed", 0, lost);
+
+		// the keys move back once the node is added again
+		ring.add(removed, name(removed));
+		Integer[] back = lookUp(ring);
+		int differ = 0;
+		for (int key = 0; key < NUM_OF_KEYS; key++) {
+			if (!before[key].equals(back[key])) {
+				differ++;
+			}
+		}
+		check.equal("keys not back on their node", 0, differ);
+
+		for (int node = 0; node < NUM_OF_NODES; node++) {
+			ring.remove(node);
+		}
+		check.equal("a ring emptied has no node of a key", null, ring.get(0));
+		check.done();
+	}
+}
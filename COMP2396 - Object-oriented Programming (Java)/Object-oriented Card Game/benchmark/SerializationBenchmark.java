@@ -0,0 +1,289 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Random;
+
+import benchmark.jmh.Suite;
+import benchmark.jmh.SuiteBenchmark;
+
+/**
+ * This class benchmarks the Java serialization of the messages of the card
+ * game. For each message type, it measures the encoding and decoding of a
+ * single message on a new stream, and of a message on a long-lived stream like
+ * the ones held by BigTwoClient and CardGameServer, both plain and reset every
+ * few messages (see ManagedObjectOutputStream), and it reports the number of
+ * bytes on the wire in both cases. For comparison, it also measures the
+ * frames of the binary codec (see BinaryCodec), which do not depend on a
+ * long-lived stream, and the broadcast of a frame to the clients at a table
+ * encoded for each client or once for all of them (see OutboundMessage).
+ * <p>
+ * A long-lived stream keeps a handle to every object written, so it is
+ * restarted every STREAM_LENGTH messages to keep the benchmark bounded; the
+ * cost of the stream header and class descriptors is amortized over them.
+ * <p>
+ * The operations are measured by JMH (see SuiteBenchmark), and -prof gc
+ * reports the bytes they allocate. The bytes on the wire are printed first.
+ * <p>
+ * Usage: {@code java -cp target/benchmarks.jar SerializationBenchmark [name filter] [JMH options]}
+ */
+public class SerializationBenchmark implements Suite {
+	// the number of messages written on a long-lived stream; a power of two
+	private static final int STREAM_LENGTH = 4096;
+	// the mask for picking a message from a pool
+	private static final int MASK = STREAM_LENGTH - 1;
+	// the number of clients receiving a broadcast: 4 players and 12 spectators
+	private static final int NUM_OF_RECIPIENTS = 16;
+	// the seed of the random messages
+	private static final long SEED = 2396L;
+	// the names of the message types, indexed by type
+	private static final String[] TYPE_NAMES = { "PLAYER_LIST", "JOIN", "FULL",
+			"QUIT", "READY", "START", "MOVE", "MSG", "REJECT" };
+
+	// the random number generator for the messages
+	private final Random random = new Random(SEED);
+	// the binary codec
+	private final MessageCodec binaryCodec = new BinaryCodec(BigTwoDeck::new);
+	// the messages of each type, all distinct objects
+	private final CardGameMessage[][] messages = new CardGameMessage[TYPE_NAMES.length][STREAM_LENGTH];
+
+	/**
+	 * Creates and returns an instance of the SerializationBenchmark class,
+	 * creating the messages to be serialized.
+	 */
+	public SerializationBenchmark() {
+		for (int i = 0; i < STREAM_LENGTH; i++) {
+			int playerID = i & 3;
+			messages[CardGameMessage.PLAYER_LIST][i] = new CardGameMessage(
+					CardGameMessage.PLAYER_LIST, playerID, playerNames(playerID));
+			messages[CardGameMessage.JOIN][i] = new CardGameMessage(
+					CardGameMessage.JOIN, playerID, playerName());
+			messages[CardGameMessage.FULL][i] = new CardGameMessage(
+					CardGameMessage.FULL, -1, null);
+			messages[CardGameMessage.QUIT][i] = new CardGameMessage(
+					CardGameMessage.QUIT, playerID, remoteAddress());
+			messages[CardGameMessage.READY][i] = new CardGameMessage(
+					CardGameMessage.READY, playerID, null);
+			BigTwoDeck deck = new BigTwoDeck();
+			deck.shuffle(random);
+			messages[CardGameMessage.START][i] = new CardGameMessage(
+					CardGameMessage.START, -1, deck);
+			messages[CardGameMessage.MOVE][i] = new CardGameMessage(
+					CardGameMessage.MOVE, playerID, cardIdx());
+			messages[CardGameMessage.MSG][i] = new CardGameMessage(
+					CardGameMessage.MSG, playerID, playerName() + " ("
+							+ remoteAddress() + "): " + chatText());
+			messages[CardGameMessage.REJECT][i] = new CardGameMessage(
+					CardGameMessage.REJECT, playerID, cardIdx());
+		}
+	}
+
+	/**
+	 * Returns a random player name.
+	 */
+	private String playerName() {
+		return "Player" + random.nextInt(1000);
+	}
+
+	/**
+	 * Returns the names of the players in a game where the specified player has
+	 * just joined.
+	 */
+	private String[] playerNames(int playerID) {
+		String[] names = new String[4];
+		for (int i = 0; i <= playerID; i++) {
+			names[i] = playerName();
+		}
+		return names;
+	}
+
+	/**
+	 * Returns a random string representation of a remote socket address.
+	 */
+	private String remoteAddress() {
+		return "/192.168." + random.nextInt(256) + "." + random.nextInt(256)
+				+ ":" + (49152 + random.nextInt(16384));
+	}
+
+	/**
+	 * Returns a random chat text of up to 40 characters.
+	 */
+	private String chatText() {
+		char[] text = new char[1 + random.nextInt(40)];
+		for (int i = 0; i < text.length; i++) {
+			text[i] = (char) ('a' + random.nextInt(26));
+		}
+		return new String(text);
+	}
+
+	/**
+	 * Returns random indices of the cards of a move of 1, 2, 3 or 5 cards in a
+	 * hand of 13 cards.
+	 */
+	private int[] cardIdx() {
+		int[] sizes = { 1, 1, 1, 2, 2, 3, 5, 5 };
+		int[] cardIdx = new int[sizes[random.nextInt(sizes.length)]];
+		int next = random.nextInt(13 - cardIdx.length + 1);
+		for (int i = 0; i < cardIdx.length; i++) {
+			cardIdx[i] = next;
+			next += 1 + random.nextInt(2);
+			next = Math.min(next, 13 - cardIdx.length + i + 1);
+		}
+		return cardIdx;
+	}
+
+	/**
+	 * Returns the specified message serialized on a new stream.
+	 */
+	private static byte[] encode(CardGameMessage message) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(buffer);
+		out.writeObject(message);
+		out.close();
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Returns the specified messages serialized on one stream.
+	 */
+	private static byte[] encode(CardGameMessage[] messages) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(buffer);
+		for (CardGameMessage message : messages) {
+			out.writeObject(message);
+		}
+		out.close();
+		return buffer.toByteArray();
+	}
+
+	/**
+	 * Prints the number of bytes on the wire of each message type.
+	 *
+	 * @throws IOException if a message cannot be serialized
+	 */
+	public void printSizes() throws IOException {
+		System.out.printf("%-12s %16s %16s %16s%n", "Message", "single (B)", "stream (B/msg)",
+				"binary (B)");
+		for (int type = 0; type < TYPE_NAMES.length; type++) {
+			long single = 0;
+			long binary = 0;
+			for (CardGameMessage message : messages[type]) {
+				single += encode(message).length;
+				binary += MessageFrame.encode(message, binaryCodec).limit();
+			}
+			long stream = encode(messages[type]).length;
+			System.out.printf("%-12s %16.1f %16.1f %16.1f%n", TYPE_NAMES[type],
+					(double) single / STREAM_LENGTH, (double) stream / STREAM_LENGTH,
+					(double) binary / STREAM_LENGTH);
+		}
+		System.out.println();
+	}
+
+	/**
+	 * Adds the benchmarked operations to the specified map.
+	 *
+	 * @param operations the operations by their names
+	 * @throws IOException if a message cannot be serialized
+	 */
+	public void addOperations(Map<String, Operation> operations) throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		for (int type = 0; type < TYPE_NAMES.length; type++) {
+			CardGameMessage[] pool = messages[type];
+			String name = TYPE_NAMES[type];
+
+			// a single message on a new stream
+			byte[][] singles = new byte[STREAM_LENGTH][];
+			for (int i = 0; i < STREAM_LENGTH; i++) {
+				singles[i] = encode(pool[i]);
+			}
+			operations.put(name + " encode (single)", i -> {
+				buffer.reset();
+				ObjectOutputStream out = new ObjectOutputStream(buffer);
+				out.writeObject(pool[i & MASK]);
+				out.flush();
+				return buffer.size();
+			});
+			operations.put(name + " decode (single)", i -> {
+				ObjectInputStream in = new ObjectInputStream(
+						new ByteArrayInputStream(singles[i & MASK]));
+				return ((CardGameMessage) in.readObject()).getType();
+			});
+
+			// a message on a long-lived stream
+			ObjectOutputStream[] out = new ObjectOutputStream[1];
+			operations.put(name + " encode (stream)", i -> {
+				if ((i & MASK) == 0) {
+					buffer.reset();
+					out[0] = new ObjectOutputStream(buffer);
+				}
+				out[0].writeObject(pool[i & MASK]);
+				out[0].flush();
+				return buffer.size();
+			});
+			ManagedObjectOutputStream[] managed = new ManagedObjectOutputStream[1];
+			operations.put(name + " encode (managed)", i -> {
+				if ((i & MASK) == 0) {
+					buffer.reset();
+					managed[0] = new ManagedObjectOutputStream(buffer);
+				}
+				managed[0].writeMessage(pool[i & MASK]);
+				managed[0].flush();
+				return buffer.size();
+			});
+			byte[] stream = encode(pool);
+			ObjectInputStream[] in = new ObjectInputStream[1];
+			operations.put(name + " decode (stream)", i -> {
+				if ((i & MASK) == 0) {
+					in[0] = new ObjectInputStream(new ByteArrayInputStream(stream));
+				}
+				return ((CardGameMessage) in[0].readObject()).getType();
+			});
+
+			// a frame of the binary codec
+			ByteBuffer[] frames = new ByteBuffer[STREAM_LENGTH];
+			for (int i = 0; i < STREAM_LENGTH; i++) {
+				frames[i] = MessageFrame.encode(pool[i], binaryCodec);
+			}
+			operations.put(name + " encode (binary)", i -> MessageFrame.encode(pool[i & MASK],
+					binaryCodec).limit());
+			operations.put(name + " decode (binary)", i -> MessageFrame.decode(frames[i & MASK]
+					.duplicate(), binaryCodec).getType());
+		}
+
+		// a broadcast of the messages sent to the whole table
+		for (int type : new int[] { CardGameMessage.MOVE, CardGameMessage.MSG }) {
+			CardGameMessage[] pool = messages[type];
+			String name = TYPE_NAMES[type] + " broadcast x" + NUM_OF_RECIPIENTS;
+			operations.put(name + " (per client)", i -> {
+				long bytes = 0;
+				for (int r = 0; r < NUM_OF_RECIPIENTS; r++) {
+					bytes += MessageFrame.encode(pool[i & MASK], binaryCodec).remaining();
+				}
+				return bytes;
+			});
+			operations.put(name + " (encoded once)", i -> {
+				OutboundMessage message = new OutboundMessage(pool[i & MASK]);
+				long bytes = 0;
+				for (int r = 0; r < NUM_OF_RECIPIENTS; r++) {
+					bytes += message.getFrame(binaryCodec).remaining();
+				}
+				return bytes;
+			});
+		}
+	}
+
+	/**
+	 * Runs the benchmarks from the command line.
+	 *
+	 * @param args the first argument, if any, is a filter on the names of the
+	 *             benchmarks to be run, followed by the options of JMH
+	 * @throws Exception if the benchmarks cannot be run
+	 */
+	public static void main(String[] args) throws Exception {
+		new SerializationBenchmark().printSizes();
+		SuiteBenchmark.runSuite(SerializationBenchmark.class.getName(), args);
+	}
+}
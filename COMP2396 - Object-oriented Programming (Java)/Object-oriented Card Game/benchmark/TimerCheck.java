@@ -0,0 +1,97 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class checks the hashed timing wheel (see HashedWheelTimer): the timers
+ * expire once each, never early and not much late, including the timers due
+ * after more than one turn of the wheel; a timer cancelled never expires; and
+ * a timer scheduled again and again expires once, after its last delay.
+ * <p>
+ * Usage: {@code java -cp target/classes TimerCheck}
+ */
+public class TimerCheck {
+	// the duration of a tick, in milliseconds
+	private static final long TICK = 10;
+	// the number of ticks of a turn of the wheel
+	private static final int TICKS_PER_WHEEL = 64;
+	// the number of timers
+	private static final int NUM_OF_TIMERS = 10000;
+	// the shortest delay of a timer, long enough for the timers to be
+	// scheduled and cancelled before any expires, in milliseconds
+	private static final long MIN_DELAY = 50 * TICK;
+	// the longest delay of a timer, a few turns of the wheel, in milliseconds
+	private static final long MAX_DELAY = 3 * TICK * TICKS_PER_WHEEL;
+	// the lateness allowed, in milliseconds, as the checks may share the
+	// machine with other work
+	private static final long SLACK = 200;
+
+	/**
+	 * Runs the checks from the command line.
+	 *
+	 * @param args not used
+	 * @throws InterruptedException if interrupted while waiting for the timers
+	 */
+	public static void main(String[] args) throws InterruptedException {
+		Check check = new Check("TimerCheck");
+		HashedWheelTimer timer = new HashedWheelTimer("TimerCheck", TICK, TICKS_PER_WHEEL);
+
+		// the timers of odd index are cancelled
+		AtomicInteger[] runs = new AtomicInteger[NUM_OF_TIMERS];
+		long[] due = new long[NUM_OF_TIMERS];
+		AtomicInteger early = new AtomicInteger();
+		AtomicLong maxLate = new AtomicLong();
+		HashedWheelTimer.Timeout[] timeouts = new HashedWheelTimer.Timeout[NUM_OF_TIMERS];
+		for (int i = 0; i < NUM_OF_TIMERS; i++) {
+			int index = i;
+			runs[i] = new AtomicInteger();
+			timeouts[i] = new HashedWheelTimer.Timeout(() -> {
+				long late = System.nanoTime() - due[index];
+				if (late < 0) {
+					early.incrementAndGet();
+				}
+				maxLate.accumulateAndGet(late, Math::max);
+				runs[index].incrementAndGet();
+			});
+		}
+		for (int i = 0; i < NUM_OF_TIMERS; i++) {
+			long delay = MIN_DELAY + (i * 7L) % (MAX_DELAY - MIN_DELAY);
+			due[i] = System.nanoTime() + delay * 1000000L;
+			timer.schedule(timeouts[i], delay);
+		}
+		for (int i = 1; i < NUM_OF_TIMERS; i += 2) {
+			timer.cancel(timeouts[i]);
+		}
+		check.equal("timers pending", NUM_OF_TIMERS / 2, timer.getNumOfPending());
+		Thread.sleep(MAX_DELAY + SLACK);
+
+		int wrongRuns = 0;
+		for (int i = 0; i < NUM_OF_TIMERS; i++) {
+			if (runs[i].get() != ((i % 2 == 0) ? 1 : 0)) {
+				wrongRuns++;
+			}
+		}
+		check.equal("timers run other than once, or cancelled but run", 0, wrongRuns);
+		check.equal("timers run early", 0, early.get());
+		check.check("timers run " + maxLate.get() / 1000000 + " ms late at most",
+				maxLate.get() < (TICK + SLACK) * 1000000L);
+		check.equal("timers pending once run", 0, timer.getNumOfPending());
+		check.equal("timers expired", (long) NUM_OF_TIMERS / 2, timer.getNumOfExpired());
+
+		// a timer scheduled again and again expires once, after its last delay
+		AtomicInteger rescheduled = new AtomicInteger();
+		HashedWheelTimer.Timeout timeout = new HashedWheelTimer.Timeout(
+				rescheduled::incrementAndGet);
+		for (int i = 0; i < 1000; i++) {
+			timer.schedule(timeout, 5 * TICK);
+		}
+		timer.schedule(timeout, 20 * TICK);
+		check.equal("timers pending once rescheduled", 1, timer.getNumOfPending());
+		Thread.sleep(10 * TICK);
+		check.equal("runs before the last delay", 0, rescheduled.get());
+		Thread.sleep(10 * TICK + SLACK);
+		check.equal("runs of a timer rescheduled", 1, rescheduled.get());
+
+		timer.stop();
+		check.done();
+	}
+}
@@ -0,0 +1,39 @@
+package benchmark.jmh;
+
+import java.util.Map;
+
+/**
+ * This interface is used to model a suite of micro-benchmarks of the card
+ * game, e.g., HandBenchmark, whose operations are measured by JMH (see
+ * SuiteBenchmark). The classes of the game are in the default package, which
+ * JMH does not accept for a benchmark class and from which a class in a
+ * package cannot import, so a suite stays in the default package and hands
+ * its operations over by name.
+ * <p>
+ * A suite has a public constructor without arguments, which sets up the
+ * inputs of its operations.
+ */
+public interface Suite {
+	/**
+	 * An interface for a benchmarked operation.
+	 */
+	public interface Operation {
+		/**
+		 * Runs the operation once.
+		 *
+		 * @param i the number of the invocation, for picking an input
+		 * @return a value depending on the result of the operation
+		 * @throws Exception if the operation fails
+		 */
+		long run(int i) throws Exception;
+	}
+
+	/**
+	 * Adds the operations of this suite to the specified map, in the order
+	 * they are to be run.
+	 *
+	 * @param operations the operations by their names
+	 * @throws Exception if the inputs of an operation cannot be set up
+	 */
+	void addOperations(Map<String, Operation> operations) throws Exception;
+}
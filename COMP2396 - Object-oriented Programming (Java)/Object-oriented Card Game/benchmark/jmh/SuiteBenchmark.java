@@ -0,0 +1,151 @@
+package benchmark.jmh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class is the JMH benchmark of the operations of a suite (see Suite).
+ * The suite and the operation are parameters of the benchmark, so that each
+ * operation is measured in a JVM of its own, where the call to the operation
+ * sees a single target. The state of the benchmark is the suite, set up once
+ * per run, and the number of the invocation, which picks the input of the
+ * operation.
+ * <p>
+ * runSuite() runs all the operations of a suite whose names contain a
+ * filter, and passes the other arguments to JMH, e.g., -prof gc to report the
+ * bytes allocated per operation (gc.alloc.rate.norm). It is called by main()
+ * of each suite:
+ *
+ * <pre>
+ * mvn -B package
+ * java -cp target/benchmarks.jar HandBenchmark composeHand -prof gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+@Fork(1)
+@State(Scope.Thread)
+public class SuiteBenchmark {
+	/**
+	 * The name of the class of the suite, in the default package.
+	 */
+	@Param("HandBenchmark")
+	public String suite;
+	/**
+	 * The name of the operation measured.
+	 */
+	@Param("Card.compareTo")
+	public String operation;
+
+	// the operation measured
+	private Suite.Operation target;
+	// the number of the invocation
+	private int i = 0;
+
+	/**
+	 * Sets up the suite, and looks up the operation measured.
+	 *
+	 * @throws Exception if the suite cannot be set up or has no such operation
+	 */
+	@Setup
+	public void setUp() throws Exception {
+		target = operations(suite).get(operation);
+		if (target == null) {
+			throw new IllegalArgumentException("No operation " + operation + " in " + suite);
+		}
+	}
+
+	/**
+	 * Runs the operation measured once.
+	 *
+	 * @return the result of the operation, which JMH consumes
+	 * @throws Exception if the operation fails
+	 */
+	@Benchmark
+	public long run() throws Exception {
+		return target.run(i++);
+	}
+
+	/**
+	 * Sets up the specified suite, and returns its operations.
+	 *
+	 * @param suite the name of the class of the suite
+	 * @return the operations of the suite by their names
+	 * @throws Exception if the suite cannot be set up
+	 */
+	public static Map<String, Suite.Operation> operations(String suite) throws Exception {
+		Suite instance = (Suite) Class.forName(suite).getConstructor().newInstance();
+		Map<String, Suite.Operation> operations = new LinkedHashMap<String, Suite.Operation>();
+		instance.addOperations(operations);
+		return operations;
+	}
+
+	/**
+	 * Runs the operations of a suite from the command line.
+	 *
+	 * @param args the name of the class of the suite, followed by the
+	 *             arguments of runSuite()
+	 * @throws Exception if the benchmarks cannot be run
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			System.out.println("Usage: java -cp target/benchmarks.jar benchmark.jmh.SuiteBenchmark"
+					+ " suite [name filter] [JMH options]");
+			return;
+		}
+		runSuite(args[0], Arrays.copyOfRange(args, 1, args.length));
+	}
+
+	/**
+	 * Runs the operations of the specified suite whose names contain a
+	 * filter.
+	 *
+	 * @param suite the name of the class of the suite
+	 * @param args  a filter on the names of the operations to be run if the
+	 *              first argument is not an option, followed by the options
+	 *              of JMH
+	 * @throws Exception if the benchmarks cannot be run
+	 */
+	public static void runSuite(String suite, String[] args) throws Exception {
+		boolean filtered = (args.length > 0 && !args[0].startsWith("-"));
+		String filter = filtered ? args[0] : "";
+		List<String> names = new ArrayList<String>();
+		for (String name : operations(suite).keySet()) {
+			if (name.contains(filter)) {
+				names.add(name);
+			}
+		}
+		if (names.isEmpty()) {
+			System.out.println("No operation of " + suite + " matches " + filter);
+			return;
+		}
+		CommandLineOptions options = new CommandLineOptions(
+				Arrays.copyOfRange(args, filtered ? 1 : 0, args.length));
+		new Runner(new OptionsBuilder().parent(options)
+				.include(SuiteBenchmark.class.getName())
+				.param("suite", suite)
+				.param("operation", names.toArray(new String[names.size()]))
+				.build()).run();
+	}
+}